@@ -0,0 +1,67 @@
+package com.github.erizo.gradle
+
+import org.apache.commons.io.FileUtils
+import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.GradleRunner
+import org.gradle.testkit.runner.TaskOutcome
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Paths
+
+class JcstressPluginBuildCacheSpec extends Specification {
+
+    @TempDir
+    File testProjectDir
+
+    @TempDir
+    File buildCacheDir
+
+    def pluginClasspath
+
+    def setup() {
+        pluginClasspath = getClass().classLoader.findResource('plugin-classpath.txt').readLines().collect {
+            new File(it)
+        }
+    }
+
+    def "should load jcstress report from build cache"() {
+        given:
+        def jcstressProjectRoot = Paths.get(getClass().classLoader.getResource("simple-application-sanity").toURI()).toFile()
+        FileUtils.copyDirectory(jcstressProjectRoot, testProjectDir, false)
+        new File(testProjectDir, 'build.gradle') << """
+            jcstress {
+                cacheable = true
+            }
+        """
+        new File(testProjectDir, 'settings.gradle') << """
+            buildCache {
+                local {
+                    directory = '${buildCacheDir.absolutePath.replace('\\', '/')}'
+                }
+            }
+        """
+
+        when:
+        def firstResult = runGradleTask('jcstress')
+        def secondResult = runGradleTask('clean', 'jcstress')
+
+        then:
+        verifyAll {
+            firstResult.task(":jcstress").outcome == TaskOutcome.SUCCESS
+            secondResult.task(":jcstress").outcome == TaskOutcome.FROM_CACHE
+            new File(testProjectDir, 'build/reports/jcstress/index.html').isFile()
+        }
+    }
+
+    private BuildResult runGradleTask(String... taskNames) {
+        GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withArguments(taskNames.toList() + ['--build-cache', '-i', '--stacktrace'])
+                .forwardStdOutput(System.out.newPrintWriter())
+                .forwardStdError(System.err.newPrintWriter())
+                .withPluginClasspath(pluginClasspath)
+                .build()
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.github.erizo.gradle
+
+import org.apache.commons.io.FileUtils
+import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.GradleRunner
+import org.gradle.testkit.runner.TaskOutcome
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Paths
+
+class JcstressPluginConfigurationCacheSpec extends Specification {
+
+    @TempDir
+    File testProjectDir
+
+    def pluginClasspath
+
+    def setup() {
+        pluginClasspath = getClass().classLoader.findResource('plugin-classpath.txt').readLines().collect {
+            new File(it)
+        }
+    }
+
+    def "should reuse configuration cache for jcstress tasks"() {
+        given:
+        def jcstressProjectRoot = Paths.get(getClass().classLoader.getResource("simple-application-sanity").toURI()).toFile()
+        FileUtils.copyDirectory(jcstressProjectRoot, testProjectDir, false)
+
+        when:
+        def firstResult = runGradleTask('jcstress', 'jcstressInstall')
+        def secondResult = runGradleTask('jcstress', 'jcstressInstall')
+
+        then:
+        verifyAll {
+            firstResult.task(":jcstress").outcome == TaskOutcome.SUCCESS
+            firstResult.task(":jcstressInstall").outcome == TaskOutcome.SUCCESS
+            firstResult.output.contains("Configuration cache entry stored.")
+            secondResult.output.contains("Reusing configuration cache.")
+            new File(testProjectDir, 'build/reports/jcstress/index.html').isFile()
+            new File(testProjectDir, "build/install/jcstress-test-simple-jcstress/bin/jcstress-test-simple-jcstress").canExecute()
+        }
+    }
+
+    private BuildResult runGradleTask(String... taskNames) {
+        GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withArguments(taskNames.toList() + ['--configuration-cache', '-i', '--stacktrace'])
+                .forwardStdOutput(System.out.newPrintWriter())
+                .forwardStdError(System.err.newPrintWriter())
+                .withPluginClasspath(pluginClasspath)
+                .build()
+    }
+
+}
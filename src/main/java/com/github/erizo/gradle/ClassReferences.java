@@ -0,0 +1,108 @@
+package com.github.erizo.gradle;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lists the classes a class file refers to, by reading its constant pool.
+ * <p>
+ * Both class entries and type descriptors are considered, so field, method and generic signature types are
+ * included. Only the constant pool is read; the rest of the class file is ignored.
+ */
+final class ClassReferences {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final Pattern DESCRIPTOR_TYPE = Pattern.compile("L([\\w/$]+)[;<]");
+
+    private ClassReferences() {
+    }
+
+    /**
+     * @param classFile class file contents
+     * @return binary names of referenced classes, e.g. {@code com.example.Foo$Bar}
+     * @throws IOException if the content is not a class file
+     */
+    static Set<String> read(byte[] classFile) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        ArrayList<Integer> classEntries = new ArrayList<>();
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7:
+                    classEntries.add(in.readUnsignedShort());
+                    break;
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    in.readUnsignedShort();
+                    break;
+                case 15:
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                    break;
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    in.readInt();
+                    break;
+                case 5:
+                case 6:
+                    in.readLong();
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        Set<String> result = new TreeSet<>();
+        for (Integer entry : classEntries) {
+            String name = utf8[entry];
+            if (name == null) {
+                continue;
+            }
+            if (name.startsWith("[")) {
+                addDescriptorTypes(result, name);
+            } else {
+                result.add(name.replace('/', '.'));
+            }
+        }
+        for (String value : utf8) {
+            if (value != null && value.indexOf(';') >= 0) {
+                addDescriptorTypes(result, value);
+            }
+        }
+        return result;
+    }
+
+    private static void addDescriptorTypes(Set<String> result, String descriptor) {
+        Matcher matcher = DESCRIPTOR_TYPE.matcher(descriptor);
+        while (matcher.find()) {
+            result.add(matcher.group(1).replace('/', '.'));
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.github.erizo.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * CPUs the build is allowed to run on, and a way to pin child processes to a subset of them.
+ */
+class CpuSet {
+
+    private static final File PROC_STATUS = new File("/proc/self/status");
+
+    private final List<Integer> cpus;
+
+    CpuSet(List<Integer> cpus) {
+        this.cpus = Collections.unmodifiableList(new ArrayList<>(cpus));
+    }
+
+    /**
+     * Reads the CPUs this process may run on. On Linux this honours cpusets, elsewhere all available processors
+     * are assumed.
+     *
+     * @return allowed CPUs
+     */
+    static CpuSet allowed() {
+        return allowed(PROC_STATUS);
+    }
+
+    static CpuSet allowed(File procStatus) {
+        if (procStatus.isFile()) {
+            try {
+                for (String line : Files.readAllLines(procStatus.toPath(), StandardCharsets.UTF_8)) {
+                    if (line.startsWith("Cpus_allowed_list:")) {
+                        return new CpuSet(parseList(line.substring("Cpus_allowed_list:".length())));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // fall back to the processor count
+            }
+        }
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++) {
+            result.add(i);
+        }
+        return new CpuSet(result);
+    }
+
+    /**
+     * Parses a Linux CPU list, e.g. {@code 0-3,8,10-11}.
+     *
+     * @param list CPU list
+     * @return CPU ids
+     */
+    static List<Integer> parseList(String list) {
+        List<Integer> result = new ArrayList<>();
+        for (String range : list.trim().split(",")) {
+            if (range.trim().isEmpty()) {
+                continue;
+            }
+            String[] bounds = range.trim().split("-");
+            int from = Integer.parseInt(bounds[0].trim());
+            int to = bounds.length > 1 ? Integer.parseInt(bounds[1].trim()) : from;
+            for (int cpu = from; cpu <= to; cpu++) {
+                result.add(cpu);
+            }
+        }
+        return result;
+    }
+
+    List<Integer> getCpus() {
+        return cpus;
+    }
+
+    int size() {
+        return cpus.size();
+    }
+
+    /**
+     * Splits the set into disjoint, equally sized parts. CPUs left over after an even split stay unused.
+     *
+     * @param parts number of parts
+     * @param size  CPUs per part
+     * @return disjoint CPU sets, or an empty list if the set is too small
+     */
+    List<CpuSet> split(int parts, int size) {
+        List<CpuSet> result = new ArrayList<>();
+        if (parts * size > cpus.size()) {
+            return result;
+        }
+        for (int i = 0; i < parts; i++) {
+            result.add(new CpuSet(cpus.subList(i * size, (i + 1) * size)));
+        }
+        return result;
+    }
+
+    /**
+     * Command prefix that pins a process to this set, if the platform supports it.
+     *
+     * @return {@code taskset} prefix, or an empty list when pinning is not available
+     */
+    List<String> pinningPrefix() {
+        if (!isTasksetAvailable()) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>();
+        result.add("taskset");
+        result.add("-c");
+        result.add(toString());
+        return result;
+    }
+
+    static boolean isTasksetAvailable() {
+        String path = System.getenv("PATH");
+        if (path == null || !System.getProperty("os.name", "").toLowerCase().contains("linux")) {
+            return false;
+        }
+        for (String dir : path.split(File.pathSeparator)) {
+            if (new File(dir, "taskset").canExecute()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (Integer cpu : cpus) {
+            if (result.length() > 0) {
+                result.append(',');
+            }
+            result.append(cpu);
+        }
+        return result.toString();
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.github.erizo.gradle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Helpers for editing jcstress harness command lines.
+ */
+final class HarnessArguments {
+
+    private HarnessArguments() {
+    }
+
+    /**
+     * Returns the value of the last occurrence of an option, as the harness would see it.
+     *
+     * @param args    harness arguments
+     * @param option  option name, e.g. {@code -t}
+     * @return option value or {@code null} when not present
+     */
+    static String valueOf(List<String> args, String option) {
+        String result = null;
+        for (int i = 0; i < args.size() - 1; i++) {
+            if (option.equals(args.get(i))) {
+                result = args.get(i + 1);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes options that take a value, together with their values.
+     *
+     * @param args    harness arguments
+     * @param options option names to remove
+     * @return a copy of the arguments without the given options
+     */
+    static List<String> without(List<String> args, String... options) {
+        List<String> removed = Arrays.asList(options);
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++) {
+            if (removed.contains(args.get(i)) && i + 1 < args.size()) {
+                i++;
+            } else {
+                result.add(args.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces an option that takes a value.
+     *
+     * @param args   harness arguments
+     * @param option option name
+     * @param value  new value, {@code null} removes the option
+     * @return a copy of the arguments with the option replaced
+     */
+    static List<String> with(List<String> args, String option, String value) {
+        List<String> result = without(args, option);
+        JcstressPluginExtension.addParameter(result, option, value);
+        return result;
+    }
+
+    /**
+     * Appends to the value of an option that takes a space separated list, e.g. {@code -jvmArgsPrepend}.
+     *
+     * @param args   harness arguments
+     * @param option option name
+     * @param value  value to append, {@code null} leaves the arguments unchanged
+     * @return a copy of the arguments with the value appended
+     */
+    static List<String> appendTo(List<String> args, String option, String value) {
+        if (value == null) {
+            return new ArrayList<>(args);
+        }
+        String current = valueOf(args, option);
+        return with(args, option, current != null ? current + " " + value : value);
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.github.erizo.gradle;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One run of the jcstress harness over a subset of the test suite. Runs of the same shard share its CPUs and run one
+ * after another.
+ */
+class HarnessInvocation {
+
+    private final String name;
+    private final String shard;
+    private final List<String> tests;
+    private final List<String> args;
+    private final List<String> commandPrefix;
+    private final File workingDir;
+    private final File reportDir;
+
+    HarnessInvocation(String name, List<String> tests, List<String> args, List<String> commandPrefix, File workingDir, File reportDir) {
+        this(name, name, tests, args, commandPrefix, workingDir, reportDir);
+    }
+
+    HarnessInvocation(String name, String shard, List<String> tests, List<String> args, List<String> commandPrefix, File workingDir,
+                      File reportDir) {
+        this.name = name;
+        this.shard = shard;
+        this.tests = Collections.unmodifiableList(new ArrayList<>(tests));
+        this.args = Collections.unmodifiableList(new ArrayList<>(args));
+        this.commandPrefix = Collections.unmodifiableList(new ArrayList<>(commandPrefix));
+        this.workingDir = workingDir;
+        this.reportDir = reportDir;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return name of the shard the run belongs to
+     */
+    String getShard() {
+        return shard;
+    }
+
+    List<String> getTests() {
+        return tests;
+    }
+
+    List<String> getArgs() {
+        return args;
+    }
+
+    List<String> getCommandPrefix() {
+        return commandPrefix;
+    }
+
+    File getWorkingDir() {
+        return workingDir;
+    }
+
+    File getReportDir() {
+        return reportDir;
+    }
+
+}
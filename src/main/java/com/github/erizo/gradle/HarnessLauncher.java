@@ -0,0 +1,184 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.GradleException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Starts the jcstress harness as a child process, outside of {@link org.gradle.api.tasks.JavaExec}, so that
+ * several harness JVMs can run side by side and be pinned to CPUs.
+ * <p>
+ * Running harnesses can be {@link #cancel() cancelled}: the harness and its forks are asked to terminate, and are
+ * killed if they are still alive after a grace period. Runs started after cancellation do not start a harness.
+ */
+class HarnessLauncher {
+
+    static final String MAIN_CLASS = "org.openjdk.jcstress.Main";
+
+    /**
+     * Exit value of a run that was cancelled before its harness was started.
+     */
+    static final int CANCELLED = -1;
+
+    private static final long CANCEL_GRACE_SECONDS = 10;
+
+    private final String javaExecutable;
+    private final List<String> jvmArgs;
+    private final String classpath;
+    private final Map<String, Object> environment;
+    private final Set<Process> running = new LinkedHashSet<>();
+    private final Map<HarnessInvocation, Process> processes = new LinkedHashMap<>();
+    private boolean cancelled;
+    private List<String> commandPrefix = Collections.emptyList();
+
+    HarnessLauncher(String javaExecutable, List<String> jvmArgs, String classpath, Map<String, Object> environment) {
+        this.javaExecutable = javaExecutable;
+        this.jvmArgs = new ArrayList<>(jvmArgs);
+        this.classpath = classpath;
+        this.environment = environment;
+    }
+
+    /**
+     * Runs every harness, and with it its forks, on the given CPUs only. Shards pinned to CPUs of their own are
+     * pinned within the set.
+     */
+    void confineTo(CpuSet cpus) {
+        this.commandPrefix = cpus.pinningPrefix();
+    }
+
+    List<String> commandLine(HarnessInvocation invocation) {
+        List<String> result = new ArrayList<>(commandPrefix);
+        result.addAll(invocation.getCommandPrefix());
+        result.add(javaExecutable);
+        result.addAll(jvmArgs);
+        result.add(MAIN_CLASS);
+        result.addAll(invocation.getArgs());
+        return result;
+    }
+
+    /**
+     * Runs the harness and waits for it to finish.
+     *
+     * @param invocation harness run
+     * @param output     receives every line the harness prints, stdout and stderr combined
+     * @return harness exit value
+     */
+    int run(HarnessInvocation invocation, Consumer<String> output) {
+        invocation.getWorkingDir().mkdirs();
+        ProcessBuilder processBuilder = new ProcessBuilder(commandLine(invocation))
+                .directory(invocation.getWorkingDir())
+                .redirectErrorStream(true);
+        for (Map.Entry<String, Object> entry : environment.entrySet()) {
+            processBuilder.environment().put(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        // passed through the environment to stay clear of command line length limits
+        processBuilder.environment().put("CLASSPATH", classpath);
+
+        try {
+            Process process;
+            synchronized (running) {
+                if (cancelled) {
+                    return CANCELLED;
+                }
+                process = processBuilder.start();
+                running.add(process);
+                processes.put(invocation, process);
+            }
+            try {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), Charset.defaultCharset()))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        output.accept(line);
+                    }
+                } catch (IOException e) {
+                    // destroying the process closes its output
+                    if (!isCancelled()) {
+                        throw e;
+                    }
+                }
+                if (isCancelled() && !process.waitFor(CANCEL_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                    destroyForcibly(process);
+                }
+                return process.waitFor();
+            } finally {
+                synchronized (running) {
+                    running.remove(process);
+                    processes.remove(invocation);
+                }
+            }
+        } catch (IOException e) {
+            throw new GradleException("Failed to start jcstress harness for [" + invocation.getName() + "]", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while running jcstress harness for [" + invocation.getName() + "]", e);
+        }
+    }
+
+    /**
+     * Stops all running harnesses with their forks, and prevents new ones from starting.
+     */
+    void cancel() {
+        List<Process> processes;
+        synchronized (running) {
+            cancelled = true;
+            processes = new ArrayList<>(running);
+        }
+        for (Process process : processes) {
+            // forks first, so that the harness does not report their death as test errors
+            destroyDescendants(process, "destroy");
+            process.destroy();
+        }
+    }
+
+    /**
+     * @return harness processes running now, by run
+     */
+    Map<HarnessInvocation, Process> runningProcesses() {
+        synchronized (running) {
+            return new LinkedHashMap<>(processes);
+        }
+    }
+
+    boolean isCancelled() {
+        synchronized (running) {
+            return cancelled;
+        }
+    }
+
+    private static void destroyForcibly(Process process) {
+        destroyDescendants(process, "destroyForcibly");
+        process.destroyForcibly();
+    }
+
+    /**
+     * Process handles are only available on Java 9 and later. On Java 8 the forks are left to exit once the
+     * harness is gone.
+     */
+    private static void destroyDescendants(Process process, String destroyMethod) {
+        try {
+            Stream<?> descendants = (Stream<?>) Process.class.getMethod("descendants").invoke(process);
+            Method destroy = Class.forName("java.lang.ProcessHandle").getMethod(destroyMethod);
+            for (Iterator<?> iterator = descendants.iterator(); iterator.hasNext(); ) {
+                destroy.invoke(iterator.next());
+            }
+        } catch (ReflectiveOperationException e) {
+            // Java 8
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.github.erizo.gradle;
+
+/**
+ * Receives the console output of harness runs, line by line, while the harness is running.
+ * <p>
+ * Shards run concurrently, so implementations must be thread safe.
+ */
+interface HarnessOutputListener {
+
+    /**
+     * Called before the harness of the run is started.
+     */
+    default void started(HarnessInvocation invocation) {
+    }
+
+    void onLine(HarnessInvocation invocation, String line);
+
+    /**
+     * Called after the harness of the run has exited.
+     */
+    default void finished(HarnessInvocation invocation) {
+    }
+
+    static HarnessOutputListener of(HarnessOutputListener... listeners) {
+        return new HarnessOutputListener() {
+            @Override
+            public void started(HarnessInvocation invocation) {
+                for (HarnessOutputListener listener : listeners) {
+                    listener.started(invocation);
+                }
+            }
+
+            @Override
+            public void onLine(HarnessInvocation invocation, String line) {
+                for (HarnessOutputListener listener : listeners) {
+                    listener.onLine(invocation, line);
+                }
+            }
+
+            @Override
+            public void finished(HarnessInvocation invocation) {
+                for (HarnessOutputListener listener : listeners) {
+                    listener.finished(invocation);
+                }
+            }
+        };
+    }
+
+}
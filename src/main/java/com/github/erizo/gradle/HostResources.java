@@ -0,0 +1,198 @@
+package com.github.erizo.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * CPU and memory resources of the machine, or of the container the build runs in.
+ * <p>
+ * On Linux, the online CPUs and SMT siblings are read from {@code /sys/devices/system/cpu}, the CPU quota and
+ * memory limit from cgroup v2 ({@code cpu.max}, {@code memory.max}) or cgroup v1 ({@code cpu.cfs_quota_us},
+ * {@code memory.limit_in_bytes}), and available memory from {@code /proc/meminfo}. Values that cannot be read are
+ * left unknown.
+ */
+class HostResources {
+
+    /**
+     * cgroup v1 reports "no limit" as a huge, page-aligned number rather than a marker.
+     */
+    private static final long UNLIMITED_THRESHOLD = Long.MAX_VALUE / 2;
+
+    private final boolean linux;
+    private final int onlineCpus;
+    private final int threadsPerCore;
+    private final CpuSet allowedCpus;
+    private final Double cpuQuota;
+    private final Long memoryLimit;
+    private final Long memoryAvailable;
+
+    HostResources(boolean linux, int onlineCpus, int threadsPerCore, CpuSet allowedCpus, Double cpuQuota, Long memoryLimit,
+                  Long memoryAvailable) {
+        this.linux = linux;
+        this.onlineCpus = onlineCpus;
+        this.threadsPerCore = threadsPerCore;
+        this.allowedCpus = allowedCpus;
+        this.cpuQuota = cpuQuota;
+        this.memoryLimit = memoryLimit;
+        this.memoryAvailable = memoryAvailable;
+    }
+
+    static HostResources read() {
+        return read(new File("/"));
+    }
+
+    /**
+     * @param root file system root, {@code /} outside of tests
+     * @return resources found under the root
+     */
+    static HostResources read(File root) {
+        CpuSet allowed = CpuSet.allowed(new File(root, "proc/self/status"));
+
+        String online = readFirstLine(new File(root, "sys/devices/system/cpu/online"));
+        int onlineCpus = online != null ? CpuSet.parseList(online).size() : allowed.size();
+        String siblings = readFirstLine(new File(root, "sys/devices/system/cpu/cpu" + allowed.getCpus().get(0) + "/topology/thread_siblings_list"));
+        int threadsPerCore = siblings != null ? Math.max(1, CpuSet.parseList(siblings).size()) : 1;
+
+        File cgroup = cgroupV2Dir(root);
+        Double cpuQuota;
+        Long memoryLimit;
+        if (cgroup != null) {
+            cpuQuota = parseCpuMax(readFirstLine(new File(cgroup, "cpu.max")));
+            memoryLimit = parseLimit(readFirstLine(new File(cgroup, "memory.max")));
+        } else {
+            cpuQuota = parseCfsQuota(
+                    readFirstLine(firstExisting(root, "sys/fs/cgroup/cpu/cpu.cfs_quota_us", "sys/fs/cgroup/cpu,cpuacct/cpu.cfs_quota_us")),
+                    readFirstLine(firstExisting(root, "sys/fs/cgroup/cpu/cpu.cfs_period_us", "sys/fs/cgroup/cpu,cpuacct/cpu.cfs_period_us")));
+            memoryLimit = parseLimit(readFirstLine(new File(root, "sys/fs/cgroup/memory/memory.limit_in_bytes")));
+        }
+        return new HostResources(online != null, onlineCpus, threadsPerCore, allowed, cpuQuota, memoryLimit,
+                readMemAvailable(new File(root, "proc/meminfo")));
+    }
+
+    /**
+     * The cgroup v2 directory of this process: the one named in {@code /proc/self/cgroup}, or the root of the
+     * hierarchy, which is what a container usually sees.
+     */
+    private static File cgroupV2Dir(File root) {
+        File mount = new File(root, "sys/fs/cgroup");
+        if (!new File(mount, "cgroup.controllers").isFile()) {
+            return null;
+        }
+        String membership = readFirstLine(new File(root, "proc/self/cgroup"));
+        if (membership != null && membership.startsWith("0::")) {
+            File own = new File(mount, membership.substring("0::".length()));
+            if (new File(own, "cpu.max").isFile() || new File(own, "memory.max").isFile()) {
+                return own;
+            }
+        }
+        return mount;
+    }
+
+    static Double parseCpuMax(String cpuMax) {
+        if (cpuMax == null) {
+            return null;
+        }
+        String[] parts = cpuMax.trim().split("\\s+");
+        if (parts.length != 2 || "max".equals(parts[0])) {
+            return null;
+        }
+        return Double.parseDouble(parts[0]) / Double.parseDouble(parts[1]);
+    }
+
+    static Double parseCfsQuota(String quota, String period) {
+        if (quota == null || period == null || Long.parseLong(quota.trim()) <= 0) {
+            return null;
+        }
+        return Double.parseDouble(quota.trim()) / Double.parseDouble(period.trim());
+    }
+
+    static Long parseLimit(String limit) {
+        if (limit == null || "max".equals(limit.trim())) {
+            return null;
+        }
+        long value = Long.parseLong(limit.trim());
+        return value >= UNLIMITED_THRESHOLD ? null : value;
+    }
+
+    private static Long readMemAvailable(File meminfo) {
+        if (!meminfo.isFile()) {
+            return null;
+        }
+        try {
+            for (String line : Files.readAllLines(meminfo.toPath(), StandardCharsets.UTF_8)) {
+                if (line.startsWith("MemAvailable:")) {
+                    return Long.parseLong(line.substring("MemAvailable:".length()).replace("kB", "").trim()) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // unknown
+        }
+        return null;
+    }
+
+    private static File firstExisting(File root, String... paths) {
+        for (String path : paths) {
+            File file = new File(root, path);
+            if (file.isFile()) {
+                return file;
+            }
+        }
+        return new File(root, paths[0]);
+    }
+
+    private static String readFirstLine(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            return lines.isEmpty() ? null : lines.get(0);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the Linux CPU topology could be read, and with it whether thread affinity is available
+     */
+    boolean isLinux() {
+        return linux;
+    }
+
+    int getOnlineCpus() {
+        return onlineCpus;
+    }
+
+    int getThreadsPerCore() {
+        return threadsPerCore;
+    }
+
+    CpuSet getAllowedCpus() {
+        return allowedCpus;
+    }
+
+    /**
+     * @return CPU quota in CPUs, e.g. {@code 1.5}, or {@code null} if there is none
+     */
+    Double getCpuQuota() {
+        return cpuQuota;
+    }
+
+    /**
+     * @return memory limit in bytes, or {@code null} if there is none
+     */
+    Long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    /**
+     * @return memory available on the machine in bytes, or {@code null} if unknown
+     */
+    Long getMemoryAvailable() {
+        return memoryAvailable;
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.github.erizo.gradle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Replaces {@code auto} values of {@code cpuCount}, {@code heapPerFork} and {@code affinityMode} with values derived
+ * from the resources of the machine or container the build runs on.
+ * <ul>
+ * <li>{@code cpuCount}: the CPUs the build may run on, reduced to the cgroup CPU quota, if there is one.</li>
+ * <li>{@code affinityMode}: {@code LOCAL} on Linux, {@code NONE} elsewhere or under a CPU quota, where pinned
+ * actors would be throttled rather than spread over the quota.</li>
+ * <li>{@code heapPerFork}: half of the memory, the lower of the cgroup limit and the available memory, divided
+ * between the forks that run at the same time, one per two CPUs, less the native footprint of a fork.</li>
+ * </ul>
+ */
+class JcstressAutoTuning {
+
+    static final String AUTO = "auto";
+
+    static final double MEMORY_SHARE = 0.5;
+
+    static final int FORK_OVERHEAD_MB = 96;
+
+    static final int MIN_HEAP_MB = 32;
+
+    static final int MAX_HEAP_MB = 1024;
+
+    private final HostResources host;
+    private final List<String> decisions = new ArrayList<>();
+
+    JcstressAutoTuning(HostResources host) {
+        this.host = host;
+    }
+
+    static boolean isRequested(List<String> harnessArgs) {
+        return AUTO.equals(HarnessArguments.valueOf(harnessArgs, "-c"))
+                || AUTO.equals(HarnessArguments.valueOf(harnessArgs, "-hs"))
+                || AUTO.equals(HarnessArguments.valueOf(harnessArgs, "-af"));
+    }
+
+    /**
+     * @param harnessArgs harness arguments, possibly with {@code auto} values
+     * @return harness arguments with {@code auto} values replaced; a value that cannot be derived is left to the
+     * harness default
+     */
+    List<String> apply(List<String> harnessArgs) {
+        List<String> result = harnessArgs;
+        String cpuCount = HarnessArguments.valueOf(harnessArgs, "-c");
+        int cpus;
+        if (AUTO.equals(cpuCount)) {
+            cpus = cpuCount();
+            result = HarnessArguments.with(result, "-c", Integer.toString(cpus));
+        } else {
+            cpus = cpuCount != null ? Integer.parseInt(cpuCount.trim()) : host.getAllowedCpus().size();
+        }
+        if (AUTO.equals(HarnessArguments.valueOf(harnessArgs, "-af"))) {
+            result = HarnessArguments.with(result, "-af", affinityMode());
+        }
+        if (AUTO.equals(HarnessArguments.valueOf(harnessArgs, "-hs"))) {
+            Integer heap = heapPerFork(cpus);
+            result = heap != null ? HarnessArguments.with(result, "-hs", heap.toString()) : HarnessArguments.without(result, "-hs");
+        }
+        return result;
+    }
+
+    private int cpuCount() {
+        int allowed = host.getAllowedCpus().size();
+        String reason = allowed + " of " + host.getOnlineCpus() + " online CPUs allowed"
+                + (host.getThreadsPerCore() > 1 ? ", " + host.getThreadsPerCore() + " hardware threads per core" : "");
+        int result = allowed;
+        if (host.getCpuQuota() != null && host.getCpuQuota() < allowed) {
+            result = Math.max(1, (int) Math.floor(host.getCpuQuota()));
+            reason += ", cgroup CPU quota of " + format(host.getCpuQuota()) + " CPUs";
+        }
+        decisions.add("cpuCount = " + result + ": " + reason);
+        return result;
+    }
+
+    private String affinityMode() {
+        String result;
+        String reason;
+        if (!host.isLinux()) {
+            result = "NONE";
+            reason = "thread affinity is only available on Linux";
+        } else if (host.getCpuQuota() != null && host.getCpuQuota() < host.getAllowedCpus().size()) {
+            result = "NONE";
+            reason = "cgroup CPU quota of " + format(host.getCpuQuota()) + " CPUs, pinned actors would be throttled";
+        } else {
+            result = "LOCAL";
+            reason = "no CPU quota, actors are pinned to CPUs";
+        }
+        decisions.add("affinityMode = " + result + ": " + reason);
+        return result;
+    }
+
+    private Integer heapPerFork(int cpus) {
+        Long memory = min(host.getMemoryLimit(), host.getMemoryAvailable());
+        if (memory == null) {
+            decisions.add("heapPerFork = harness default: memory size unknown");
+            return null;
+        }
+        int concurrentForks = Math.max(1, cpus / 2);
+        long perFork = (long) (memory * MEMORY_SHARE) / concurrentForks / (1024 * 1024) - FORK_OVERHEAD_MB;
+        int result = (int) Math.max(MIN_HEAP_MB, Math.min(MAX_HEAP_MB, perFork));
+        String source = host.getMemoryLimit() != null && memory.equals(host.getMemoryLimit()) ? "cgroup memory limit" : "available memory";
+        decisions.add("heapPerFork = " + result + " MB: " + source + " of " + memory / (1024 * 1024) + " MB, "
+                + concurrentForks + " concurrent forks" + (perFork < MIN_HEAP_MB ? ", below the minimum, forks may run out of memory" : ""));
+        return result;
+    }
+
+    private static Long min(Long a, Long b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null ? a : Math.min(a, b);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    /**
+     * @return chosen values with the reasons, one per tuned option
+     */
+    List<String> getDecisions() {
+        return decisions;
+    }
+
+}
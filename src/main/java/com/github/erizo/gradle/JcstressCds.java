@@ -0,0 +1,173 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.GradleException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Class data sharing of the harness and its forks: the class list of a training run, the archive dumped from it,
+ * and the start script lines that use the archive.
+ * <p>
+ * The classes loaded by the training run are logged with {@code -Xlog:class+load}, one line per class:
+ * {@code [0.011s][info][class,load] java.lang.Object source: shared objects file}. Hidden and generated classes,
+ * e.g. lambda forms and reflection accessors, cannot be archived and are left out. An archive is only used by a JVM
+ * with the classpath it was dumped with, so the classpath must consist of jars.
+ */
+class JcstressCds {
+
+    private static final Pattern CLASS_LOAD = Pattern.compile(".*\\[class,load\\s*]\\s+(\\S+)\\s+source:\\s*(.*)");
+
+    private JcstressCds() {
+    }
+
+    /**
+     * @param file log file, may contain {@code %p} for the process id
+     * @return JVM option that logs loaded classes to the file
+     */
+    static String classLoadLogOption(String file) {
+        return "-Xlog:class+load=info:file=" + file;
+    }
+
+    static String archiveOption(File archive) {
+        return "-XX:SharedArchiveFile=" + archive.getAbsolutePath();
+    }
+
+    /**
+     * @param line line of a class loading log
+     * @return class name in the class list format, e.g. {@code java/lang/Object}, or {@code null} if the line does
+     * not log a class that can be archived
+     */
+    static String parseClassName(String line) {
+        Matcher matcher = CLASS_LOAD.matcher(line);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String name = matcher.group(1);
+        String source = matcher.group(2);
+        if (name.contains("/") || name.contains("$$Lambda") || source.startsWith("__")) {
+            return null;
+        }
+        return name.replace('.', '/');
+    }
+
+    /**
+     * @param logs class loading logs of the harness and its forks
+     * @return every class loaded by any of them, sorted
+     */
+    static List<String> readClassList(Collection<File> logs) {
+        Set<String> classes = new TreeSet<>();
+        for (File log : logs) {
+            try {
+                for (String line : Files.readAllLines(log.toPath(), StandardCharsets.UTF_8)) {
+                    String name = parseClassName(line);
+                    if (name != null) {
+                        classes.add(name);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read class loading log [" + log + "]", e);
+            }
+        }
+        return new ArrayList<>(classes);
+    }
+
+    static void writeClassList(List<String> classes, File file) {
+        try {
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            Files.write(file.toPath(), classes, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write class list [" + file + "]", e);
+        }
+    }
+
+    /**
+     * Dumps an archive of the listed classes.
+     *
+     * @param javaExecutable java of the JVM that is going to use the archive
+     * @param classpath      classpath of the JVM that is going to use the archive
+     * @param classList      class list of a training run
+     * @param archive        archive to write
+     * @param log            output of the dump
+     */
+    static void dump(String javaExecutable, String classpath, File classList, File archive, File log) {
+        archive.getAbsoluteFile().getParentFile().mkdirs();
+        ProcessBuilder processBuilder = new ProcessBuilder(Arrays.asList(javaExecutable, "-Xshare:dump",
+                "-XX:SharedClassListFile=" + classList.getAbsolutePath(), archiveOption(archive)))
+                .redirectErrorStream(true)
+                .redirectOutput(log);
+        // the archive records the classpath of the dump, which the JVM sees the same way as in HarnessLauncher
+        processBuilder.environment().put("CLASSPATH", classpath);
+        try {
+            int exitValue = processBuilder.start().waitFor();
+            if (exitValue != 0 || !archive.isFile()) {
+                throw new GradleException("Failed to dump class data sharing archive [" + archive + "], exit value " + exitValue
+                        + ", see " + log + ". Class data sharing of application classes needs Java 11 or newer.");
+            }
+        } catch (IOException e) {
+            throw new GradleException("Failed to start " + javaExecutable + " to dump class data sharing archive [" + archive + "]", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while dumping class data sharing archive [" + archive + "]", e);
+        }
+    }
+
+    /**
+     * Adds the archive to the default JVM options of a start script generated by Gradle. The line is added after both
+     * the default JVM options and the installation directory are set, which happens in either order depending on the
+     * Gradle version.
+     *
+     * @param script      unix start script
+     * @param archiveName file name of the archive in the {@code lib} directory of the installation
+     * @return the script using the archive
+     */
+    static String addToUnixScript(String script, String archiveName) {
+        return insertAfter(script, Pattern.compile("^(DEFAULT_JVM_OPTS|APP_HOME)="), "DEFAULT_JVM_OPTS",
+                "DEFAULT_JVM_OPTS=\"$DEFAULT_JVM_OPTS \"'\"-XX:SharedArchiveFile='\"$APP_HOME\"'/lib/" + archiveName + "\"'");
+    }
+
+    /**
+     * @param script      windows start script
+     * @param archiveName file name of the archive in the {@code lib} directory of the installation
+     * @return the script using the archive
+     */
+    static String addToWindowsScript(String script, String archiveName) {
+        return insertAfter(script, Pattern.compile("^set (DEFAULT_JVM_OPTS|APP_HOME)="), "DEFAULT_JVM_OPTS",
+                "set DEFAULT_JVM_OPTS=%DEFAULT_JVM_OPTS% \"-XX:SharedArchiveFile=%APP_HOME%\\lib\\" + archiveName + "\"");
+    }
+
+    /**
+     * Inserts a line after the last line matching the anchor, provided that one of the matching lines sets the
+     * required variable.
+     */
+    private static String insertAfter(String script, Pattern anchor, String required, String insertedLine) {
+        String separator = script.contains("\r\n") ? "\r\n" : "\n";
+        List<String> lines = new ArrayList<>(Arrays.asList(script.split("\r?\n", -1)));
+        int last = -1;
+        boolean found = false;
+        for (int i = 0; i < lines.size(); i++) {
+            Matcher matcher = anchor.matcher(lines.get(i));
+            if (matcher.find()) {
+                last = i;
+                found |= matcher.group(1).equals(required);
+            }
+        }
+        if (!found) {
+            throw new GradleException("Cannot find " + required + " in the jcstress start script.");
+        }
+        lines.add(last + 1, insertedLine);
+        return String.join(separator, lines);
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+
+/**
+ * Class data sharing archive of the harness and its forks, configured in the {@code cds} block of the
+ * {@code jcstress} extension.
+ */
+public class JcstressCdsOptions {
+
+    private final Property<Boolean> enabled;
+    private final Property<Integer> trainingTests;
+
+    public JcstressCdsOptions(ObjectFactory objects) {
+        this.enabled = objects.property(Boolean.class).convention(false);
+        this.trainingTests = objects.property(Integer.class).convention(3);
+    }
+
+    /**
+     * Build an archive of the classes loaded by a training run, and start the harness and its forks with it. Needs
+     * Java 11 or newer.
+     */
+    public boolean getEnabled() {
+        return enabled.get();
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled.set(enabled);
+    }
+
+    /**
+     * Tests run in sanity mode by the training run, the first ones of the test list.
+     */
+    public int getTrainingTests() {
+        return trainingTests.get();
+    }
+
+    public void setTrainingTests(int trainingTests) {
+        this.trainingTests.set(trainingTests);
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds a class data sharing archive for the jcstress classpath, so that the harness and every fork map the classes
+ * they load from the archive instead of loading them from the jars.
+ * <p>
+ * A training run of a few tests in sanity mode logs the classes loaded by the harness and its forks, and the archive
+ * is dumped from that list. The classpath, the JVM and its options are the inputs of the task, so the archive is
+ * only rebuilt when one of them changes.
+ */
+public class JcstressCdsTask extends DefaultTask {
+
+    private final ConfigurableFileCollection classpath;
+
+    private final Property<String> javaExecutable;
+
+    private final Property<String> javaRuntimeVersion;
+
+    private final ListProperty<String> jvmArgs;
+
+    private final ConfigurableFileCollection testIndexDirs;
+
+    private final Property<Integer> trainingTests;
+
+    private final RegularFileProperty classListFile;
+
+    private final RegularFileProperty archiveFile;
+
+    public JcstressCdsTask() {
+        ObjectFactory objects = getProject().getObjects();
+        this.classpath = objects.fileCollection();
+        this.javaExecutable = objects.property(String.class);
+        this.javaRuntimeVersion = objects.property(String.class);
+        this.jvmArgs = objects.listProperty(String.class);
+        this.testIndexDirs = objects.fileCollection();
+        this.trainingTests = objects.property(Integer.class).convention(3);
+        this.classListFile = objects.fileProperty();
+        this.archiveFile = objects.fileProperty();
+    }
+
+    /**
+     * Classpath of the harness, jars only.
+     */
+    @Classpath
+    public ConfigurableFileCollection getClasspath() {
+        return classpath;
+    }
+
+    @Internal
+    public Property<String> getJavaExecutable() {
+        return javaExecutable;
+    }
+
+    /**
+     * Version of the JVM the archive is for. An archive is only used by the JVM build that dumped it.
+     */
+    @Input
+    public Property<String> getJavaRuntimeVersion() {
+        return javaRuntimeVersion;
+    }
+
+    /**
+     * JVM options of the harness in the training run.
+     */
+    @Input
+    public ListProperty<String> getJvmArgs() {
+        return jvmArgs;
+    }
+
+    /**
+     * Directories holding the test list the training tests are taken from. The list is also part of the classpath.
+     */
+    @Internal
+    public ConfigurableFileCollection getTestIndexDirs() {
+        return testIndexDirs;
+    }
+
+    @Input
+    public Property<Integer> getTrainingTests() {
+        return trainingTests;
+    }
+
+    @OutputFile
+    public RegularFileProperty getClassListFile() {
+        return classListFile;
+    }
+
+    @OutputFile
+    public RegularFileProperty getArchiveFile() {
+        return archiveFile;
+    }
+
+    @TaskAction
+    public void createArchive() {
+        for (File file : classpath) {
+            if (file.isDirectory()) {
+                throw new GradleException("A class data sharing archive needs a classpath of jars, [" + file + "] is a directory.");
+            }
+        }
+        File trainingDir = getTemporaryDir();
+        File[] previousLogs = trainingDir.listFiles((dir, name) -> name.endsWith(".log"));
+        for (File log : previousLogs != null ? previousLogs : new File[0]) {
+            log.delete();
+        }
+
+        List<String> tests = JcstressTestIndex.read(testIndexDirs).getTests();
+        tests = tests.subList(0, Math.min(tests.size(), Math.max(0, trainingTests.get())));
+        List<String> args = new ArrayList<>();
+        if (tests.isEmpty()) {
+            getLogger().warn("No jcstress tests to train on, the archive only holds the classes of the harness.");
+            args.add("-l");
+        } else {
+            args.addAll(Arrays.asList("-m", "sanity", "-f", "1", "-t", JcstressTestIndex.exactRegexp(tests)));
+        }
+        // forks are started in the working directory of the harness, and split the option at spaces
+        args.addAll(Arrays.asList("-r", new File(trainingDir, "report").getAbsolutePath(),
+                "-jvmArgsPrepend", JcstressCds.classLoadLogOption("fork-%p.log")));
+
+        List<String> harnessJvmArgs = new ArrayList<>(jvmArgs.get());
+        harnessJvmArgs.add(JcstressCds.classLoadLogOption("harness-%p.log"));
+        HarnessLauncher launcher = new HarnessLauncher(javaExecutable.get(), harnessJvmArgs, classpath.getAsPath(),
+                Collections.<String, Object>emptyMap());
+        getLogger().lifecycle("Training class data sharing on {} jcstress tests.", tests.size());
+        int exitValue = launcher.run(new HarnessInvocation(getName(), tests, args, Collections.<String>emptyList(), trainingDir,
+                new File(trainingDir, "report")), line -> getLogger().info(line));
+        if (exitValue != 0) {
+            getLogger().warn("jcstress training run finished with exit value {}, using the classes it loaded.", exitValue);
+        }
+
+        File[] logs = trainingDir.listFiles((dir, name) -> name.endsWith(".log"));
+        List<String> classes = JcstressCds.readClassList(logs != null ? Arrays.asList(logs) : Collections.<File>emptyList());
+        if (classes.isEmpty()) {
+            throw new GradleException("The jcstress training run did not log any loaded classes. Class data sharing of "
+                    + "application classes needs Java 11 or newer.");
+        }
+        File classList = classListFile.get().getAsFile();
+        JcstressCds.writeClassList(classes, classList);
+        File archive = archiveFile.get().getAsFile();
+        JcstressCds.dump(javaExecutable.get(), classpath.getAsPath(), classList, archive, new File(trainingDir, "dump.txt"));
+        getLogger().lifecycle("Archived {} classes in {}.", classes.size(), archive);
+    }
+
+}
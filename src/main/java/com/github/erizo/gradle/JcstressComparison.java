@@ -0,0 +1,211 @@
+package com.github.erizo.gradle;
+
+import groovy.json.JsonOutput;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Side-by-side comparison of the results of several runs of the same tests, e.g. on different JDKs or with
+ * different JVM flags.
+ * <p>
+ * For every test, the comparison shows the status and the normalized sample throughput of each run, the throughput
+ * relative to the first run, the outcomes observed in each run, and which runs saw interesting or forbidden
+ * outcomes.
+ */
+class JcstressComparison {
+
+    static final String FILE_NAME = "jcstress-comparison.json";
+
+    private final Map<String, JcstressResults> runs;
+
+    /**
+     * @param runs results of every run, by run name, in the order they should be shown
+     */
+    JcstressComparison(Map<String, JcstressResults> runs) {
+        this.runs = runs;
+    }
+
+    static boolean isInteresting(JcstressTestResult.Outcome outcome) {
+        return outcome.getSamples() > 0
+                && ("ACCEPTABLE_INTERESTING".equals(outcome.getExpectation()) || "FORBIDDEN".equals(outcome.getExpectation()));
+    }
+
+    Set<String> testNames() {
+        Set<String> result = new TreeSet<>();
+        for (JcstressResults results : runs.values()) {
+            for (JcstressTestResult test : results.getTests()) {
+                result.add(test.getName());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return throughput of the test in the run, in percent of its throughput in the first run, or {@code null} if
+     * either run collected no samples of the test
+     */
+    Double relativeThroughput(String run, String test) {
+        Double reference = throughput(runs.keySet().iterator().next(), test);
+        Double current = throughput(run, test);
+        if (reference == null || current == null || reference == 0) {
+            return null;
+        }
+        return current / reference * 100;
+    }
+
+    private Double throughput(String run, String test) {
+        JcstressResults results = runs.get(run);
+        JcstressTestResult result = results.get(test);
+        return result != null ? JcstressThroughputGate.throughput(results, result) : null;
+    }
+
+    /**
+     * @return names of the runs in which the test had interesting or forbidden outcomes
+     */
+    List<String> runsWithInterestingOutcomes(String test) {
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, JcstressResults> run : runs.entrySet()) {
+            JcstressTestResult testResult = run.getValue().get(test);
+            if (testResult != null && testResult.getOutcomes().stream().anyMatch(JcstressComparison::isInteresting)) {
+                result.add(run.getKey());
+            }
+        }
+        return result;
+    }
+
+    void write(File reportDir) {
+        reportDir.mkdirs();
+        writeJson(new File(reportDir, FILE_NAME));
+        writeHtml(new File(reportDir, "index.html"));
+    }
+
+    private void writeJson(File file) {
+        List<Map<String, Object>> tests = new ArrayList<>();
+        for (String test : testNames()) {
+            Map<String, Object> testMap = new LinkedHashMap<>();
+            testMap.put("name", test);
+            Map<String, Object> runMaps = new LinkedHashMap<>();
+            for (String run : runs.keySet()) {
+                JcstressTestResult result = runs.get(run).get(test);
+                Map<String, Object> runMap = new LinkedHashMap<>();
+                runMap.put("status", result != null ? result.getStatus() : null);
+                runMap.put("samples", result != null ? result.getSamples() : null);
+                runMap.put("throughput", throughput(run, test));
+                runMap.put("relativeThroughput", relativeThroughput(run, test));
+                Map<String, Long> outcomes = new LinkedHashMap<>();
+                if (result != null) {
+                    for (JcstressTestResult.Outcome outcome : result.getOutcomes()) {
+                        if (isInteresting(outcome)) {
+                            outcomes.put(outcome.getState(), outcome.getSamples());
+                        }
+                    }
+                }
+                runMap.put("interestingOutcomes", outcomes);
+                runMaps.put(run, runMap);
+            }
+            testMap.put("runs", runMaps);
+            tests.add(testMap);
+        }
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("runs", new ArrayList<>(runs.keySet()));
+        root.put("tests", tests);
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(JsonOutput.prettyPrint(JsonOutput.toJson(root)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write jcstress comparison [" + file + "]", e);
+        }
+    }
+
+    private void writeHtml(File index) {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(index.toPath(), StandardCharsets.UTF_8))) {
+            out.println("<!DOCTYPE html>");
+            out.println("<html><head><meta charset=\"UTF-8\"><title>jcstress comparison</title></head><body>");
+            out.println("<h1>jcstress comparison</h1>");
+            out.println("<p>Throughput is the number of samples per fork and per second of iteration time, relative to "
+                    + escape(runs.keySet().iterator().next()) + ".</p>");
+            out.println("<table border=\"1\" cellspacing=\"0\" cellpadding=\"3\">");
+            out.print("<tr><th>Test</th>");
+            for (String run : runs.keySet()) {
+                out.print("<th>" + escape(run) + "</th>");
+            }
+            out.println("<th>Interesting outcomes in</th></tr>");
+            for (String test : testNames()) {
+                out.print("<tr><td><a href=\"#" + escape(test) + "\">" + escape(test) + "</a></td>");
+                for (String run : runs.keySet()) {
+                    JcstressTestResult result = runs.get(run).get(test);
+                    Double relative = relativeThroughput(run, test);
+                    out.print("<td>" + (result != null && result.getStatus() != null ? escape(result.getStatus()) : "-")
+                            + (relative != null ? String.format(Locale.ROOT, ", %.0f%%", relative) : "") + "</td>");
+                }
+                out.println("<td>" + escape(String.join(", ", runsWithInterestingOutcomes(test))) + "</td></tr>");
+            }
+            out.println("</table>");
+            for (String test : testNames()) {
+                writeOutcomes(out, test);
+            }
+            out.println("</body></html>");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write jcstress comparison [" + index + "]", e);
+        }
+    }
+
+    private void writeOutcomes(PrintWriter out, String test) {
+        Map<String, JcstressTestResult.Outcome> states = new LinkedHashMap<>();
+        for (JcstressResults results : runs.values()) {
+            JcstressTestResult result = results.get(test);
+            if (result != null) {
+                for (JcstressTestResult.Outcome outcome : result.getOutcomes()) {
+                    states.putIfAbsent(outcome.getState(), outcome);
+                }
+            }
+        }
+        out.println("<h2 id=\"" + escape(test) + "\">" + escape(test) + "</h2>");
+        if (states.isEmpty()) {
+            out.println("<p>No outcomes were reported. Outcomes of passed tests are only reported with verbose = true.</p>");
+            return;
+        }
+        out.println("<table border=\"1\" cellspacing=\"0\" cellpadding=\"3\">");
+        out.print("<tr><th>Observed state</th><th>Expectation</th>");
+        for (String run : runs.keySet()) {
+            out.print("<th>" + escape(run) + "</th>");
+        }
+        out.println("</tr>");
+        for (JcstressTestResult.Outcome state : states.values()) {
+            out.print("<tr><td>" + escape(state.getState()) + "</td><td>" + escape(String.valueOf(state.getExpectation())) + "</td>");
+            for (String run : runs.keySet()) {
+                out.print("<td>" + samplesOf(runs.get(run).get(test), state.getState()) + "</td>");
+            }
+            out.println("</tr>");
+        }
+        out.println("</table>");
+    }
+
+    private static String samplesOf(JcstressTestResult result, String state) {
+        if (result != null) {
+            for (JcstressTestResult.Outcome outcome : result.getOutcomes()) {
+                if (outcome.getState().equals(state)) {
+                    return String.format(Locale.ROOT, "%,d", outcome.getSamples());
+                }
+            }
+        }
+        return "-";
+    }
+
+    private static String escape(String text) {
+        return JcstressReportMerger.escape(text);
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes a side-by-side report of several jcstress runs of the same tests, from the results file of each run.
+ * A run without a results file is shown as not run.
+ */
+public class JcstressComparisonReportTask extends DefaultTask {
+
+    private final MapProperty<String, RegularFile> runs;
+
+    private final ConfigurableFileCollection resultsFiles;
+
+    private final DirectoryProperty reportDirectory;
+
+    public JcstressComparisonReportTask() {
+        this.runs = getProject().getObjects().mapProperty(String.class, RegularFile.class);
+        this.resultsFiles = getProject().getObjects().fileCollection().from(runs.map(Map::values));
+        this.reportDirectory = getProject().getObjects().directoryProperty();
+    }
+
+    /**
+     * {@value JcstressResults#FILE_NAME} of every run, by run name. The first run is the reference for throughput.
+     */
+    @Internal
+    public MapProperty<String, RegularFile> getRuns() {
+        return runs;
+    }
+
+    @InputFiles
+    public FileCollection getResultsFiles() {
+        return resultsFiles;
+    }
+
+    @OutputDirectory
+    public DirectoryProperty getReportDirectory() {
+        return reportDirectory;
+    }
+
+    @TaskAction
+    public void writeReport() {
+        if (runs.get().isEmpty()) {
+            throw new GradleException("No jcstress runs to compare.");
+        }
+        Map<String, JcstressResults> results = new LinkedHashMap<>();
+        for (Map.Entry<String, RegularFile> run : runs.get().entrySet()) {
+            results.put(run.getKey(), JcstressResults.read(run.getValue().getAsFile()));
+        }
+        File reportDir = reportDirectory.get().getAsFile();
+        new JcstressComparison(results).write(reportDir);
+        getLogger().lifecycle("jcstress comparison of {}: {}", results.keySet(), new File(reportDir, "index.html").toURI());
+    }
+
+}
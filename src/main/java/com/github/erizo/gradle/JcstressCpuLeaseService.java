@@ -0,0 +1,71 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.Project;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.util.List;
+
+/**
+ * The CPU pool of a build, shared by the jcstress tasks of all projects. Build services are available from
+ * Gradle 6.1, tasks refer to the pool through {@link JcstressCpuLeases} so that this class is only loaded there.
+ */
+public abstract class JcstressCpuLeaseService implements BuildService<JcstressCpuLeaseService.Params>, JcstressCpuLeases {
+
+    static final String NAME = "jcstressCpuLeases";
+
+    /**
+     * Gradle property limiting the pool to the first CPUs the build may run on.
+     */
+    static final String CPUS_PROPERTY = "jcstress.leaseCpus";
+
+    private JcstressCpuPool pool;
+
+    public interface Params extends BuildServiceParameters {
+
+        /**
+         * CPUs in the pool, all CPUs the build may run on when not set.
+         */
+        Property<Integer> getCpus();
+
+    }
+
+    /**
+     * Registers the pool once per build. The first project that registers it decides its size.
+     */
+    static Provider<JcstressCpuLeaseService> register(Project project) {
+        Object cpus = project.findProperty(CPUS_PROPERTY);
+        return project.getGradle().getSharedServices().registerIfAbsent(NAME, JcstressCpuLeaseService.class, spec -> {
+            if (cpus != null) {
+                spec.getParameters().getCpus().set(Integer.valueOf(cpus.toString().trim()));
+            }
+        });
+    }
+
+    private synchronized JcstressCpuPool pool() {
+        if (pool == null) {
+            CpuSet allowed = CpuSet.allowed();
+            int size = Math.max(1, Math.min(allowed.size(), getParameters().getCpus().getOrElse(allowed.size())));
+            pool = new JcstressCpuPool(new CpuSet(allowed.getCpus().subList(0, size)));
+        }
+        return pool;
+    }
+
+    @Override
+    public JcstressCpuPool.Lease tryAcquire(String owner, int cpus) {
+        return pool().tryAcquire(owner, cpus);
+    }
+
+    @Override
+    public JcstressCpuPool.Lease acquire(String owner, int cpus) throws InterruptedException {
+        return pool().acquire(owner, cpus);
+    }
+
+    @Override
+    public List<String> holders() {
+        return pool().holders();
+    }
+
+}
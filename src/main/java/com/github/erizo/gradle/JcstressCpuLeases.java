@@ -0,0 +1,34 @@
+package com.github.erizo.gradle;
+
+import java.util.List;
+
+/**
+ * Hands out CPUs to jcstress tasks, so that tasks running at the same time, in one project or in several, do not
+ * stress the same CPUs.
+ */
+interface JcstressCpuLeases {
+
+    /**
+     * Leases CPUs if they are free and no other task is waiting.
+     *
+     * @param owner task the CPUs are leased to
+     * @param cpus  CPUs requested, at most the size of the pool is leased
+     * @return the lease, or {@code null} if the task would have to wait
+     */
+    JcstressCpuPool.Lease tryAcquire(String owner, int cpus);
+
+    /**
+     * Leases CPUs, waiting until they are free. Tasks are served in the order they asked.
+     *
+     * @param owner task the CPUs are leased to
+     * @param cpus  CPUs requested, at most the size of the pool is leased
+     * @return the lease
+     */
+    JcstressCpuPool.Lease acquire(String owner, int cpus) throws InterruptedException;
+
+    /**
+     * @return tasks holding a lease, with their CPUs
+     */
+    List<String> holders();
+
+}
@@ -0,0 +1,103 @@
+package com.github.erizo.gradle;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A fixed set of CPUs leased to one task at a time each. Waiting tasks are served first come, first served, so a
+ * task asking for many CPUs is not overtaken forever by tasks asking for a few.
+ */
+class JcstressCpuPool implements JcstressCpuLeases {
+
+    private final int size;
+    private final TreeSet<Integer> free;
+    private final LinkedList<Object> waiting = new LinkedList<>();
+    private final Map<Lease, String> leases = new LinkedHashMap<>();
+
+    JcstressCpuPool(CpuSet cpus) {
+        this.size = cpus.size();
+        this.free = new TreeSet<>(cpus.getCpus());
+    }
+
+    @Override
+    public synchronized Lease tryAcquire(String owner, int cpus) {
+        int count = count(cpus);
+        return waiting.isEmpty() && free.size() >= count ? take(owner, count) : null;
+    }
+
+    @Override
+    public synchronized Lease acquire(String owner, int cpus) throws InterruptedException {
+        int count = count(cpus);
+        Object ticket = new Object();
+        waiting.add(ticket);
+        try {
+            while (waiting.getFirst() != ticket || free.size() < count) {
+                wait();
+            }
+            return take(owner, count);
+        } finally {
+            waiting.remove(ticket);
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized List<String> holders() {
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<Lease, String> entry : leases.entrySet()) {
+            result.add(entry.getValue() + " (CPUs " + entry.getKey().getCpus() + ")");
+        }
+        return result;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int count(int cpus) {
+        return Math.max(1, Math.min(cpus, size));
+    }
+
+    private Lease take(String owner, int count) {
+        List<Integer> cpus = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            cpus.add(free.pollFirst());
+        }
+        Lease lease = new Lease(new CpuSet(cpus));
+        leases.put(lease, owner);
+        return lease;
+    }
+
+    private synchronized void release(Lease lease) {
+        if (leases.remove(lease) != null) {
+            free.addAll(lease.getCpus().getCpus());
+            notifyAll();
+        }
+    }
+
+    /**
+     * CPUs leased to a task until it releases them.
+     */
+    class Lease {
+
+        private final CpuSet cpus;
+
+        private Lease(CpuSet cpus) {
+            this.cpus = cpus;
+        }
+
+        CpuSet getCpus() {
+            return cpus;
+        }
+
+        void release() {
+            JcstressCpuPool.this.release(this);
+        }
+
+    }
+
+}
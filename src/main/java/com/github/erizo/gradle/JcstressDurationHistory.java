@@ -0,0 +1,120 @@
+package com.github.erizo.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Remembers how long earlier runs took.
+ * <p>
+ * The harness runs forks of different tests at the same time and does not print how long a test took, so only the
+ * wall time of a whole run is known. A run of {@code n} tests with {@code f} forks each, split into {@code s} shards,
+ * gives each shard at most {@code ceil(n / s) * f} forks, each with the iteration time, {@code time * iterations}, plus
+ * {@value #FORK_OVERHEAD_MILLIS} ms to start its JVM. The history stores the wall time of a run per millisecond of
+ * that nominal fork time, averaged over runs: it is below 1 when the harness runs forks side by side, and above 1
+ * with several JVM configurations per fork.
+ */
+class JcstressDurationHistory {
+
+    /**
+     * Time to start a fork JVM and load the test, estimated.
+     */
+    static final long FORK_OVERHEAD_MILLIS = 500;
+
+    /**
+     * Weight of the latest run in the average.
+     */
+    private static final double WEIGHT = 0.5;
+
+    private static final String FACTOR = "wallTimeFactor";
+
+    private final File file;
+    private final Properties properties = new Properties();
+
+    private JcstressDurationHistory(File file) {
+        this.file = file;
+    }
+
+    static JcstressDurationHistory load(File file) {
+        JcstressDurationHistory result = new JcstressDurationHistory(file);
+        if (file.isFile()) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                result.properties.load(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read jcstress duration history [" + file + "]", e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param tests  tests of the run
+     * @param shards shards of the run
+     * @param forks  forks of every test
+     * @return forks of the shard with the most tests
+     */
+    static int forksOfBusiestShard(int tests, int shards, int forks) {
+        int shardCount = Math.max(1, Math.min(shards, tests));
+        return (tests + shardCount - 1) / shardCount * forks;
+    }
+
+    /**
+     * @param tests           tests of the run
+     * @param shards          shards of the run
+     * @param forks           forks of every test
+     * @param iterationMillis time of all iterations of a fork
+     * @return time of the forks of the busiest shard, if they ran one after another
+     */
+    static double nominalMillis(int tests, int shards, int forks, double iterationMillis) {
+        return forksOfBusiestShard(tests, shards, forks) * (FORK_OVERHEAD_MILLIS + iterationMillis);
+    }
+
+    /**
+     * @return wall time of a run per millisecond of its {@link #nominalMillis nominal time}, or {@code null} if no run
+     * was recorded
+     */
+    Double factor() {
+        String value = properties.getProperty(FACTOR);
+        return value != null ? Double.valueOf(value.trim()) : null;
+    }
+
+    /**
+     * Records the wall time of a run. Runs without explicit {@code timeMillis} and {@code iterations} are skipped,
+     * because their iteration time is not known.
+     *
+     * @param tests       tests of the run
+     * @param shards      shards of the run
+     * @param harnessArgs harness arguments of the run
+     * @param wallMillis  wall time of the run
+     */
+    void record(int tests, int shards, List<String> harnessArgs, long wallMillis) {
+        String timeMillis = HarnessArguments.valueOf(harnessArgs, "-time");
+        String iterations = HarnessArguments.valueOf(harnessArgs, "-iters");
+        if (tests == 0 || timeMillis == null || iterations == null) {
+            return;
+        }
+        String forks = HarnessArguments.valueOf(harnessArgs, "-f");
+        double iterationMillis = Double.parseDouble(timeMillis.trim()) * Double.parseDouble(iterations.trim());
+        double factor = wallMillis / nominalMillis(tests, shards, forks != null ? Integer.parseInt(forks.trim()) : 1, iterationMillis);
+        Double previous = factor();
+        if (previous != null) {
+            factor = WEIGHT * factor + (1 - WEIGHT) * previous;
+        }
+        properties.setProperty(FACTOR, Double.toString(factor));
+    }
+
+    void save() {
+        file.getParentFile().mkdirs();
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            properties.store(out, "jcstress run durations: wall time per millisecond of nominal fork time");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write jcstress duration history [" + file + "]", e);
+        }
+    }
+
+}
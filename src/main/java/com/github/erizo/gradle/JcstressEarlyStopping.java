@@ -0,0 +1,110 @@
+package com.github.erizo.gradle;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decides, fork by fork, when the outcome distribution of a test has converged.
+ * <p>
+ * The harness cannot be told to end an iteration early, so the unit of stopping is a fork: forks are run in rounds of
+ * one fork per test, and a test takes part in the next round until it has converged. A test has converged when it
+ * ran at least the minimum number of forks, all of them passed, none observed a forbidden outcome, and the outcome
+ * frequencies of its last fork differ from those of all earlier forks by at most the tolerance, measured as total
+ * variation distance: half the sum of the absolute differences of the frequencies of every outcome.
+ */
+class JcstressEarlyStopping {
+
+    private final double tolerance;
+    private final int minForks;
+    private final Map<String, TestState> tests = new HashMap<>();
+
+    /**
+     * @param tolerance largest total variation distance, between 0 and 1, between the last fork and the earlier ones
+     * @param minForks  forks every test runs before it can stop
+     */
+    JcstressEarlyStopping(double tolerance, int minForks) {
+        this.tolerance = tolerance;
+        this.minForks = Math.max(2, minForks);
+    }
+
+    /**
+     * Adds the results of one fork of a test.
+     *
+     * @param test name of the test
+     * @param fork results of the fork, or {@code null} if the fork did not report
+     * @return whether the test has converged
+     */
+    boolean addFork(String test, JcstressTestResult fork) {
+        TestState state = tests.computeIfAbsent(test, key -> new TestState());
+        state.forks++;
+        if (fork == null || !JcstressIncrementalState.PASSED.equals(fork.getStatus()) || fork.getSamples() == 0) {
+            state.unstable = true;
+            return false;
+        }
+        Map<String, Long> samples = new LinkedHashMap<>();
+        for (JcstressTestResult.Outcome outcome : fork.getOutcomes()) {
+            if (outcome.getSamples() > 0 && "FORBIDDEN".equals(outcome.getExpectation())) {
+                state.unstable = true;
+            }
+            samples.merge(outcome.getState(), outcome.getSamples(), Long::sum);
+        }
+        double distance = state.samples.isEmpty() ? 1 : distance(state.samples, samples);
+        for (Map.Entry<String, Long> entry : samples.entrySet()) {
+            state.samples.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
+        state.lastDistance = distance;
+        return !state.unstable && state.forks >= minForks && distance <= tolerance;
+    }
+
+    /**
+     * @return total variation distance between the last fork of the test and its earlier forks, or {@code null}
+     * if the test has fewer than two reported forks
+     */
+    Double lastDistance(String test) {
+        TestState state = tests.get(test);
+        return state != null && state.lastDistance < 1 ? state.lastDistance : null;
+    }
+
+    /**
+     * @return total variation distance between two outcome distributions, from 0 for equal frequencies to 1 for
+     * distributions without common outcomes
+     */
+    static double distance(Map<String, Long> first, Map<String, Long> second) {
+        double firstTotal = total(first);
+        double secondTotal = total(second);
+        if (firstTotal == 0 || secondTotal == 0) {
+            return 1;
+        }
+        Map<String, Double> differences = new HashMap<>();
+        for (Map.Entry<String, Long> entry : first.entrySet()) {
+            differences.merge(entry.getKey(), entry.getValue() / firstTotal, Double::sum);
+        }
+        for (Map.Entry<String, Long> entry : second.entrySet()) {
+            differences.merge(entry.getKey(), -entry.getValue() / secondTotal, Double::sum);
+        }
+        double sum = 0;
+        for (double difference : differences.values()) {
+            sum += Math.abs(difference);
+        }
+        return sum / 2;
+    }
+
+    private static double total(Map<String, Long> samples) {
+        double result = 0;
+        for (long value : samples.values()) {
+            result += value;
+        }
+        return result;
+    }
+
+    private static class TestState {
+
+        private int forks;
+        private boolean unstable;
+        private double lastDistance = 1;
+        private final Map<String, Long> samples = new HashMap<>();
+
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+
+/**
+ * Early stopping of tests whose outcome distribution has converged, configured in the {@code earlyStopping} block of
+ * the {@code jcstress} extension.
+ */
+public class JcstressEarlyStoppingOptions {
+
+    private final Property<Boolean> enabled;
+    private final Property<Double> tolerance;
+    private final Property<Integer> minForks;
+
+    public JcstressEarlyStoppingOptions(ObjectFactory objects) {
+        this.enabled = objects.property(Boolean.class).convention(false);
+        this.tolerance = objects.property(Double.class).convention(0.05);
+        this.minForks = objects.property(Integer.class).convention(2);
+    }
+
+    /**
+     * Run forks in rounds and stop tests that have converged. Needs {@code forks} of 2 or more.
+     */
+    public boolean getEnabled() {
+        return enabled.get();
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled.set(enabled);
+    }
+
+    /**
+     * Largest total variation distance, between 0 and 1, between the outcome frequencies of the last fork and those
+     * of the earlier forks of a converged test.
+     */
+    public double getTolerance() {
+        return tolerance.get();
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance.set(tolerance);
+    }
+
+    /**
+     * Forks every test runs before it can stop, at least 2.
+     */
+    public int getMinForks() {
+        return minForks.get();
+    }
+
+    public void setMinForks(int minForks) {
+        this.minForks.set(minForks);
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.github.erizo.gradle;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+
+/**
+ * Stops a run on the first test that fails or errors.
+ * <p>
+ * A failed test is reported with a {@code [FAILED] test} line followed by its outcomes; the first outcome with a
+ * {@code FORBIDDEN} expectation and a non-zero sample count is the offending one. A failed test without such an
+ * outcome is reported once its table ends. A test whose status contains {@code ERROR} is reported at once. The
+ * summary after {@code RUN RESULTS} repeats earlier results and is ignored.
+ */
+class JcstressFailFast implements HarnessOutputListener {
+
+    private final Runnable stop;
+    private final AtomicReference<String> failure = new AtomicReference<>();
+    private final Map<HarnessInvocation, RunState> runs = new ConcurrentHashMap<>();
+
+    /**
+     * @param stop stops all runs, called once, on the first failure
+     */
+    JcstressFailFast(Runnable stop) {
+        this.stop = stop;
+    }
+
+    /**
+     * @return offending test and outcome, or {@code null} if no test failed
+     */
+    String getFailure() {
+        return failure.get();
+    }
+
+    @Override
+    public void onLine(HarnessInvocation invocation, String line) {
+        RunState run = runs.computeIfAbsent(invocation, key -> new RunState());
+        if (run.completed || failure.get() != null) {
+            return;
+        }
+        if (line.startsWith(JcstressStatusCollector.RUN_RESULTS)) {
+            reportPending(run);
+            run.completed = true;
+            return;
+        }
+
+        Matcher result = JcstressResultParser.RESULT_LINE.matcher(line);
+        if (result.matches()) {
+            reportPending(run);
+            String status = result.group(1);
+            run.current = result.group(2);
+            run.inTable = false;
+            if (status.contains("ERROR")) {
+                fail(run.current + ": " + status);
+            } else if (status.equals("FAILED")) {
+                run.failedTest = run.current;
+            }
+            return;
+        }
+        if (run.current == null) {
+            return;
+        }
+        if (JcstressResultParser.TABLE_HEADER.matcher(line).matches()) {
+            run.inTable = true;
+            return;
+        }
+        if (run.inTable) {
+            Matcher row = JcstressResultParser.TABLE_ROW.matcher(line);
+            if (row.matches()) {
+                long samples = Long.parseLong(row.group(2).replace(",", ""));
+                if (samples > 0 && row.group(3).toUpperCase(Locale.ROOT).equals("FORBIDDEN")) {
+                    run.failedTest = null;
+                    fail(run.current + ": FORBIDDEN outcome [" + row.group(1).trim() + "], "
+                            + String.format(Locale.ROOT, "%,d", samples) + " samples");
+                }
+            } else if (line.trim().isEmpty()) {
+                run.inTable = false;
+                reportPending(run);
+            }
+        }
+    }
+
+    @Override
+    public void finished(HarnessInvocation invocation) {
+        RunState run = runs.get(invocation);
+        if (run != null && failure.get() == null) {
+            reportPending(run);
+        }
+    }
+
+    private void reportPending(RunState run) {
+        if (run.failedTest != null) {
+            String test = run.failedTest;
+            run.failedTest = null;
+            fail(test + ": FAILED");
+        }
+    }
+
+    private void fail(String message) {
+        if (failure.compareAndSet(null, message)) {
+            stop.run();
+        }
+    }
+
+    private static class RunState {
+
+        private String current;
+        private String failedTest;
+        private boolean inTable;
+        private boolean completed;
+
+    }
+
+}
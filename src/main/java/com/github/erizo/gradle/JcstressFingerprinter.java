@@ -0,0 +1,144 @@
+package com.github.erizo.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Computes a fingerprint of a jcstress test: its bytecode, the code generated for it, and every project class
+ * reachable from it through bytecode references.
+ * <p>
+ * Classes outside of the given directories (the JDK, jcstress, external dependencies) are not followed; those are
+ * covered by the run configuration fingerprint.
+ */
+class JcstressFingerprinter {
+
+    private final Map<String, File> classFiles = new HashMap<>();
+    private final Map<String, Set<String>> references = new HashMap<>();
+    private final Map<String, String> hashes = new HashMap<>();
+
+    JcstressFingerprinter(Iterable<File> classesDirs) {
+        for (File classesDir : classesDirs) {
+            if (classesDir.isDirectory()) {
+                indexClasses(classesDir.toPath());
+            }
+        }
+    }
+
+    private void indexClasses(Path root) {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    String path = root.relativize(file).toString();
+                    if (path.endsWith(".class")) {
+                        String className = path.substring(0, path.length() - ".class".length()).replace(File.separatorChar, '.');
+                        if (!classFiles.containsKey(className)) {
+                            classFiles.put(className, file.toFile());
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to index classes in [" + root + "]", e);
+        }
+    }
+
+    /**
+     * @param testName jcstress test class name
+     * @return fingerprint, or {@code null} if the test class cannot be found
+     */
+    String fingerprint(String testName) {
+        if (!classFiles.containsKey(testName)) {
+            return null;
+        }
+        Set<String> reachable = new TreeSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add(testName);
+        for (String className : classFiles.keySet()) {
+            if (className.startsWith(testName + "$") || className.startsWith(testName + "_")) {
+                pending.add(className);
+            }
+        }
+        while (!pending.isEmpty()) {
+            String className = pending.poll();
+            if (classFiles.containsKey(className) && reachable.add(className)) {
+                pending.addAll(referencesOf(className));
+            }
+        }
+
+        MessageDigest digest = newDigest();
+        for (String className : reachable) {
+            digest.update(className.getBytes(StandardCharsets.UTF_8));
+            digest.update(hashOf(className).getBytes(StandardCharsets.UTF_8));
+        }
+        return toHex(digest.digest());
+    }
+
+    private Set<String> referencesOf(String className) {
+        Set<String> result = references.get(className);
+        if (result == null) {
+            try {
+                result = ClassReferences.read(Files.readAllBytes(classFiles.get(className).toPath()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read class file [" + classFiles.get(className) + "]", e);
+            }
+            references.put(className, result);
+        }
+        return result;
+    }
+
+    private String hashOf(String className) {
+        String result = hashes.get(className);
+        if (result == null) {
+            try {
+                result = toHex(newDigest().digest(Files.readAllBytes(classFiles.get(className).toPath())));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read class file [" + classFiles.get(className) + "]", e);
+            }
+            hashes.put(className, result);
+        }
+        return result;
+    }
+
+    static String hash(Iterable<String> values) {
+        MessageDigest digest = newDigest();
+        for (String value : values) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : bytes) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.github.erizo.gradle;
+
+import org.gradle.internal.logging.progress.ProgressLogger;
+import org.gradle.internal.logging.progress.ProgressLoggerFactory;
+
+import javax.inject.Inject;
+
+/**
+ * Shows the status in the Gradle console, through the internal progress logging of Gradle.
+ */
+public abstract class JcstressGradleProgressLogger implements JcstressProgressLogger {
+
+    private ProgressLogger progressLogger;
+
+    @Inject
+    protected abstract ProgressLoggerFactory getProgressLoggerFactory();
+
+    JcstressGradleProgressLogger start(String description) {
+        progressLogger = getProgressLoggerFactory().newOperation(JcstressTask.class);
+        progressLogger.start(description, null);
+        return this;
+    }
+
+    @Override
+    public void progress(String status) {
+        progressLogger.progress(status);
+    }
+
+    @Override
+    public void completed() {
+        progressLogger.completed();
+    }
+
+}
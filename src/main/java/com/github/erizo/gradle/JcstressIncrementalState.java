@@ -0,0 +1,72 @@
+package com.github.erizo.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * Remembers, per test, the fingerprint it was last run with and whether it passed.
+ */
+class JcstressIncrementalState {
+
+    static final String PASSED = "OK";
+
+    private static final String CONFIGURATION_KEY = "@configuration";
+
+    private final File file;
+    private final Properties properties = new Properties();
+
+    private JcstressIncrementalState(File file) {
+        this.file = file;
+    }
+
+    static JcstressIncrementalState load(File file) {
+        JcstressIncrementalState result = new JcstressIncrementalState(file);
+        if (file.isFile()) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                result.properties.load(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read jcstress incremental state [" + file + "]", e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forgets all tests if the run configuration differs from the one the state was recorded with.
+     *
+     * @param configuration fingerprint of harness arguments, JVM arguments and classpath
+     */
+    void useConfiguration(String configuration) {
+        if (!configuration.equals(properties.getProperty(CONFIGURATION_KEY))) {
+            properties.clear();
+            properties.setProperty(CONFIGURATION_KEY, configuration);
+        }
+    }
+
+    boolean isUpToDate(String test, String fingerprint) {
+        return fingerprint != null && (fingerprint + " " + PASSED).equals(properties.getProperty(test));
+    }
+
+    void record(String test, String fingerprint, String status) {
+        if (fingerprint == null || status == null) {
+            properties.remove(test);
+        } else {
+            properties.setProperty(test, fingerprint + " " + status);
+        }
+    }
+
+    void save() {
+        file.getParentFile().mkdirs();
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            properties.store(out, "jcstress incremental state");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write jcstress incremental state [" + file + "]", e);
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.github.erizo.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Records every fork with Java Flight Recorder.
+ * <p>
+ * All forks of a harness run get the same JVM options, so a fixed recording file name would be overwritten by every
+ * fork. Instead, every test runs in its own harness run with its own working directory, and forks dump their
+ * recordings there under JFR's generated, unique names. When the run finishes, the recordings are moved to the
+ * report directory and named after the test and fork, in the order they were written.
+ */
+class JcstressJfrProfiler implements HarnessOutputListener {
+
+    static final String DIRECTORY = "jfr";
+
+    private final String settings;
+    private final File recordingsDir;
+
+    JcstressJfrProfiler(String settings, File reportDir) {
+        this.settings = settings;
+        this.recordingsDir = new File(reportDir, DIRECTORY);
+    }
+
+    String jvmOption() {
+        return "-XX:StartFlightRecording=dumponexit=true,settings=" + settings;
+    }
+
+    /**
+     * Splits shards into one harness run per test, with the recording option added to the fork JVM options.
+     *
+     * @param shards planned shards
+     * @return runs of every shard, to be run one after another
+     */
+    List<List<HarnessInvocation>> perTest(List<HarnessInvocation> shards) {
+        List<List<HarnessInvocation>> result = new ArrayList<>();
+        for (List<HarnessInvocation> parts : JcstressShardExecutor.byShard(shards)) {
+            List<HarnessInvocation> runs = new ArrayList<>();
+            for (HarnessInvocation shard : parts) {
+                addRuns(shard, runs);
+            }
+            result.add(runs);
+        }
+        return result;
+    }
+
+    private void addRuns(HarnessInvocation shard, List<HarnessInvocation> runs) {
+        List<String> args = HarnessArguments.appendTo(shard.getArgs(), "-jvmArgsPrepend", jvmOption());
+        for (String test : shard.getTests()) {
+            File reportDir = new File(shard.getReportDir(), test);
+            List<String> testArgs = HarnessArguments.with(args, "-t", JcstressTestIndex.exactRegexp(Collections.singletonList(test)));
+            testArgs = HarnessArguments.with(testArgs, "-r", reportDir.getAbsolutePath());
+            runs.add(new HarnessInvocation(shard.getName() + " " + test, shard.getShard(), Collections.singletonList(test), testArgs,
+                    shard.getCommandPrefix(), new File(new File(shard.getWorkingDir(), DIRECTORY), test), reportDir));
+        }
+    }
+
+    @Override
+    public void started(HarnessInvocation invocation) {
+        File[] stale = recordingsOf(invocation.getWorkingDir());
+        for (File recording : stale) {
+            recording.delete();
+        }
+    }
+
+    @Override
+    public void onLine(HarnessInvocation invocation, String line) {
+    }
+
+    /**
+     * Moves the recordings of a finished run to the report directory.
+     */
+    @Override
+    public void finished(HarnessInvocation invocation) {
+        if (invocation.getTests().size() != 1) {
+            return;
+        }
+        String test = invocation.getTests().get(0);
+        recordingsDir.mkdirs();
+        for (File previous : recordingsDir.listFiles((dir, name) -> name.startsWith(test + "-fork-") && name.endsWith(".jfr"))) {
+            previous.delete();
+        }
+        List<File> recordings = new ArrayList<>(Arrays.asList(recordingsOf(invocation.getWorkingDir())));
+        recordings.sort(Comparator.comparingLong(File::lastModified).thenComparing(File::getName));
+        for (int i = 0; i < recordings.size(); i++) {
+            File target = new File(recordingsDir, test + "-fork-" + (i + 1) + ".jfr");
+            try {
+                Files.move(recordings.get(i).toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to move JFR recording [" + recordings.get(i) + "]", e);
+            }
+        }
+    }
+
+    private static File[] recordingsOf(File directory) {
+        File[] result = directory.listFiles((dir, name) -> name.endsWith(".jfr"));
+        return result != null ? result : new File[0];
+    }
+
+}
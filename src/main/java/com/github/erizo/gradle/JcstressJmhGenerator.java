@@ -0,0 +1,316 @@
+package com.github.erizo.gradle;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates a JMH benchmark from the actors of a jcstress test.
+ * <p>
+ * Every {@code @Actor} method becomes a benchmark method of one JMH group, run by a thread of its own, so the actors
+ * contend for the same state as they do in the jcstress test. The test instance and the {@code @State} objects the
+ * actors take are shared by the group and created again for every iteration; {@code @Result} objects belong to the
+ * thread of an actor. Arbiters observe the state after the actors have finished, which has no counterpart in a
+ * benchmark, and are left out.
+ * <p>
+ * Annotations are recognized by name, so that the plugin does not depend on jcstress.
+ */
+class JcstressJmhGenerator {
+
+    /**
+     * Suffix of the generated benchmark class, appended to the simple name of the test.
+     */
+    static final String CLASS_SUFFIX = "_JmhBenchmark";
+
+    /**
+     * Name of the JMH group of every benchmark, the last part of the benchmark name.
+     */
+    static final String GROUP = "actors";
+
+    private static final String ACTOR = "org.openjdk.jcstress.annotations.Actor";
+    private static final String STATE = "org.openjdk.jcstress.annotations.State";
+    private static final String RESULT = "org.openjdk.jcstress.annotations.Result";
+
+    private JcstressJmhGenerator() {
+    }
+
+    /**
+     * Describes the benchmark of a test class.
+     *
+     * @param test compiled test class
+     * @return benchmark of the actors of the test
+     * @throws IllegalArgumentException if the test cannot be benchmarked, e.g. it has no actors or cannot be
+     *                                  instantiated from its package
+     */
+    static Benchmark describe(Class<?> test) {
+        if (test.getCanonicalName() == null || !isAccessible(test)) {
+            throw new IllegalArgumentException("the test class is not accessible from its package");
+        }
+        List<Method> actorMethods = new ArrayList<>();
+        for (Method method : test.getDeclaredMethods()) {
+            if (hasAnnotation(method, ACTOR)) {
+                actorMethods.add(method);
+            }
+        }
+        if (actorMethods.isEmpty()) {
+            throw new IllegalArgumentException("the test has no actors");
+        }
+        actorMethods.sort(Comparator.comparing(Method::getName));
+
+        boolean needsInstance = false;
+        Map<String, String> states = new LinkedHashMap<>();
+        Map<String, String> results = new LinkedHashMap<>();
+        List<Actor> actors = new ArrayList<>();
+        for (Method method : actorMethods) {
+            if (Modifier.isPrivate(method.getModifiers())) {
+                throw new IllegalArgumentException("actor " + method.getName() + " is private");
+            }
+            needsInstance |= !Modifier.isStatic(method.getModifiers());
+            List<String> arguments = new ArrayList<>();
+            for (Class<?> parameter : method.getParameterTypes()) {
+                String type = parameter.getCanonicalName();
+                if (type == null || !isAccessible(parameter)) {
+                    throw new IllegalArgumentException("actor " + method.getName() + " takes an inaccessible " + parameter.getName());
+                } else if (hasAnnotation(parameter, RESULT)) {
+                    arguments.add("results." + fieldOf(results, type, "result"));
+                } else if (hasAnnotation(parameter, STATE)) {
+                    requireConstructor(parameter);
+                    arguments.add(fieldOf(states, type, "state"));
+                } else {
+                    throw new IllegalArgumentException("actor " + method.getName() + " takes " + type
+                            + ", which is neither a state nor a result");
+                }
+            }
+            actors.add(new Actor(method.getName(), Modifier.isStatic(method.getModifiers()), arguments));
+        }
+        if (needsInstance) {
+            requireConstructor(test);
+        }
+        String packageName = test.getPackage() != null ? test.getPackage().getName() : "";
+        String simpleName = packageName.isEmpty() ? test.getName() : test.getName().substring(packageName.length() + 1);
+        return new Benchmark(test.getName(), packageName, simpleName.replace('$', '_') + CLASS_SUFFIX,
+                test.getCanonicalName(), needsInstance, states, results, actors);
+    }
+
+    /**
+     * @return source of the benchmark class
+     */
+    static String source(Benchmark benchmark) {
+        StringBuilder out = new StringBuilder();
+        if (!benchmark.getPackageName().isEmpty()) {
+            out.append("package ").append(benchmark.getPackageName()).append(";\n\n");
+        }
+        out.append("import org.openjdk.jmh.annotations.Benchmark;\n")
+                .append("import org.openjdk.jmh.annotations.Group;\n")
+                .append("import org.openjdk.jmh.annotations.GroupThreads;\n")
+                .append("import org.openjdk.jmh.annotations.Level;\n")
+                .append("import org.openjdk.jmh.annotations.Scope;\n")
+                .append("import org.openjdk.jmh.annotations.Setup;\n")
+                .append("import org.openjdk.jmh.annotations.State;\n\n")
+                .append("/**\n * Actors of ").append(benchmark.getTest()).append(" under contention, generated by the jcstress plugin.\n */\n")
+                .append("@State(Scope.Group)\n")
+                .append("public class ").append(benchmark.getClassName()).append(" {\n\n");
+        if (benchmark.isInstanceNeeded()) {
+            out.append("    private ").append(benchmark.getTestType()).append(" test;\n\n");
+        }
+        for (Map.Entry<String, String> state : benchmark.getStates().entrySet()) {
+            out.append("    private ").append(state.getKey()).append(' ').append(state.getValue()).append(";\n\n");
+        }
+        out.append("    @Setup(Level.Iteration)\n")
+                .append("    public void setUp() {\n");
+        if (benchmark.isInstanceNeeded()) {
+            out.append("        test = new ").append(benchmark.getTestType()).append("();\n");
+        }
+        for (Map.Entry<String, String> state : benchmark.getStates().entrySet()) {
+            out.append("        ").append(state.getValue()).append(" = new ").append(state.getKey()).append("();\n");
+        }
+        out.append("    }\n\n");
+
+        out.append("    @State(Scope.Thread)\n")
+                .append("    public static class Results {\n");
+        for (Map.Entry<String, String> result : benchmark.getResults().entrySet()) {
+            out.append("        ").append(result.getKey()).append(' ').append(result.getValue())
+                    .append(" = new ").append(result.getKey()).append("();\n");
+        }
+        out.append("    }\n");
+
+        for (Actor actor : benchmark.getActors()) {
+            out.append("\n    @Benchmark\n")
+                    .append("    @Group(\"").append(GROUP).append("\")\n")
+                    .append("    @GroupThreads(1)\n")
+                    .append("    public void ").append(actor.getName()).append("(Results results) {\n")
+                    .append("        ").append(actor.isStatic() ? benchmark.getTestType() : "test")
+                    .append('.').append(actor.getName()).append('(').append(String.join(", ", actor.getArguments())).append(");\n")
+                    .append("    }\n");
+        }
+        out.append("\n}\n");
+        return out.toString();
+    }
+
+    /**
+     * @return field of the type, added if the type has none yet
+     */
+    private static String fieldOf(Map<String, String> fields, String type, String prefix) {
+        return fields.computeIfAbsent(type, key -> prefix + fields.size());
+    }
+
+    private static boolean hasAnnotation(AnnotatedElement element, String name) {
+        for (Annotation annotation : element.getAnnotations()) {
+            if (annotation.annotationType().getName().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether code in the package of the class can refer to it
+     */
+    private static boolean isAccessible(Class<?> type) {
+        for (Class<?> current = type; current != null; current = current.getEnclosingClass()) {
+            if (Modifier.isPrivate(current.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void requireConstructor(Class<?> type) {
+        if (type.isMemberClass() && !Modifier.isStatic(type.getModifiers())) {
+            throw new IllegalArgumentException(type.getName() + " is an inner class");
+        }
+        if (Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalArgumentException(type.getName() + " is abstract");
+        }
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if (constructor.getParameterCount() == 0 && !Modifier.isPrivate(constructor.getModifiers())) {
+                return;
+            }
+        }
+        throw new IllegalArgumentException(type.getName() + " has no accessible constructor without arguments");
+    }
+
+    /**
+     * Benchmark of the actors of one test.
+     */
+    static final class Benchmark {
+
+        private final String test;
+        private final String packageName;
+        private final String className;
+        private final String testType;
+        private final boolean instanceNeeded;
+        private final Map<String, String> states;
+        private final Map<String, String> results;
+        private final List<Actor> actors;
+
+        /**
+         * @param test           test name
+         * @param packageName    package of the test and the benchmark
+         * @param className      simple name of the benchmark class
+         * @param testType       test class as referred to in source code
+         * @param instanceNeeded whether the actors are instance methods of the test
+         * @param states         field names of the states the actors take, by type
+         * @param results        field names of the results the actors take, by type
+         * @param actors         actors of the test
+         */
+        Benchmark(String test, String packageName, String className, String testType, boolean instanceNeeded,
+                  Map<String, String> states, Map<String, String> results, List<Actor> actors) {
+            this.test = test;
+            this.packageName = packageName;
+            this.className = className;
+            this.testType = testType;
+            this.instanceNeeded = instanceNeeded;
+            this.states = states;
+            this.results = results;
+            this.actors = actors;
+        }
+
+        String getTest() {
+            return test;
+        }
+
+        String getPackageName() {
+            return packageName;
+        }
+
+        String getClassName() {
+            return className;
+        }
+
+        /**
+         * @return binary name of the benchmark class
+         */
+        String getQualifiedClassName() {
+            return packageName.isEmpty() ? className : packageName + "." + className;
+        }
+
+        String getTestType() {
+            return testType;
+        }
+
+        boolean isInstanceNeeded() {
+            return instanceNeeded;
+        }
+
+        Map<String, String> getStates() {
+            return states;
+        }
+
+        Map<String, String> getResults() {
+            return results;
+        }
+
+        List<Actor> getActors() {
+            return actors;
+        }
+
+    }
+
+    /**
+     * Actor method of a test.
+     */
+    static final class Actor {
+
+        private final String name;
+        private final boolean isStatic;
+        private final List<String> arguments;
+
+        /**
+         * @param name      method name
+         * @param isStatic  whether the method is static
+         * @param arguments expressions passed to the method
+         */
+        Actor(String name, boolean isStatic, List<String> arguments) {
+            this.name = name;
+            this.isStatic = isStatic;
+            this.arguments = arguments;
+        }
+
+        Actor(String name, String... arguments) {
+            this(name, false, Arrays.asList(arguments));
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isStatic() {
+            return isStatic;
+        }
+
+        List<String> getArguments() {
+            return arguments;
+        }
+
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * JMH benchmarks generated from the actors of the jcstress tests, configured in the {@code jmh} block of the
+ * {@code jcstress} extension.
+ */
+public class JcstressJmhOptions {
+
+    public static final String JMH_DEFAULT_VERSION = "1.37";
+
+    private final Property<Boolean> enabled;
+    private final Property<String> jmhVersion;
+    private final ListProperty<String> options;
+    private final List<Runnable> enabledActions = new ArrayList<>();
+
+    public JcstressJmhOptions(ObjectFactory objects) {
+        this.enabled = objects.property(Boolean.class).convention(false);
+        this.jmhVersion = objects.property(String.class).convention(JMH_DEFAULT_VERSION);
+        this.options = objects.listProperty(String.class).convention(Arrays.asList("-f", "1", "-wi", "3", "-w", "1s", "-i", "5", "-r", "1s"));
+    }
+
+    /**
+     * Add the {@code jcstressJmh} source set and tasks. They are added as soon as this is set, and stay once added.
+     */
+    public boolean getEnabled() {
+        return enabled.get();
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled.set(enabled);
+        if (enabled) {
+            List<Runnable> actions = new ArrayList<>(enabledActions);
+            enabledActions.clear();
+            for (Runnable action : actions) {
+                action.run();
+            }
+        }
+    }
+
+    public String getJmhVersion() {
+        return jmhVersion.get();
+    }
+
+    public void setJmhVersion(String jmhVersion) {
+        this.jmhVersion.set(jmhVersion);
+    }
+
+    /**
+     * JMH command line options, e.g. {@code ['-f', '1', '-i', '5']}.
+     */
+    public List<String> getOptions() {
+        return options.get();
+    }
+
+    public void setOptions(List<String> options) {
+        this.options.set(options);
+    }
+
+    /**
+     * Runs the action once, when benchmarks are enabled, or right away if they already are. The source set cannot be
+     * added lazily, so the plugin adds it from here instead of reading the flag later.
+     */
+    void whenEnabled(Runnable action) {
+        if (getEnabled()) {
+            action.run();
+        } else {
+            enabledActions.add(action);
+        }
+    }
+
+}
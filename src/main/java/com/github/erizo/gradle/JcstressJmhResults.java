@@ -0,0 +1,189 @@
+package com.github.erizo.gradle;
+
+import groovy.json.JsonOutput;
+import groovy.json.JsonSlurper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Throughput of the actors of jcstress tests, read from the JSON results of JMH.
+ * <p>
+ * The score of a benchmark group is the throughput of all its threads together; the secondary scores are those of
+ * the single actors. Results are written as {@value #FILE_NAME} and an {@code index.html} table.
+ */
+class JcstressJmhResults {
+
+    static final String FILE_NAME = "jcstress-jmh.json";
+
+    /**
+     * Results file written by JMH.
+     */
+    static final String JMH_FILE_NAME = "jmh-results.json";
+
+    private final Map<String, Throughput> tests = new TreeMap<>();
+
+    /**
+     * @param jmhResults results file written by JMH with {@code -rf json}
+     * @param benchmarks test names by benchmark class
+     * @return throughput of the tests of the benchmarks
+     */
+    @SuppressWarnings("unchecked")
+    static JcstressJmhResults read(File jmhResults, Map<String, String> benchmarks) {
+        JcstressJmhResults result = new JcstressJmhResults();
+        List<Map<String, Object>> entries;
+        try (Reader reader = Files.newBufferedReader(jmhResults.toPath(), StandardCharsets.UTF_8)) {
+            entries = (List<Map<String, Object>>) new JsonSlurper().parse(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read JMH results [" + jmhResults + "]", e);
+        }
+        String suffix = "." + JcstressJmhGenerator.GROUP;
+        for (Map<String, Object> entry : entries) {
+            String benchmark = String.valueOf(entry.get("benchmark"));
+            String benchmarkClass = benchmark.endsWith(suffix) ? benchmark.substring(0, benchmark.length() - suffix.length()) : benchmark;
+            String test = benchmarks.get(benchmarkClass);
+            Map<String, Object> primary = (Map<String, Object>) entry.get("primaryMetric");
+            if (test == null || primary == null) {
+                continue;
+            }
+            Throughput throughput = new Throughput(score(primary.get("score")), score(primary.get("scoreError")),
+                    String.valueOf(primary.get("scoreUnit")));
+            Map<String, Object> secondary = (Map<String, Object>) entry.get("secondaryMetrics");
+            if (secondary != null) {
+                for (Map.Entry<String, Object> actor : new TreeMap<>(secondary).entrySet()) {
+                    throughput.actors.put(actor.getKey(), score(((Map<String, Object>) actor.getValue()).get("score")));
+                }
+            }
+            result.tests.put(test, throughput);
+        }
+        return result;
+    }
+
+    private static double score(Object value) {
+        // JMH writes NaN for the error of a single measurement
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    Map<String, Throughput> getTests() {
+        return tests;
+    }
+
+    /**
+     * Writes {@value #FILE_NAME} and {@code index.html} into the directory.
+     */
+    void write(File reportDir) {
+        reportDir.mkdirs();
+        writeJson(new File(reportDir, FILE_NAME));
+        writeHtml(new File(reportDir, "index.html"));
+    }
+
+    private void writeJson(File file) {
+        List<Map<String, Object>> testMaps = new ArrayList<>();
+        for (Map.Entry<String, Throughput> test : tests.entrySet()) {
+            Map<String, Object> testMap = new LinkedHashMap<>();
+            testMap.put("name", test.getKey());
+            testMap.put("score", finite(test.getValue().score));
+            testMap.put("scoreError", finite(test.getValue().error));
+            testMap.put("unit", test.getValue().unit);
+            Map<String, Object> actors = new LinkedHashMap<>();
+            for (Map.Entry<String, Double> actor : test.getValue().actors.entrySet()) {
+                actors.put(actor.getKey(), finite(actor.getValue()));
+            }
+            testMap.put("actors", actors);
+            testMaps.add(testMap);
+        }
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("tests", testMaps);
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(JsonOutput.prettyPrint(JsonOutput.toJson(root)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write jcstress JMH results [" + file + "]", e);
+        }
+    }
+
+    private static Double finite(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? null : value;
+    }
+
+    private void writeHtml(File index) {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(index.toPath(), StandardCharsets.UTF_8))) {
+            out.println("<!DOCTYPE html>");
+            out.println("<html><head><meta charset=\"UTF-8\"><title>jcstress throughput</title></head><body>");
+            out.println("<h1>jcstress throughput</h1>");
+            out.println("<p>Actors of every test run as the threads of one JMH benchmark group, on shared state.</p>");
+            out.println("<table border=\"1\" cellspacing=\"0\" cellpadding=\"3\">");
+            out.println("<tr><th>Test</th><th>Throughput</th><th>Error</th><th>Actors</th></tr>");
+            for (Map.Entry<String, Throughput> test : tests.entrySet()) {
+                Throughput throughput = test.getValue();
+                List<String> actors = new ArrayList<>();
+                for (Map.Entry<String, Double> actor : throughput.actors.entrySet()) {
+                    actors.add(actor.getKey() + ": " + format(actor.getValue()));
+                }
+                out.println("<tr><td>" + escape(test.getKey()) + "</td><td>" + format(throughput.score) + " " + escape(throughput.unit)
+                        + "</td><td>" + format(throughput.error) + "</td><td>" + escape(String.join(", ", actors)) + "</td></tr>");
+            }
+            out.println("</table>");
+            out.println("</body></html>");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write jcstress JMH results [" + index + "]", e);
+        }
+    }
+
+    static String format(double value) {
+        return Double.isNaN(value) ? "-" : String.format(Locale.ROOT, "%,.0f", value);
+    }
+
+    private static String escape(String text) {
+        return JcstressReportMerger.escape(text);
+    }
+
+    /**
+     * Throughput of the actors of a test.
+     */
+    static final class Throughput {
+
+        private final double score;
+        private final double error;
+        private final String unit;
+        private final Map<String, Double> actors = new LinkedHashMap<>();
+
+        Throughput(double score, double error, String unit) {
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        double getScore() {
+            return score;
+        }
+
+        double getError() {
+            return error;
+        }
+
+        String getUnit() {
+            return unit;
+        }
+
+        /**
+         * @return throughput of every actor, by actor method
+         */
+        Map<String, Double> getActors() {
+            return actors;
+        }
+
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates a JMH benchmark for every jcstress test with actors, see {@link JcstressJmhGenerator}.
+ * <p>
+ * The compiled tests are loaded, without being initialized, from the classpath of the {@code jcstress} task. The
+ * test names of the benchmark classes are written to a properties file, used to report the results by test.
+ */
+public class JcstressJmhSourcesTask extends DefaultTask {
+
+    private final ConfigurableFileCollection classpath;
+
+    private final ConfigurableFileCollection testIndexDirs;
+
+    private final DirectoryProperty sourcesDirectory;
+
+    private final RegularFileProperty benchmarksFile;
+
+    public JcstressJmhSourcesTask() {
+        ObjectFactory objects = getProject().getObjects();
+        this.classpath = objects.fileCollection();
+        this.testIndexDirs = objects.fileCollection();
+        this.sourcesDirectory = objects.directoryProperty();
+        this.benchmarksFile = objects.fileProperty();
+    }
+
+    /**
+     * Classpath of the tests.
+     */
+    @Classpath
+    public ConfigurableFileCollection getClasspath() {
+        return classpath;
+    }
+
+    /**
+     * Directories holding the test list. The list is also part of the classpath.
+     */
+    @Internal
+    public ConfigurableFileCollection getTestIndexDirs() {
+        return testIndexDirs;
+    }
+
+    @OutputDirectory
+    public DirectoryProperty getSourcesDirectory() {
+        return sourcesDirectory;
+    }
+
+    /**
+     * Test names by benchmark class.
+     */
+    @OutputFile
+    public RegularFileProperty getBenchmarksFile() {
+        return benchmarksFile;
+    }
+
+    @TaskAction
+    public void generate() {
+        File sourcesDir = sourcesDirectory.get().getAsFile();
+        deleteContents(sourcesDir);
+        Properties benchmarks = new Properties();
+        try (URLClassLoader loader = new URLClassLoader(urls(), ClassLoader.getSystemClassLoader().getParent())) {
+            for (String test : JcstressTestIndex.read(testIndexDirs).getTests()) {
+                JcstressJmhGenerator.Benchmark benchmark;
+                try {
+                    benchmark = JcstressJmhGenerator.describe(loadTest(loader, test));
+                } catch (ClassNotFoundException | LinkageError e) {
+                    getLogger().warn("No JMH benchmark for jcstress test {}, it cannot be loaded: {}", test, e.toString());
+                    continue;
+                } catch (IllegalArgumentException e) {
+                    getLogger().warn("No JMH benchmark for jcstress test {}, {}.", test, e.getMessage());
+                    continue;
+                }
+                File source = new File(sourcesDir, benchmark.getQualifiedClassName().replace('.', '/') + ".java");
+                source.getParentFile().mkdirs();
+                Files.write(source.toPath(), JcstressJmhGenerator.source(benchmark).getBytes(StandardCharsets.UTF_8));
+                benchmarks.setProperty(benchmark.getQualifiedClassName(), test);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to generate JMH benchmarks in [" + sourcesDir + "]", e);
+        }
+        File file = benchmarksFile.get().getAsFile();
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            benchmarks.store(out, "jcstress tests of the JMH benchmarks");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write JMH benchmark list [" + file + "]", e);
+        }
+        getLogger().lifecycle("Generated JMH benchmarks for {} jcstress tests.", benchmarks.size());
+    }
+
+    private URL[] urls() {
+        List<URL> urls = new ArrayList<>();
+        for (File file : classpath) {
+            try {
+                urls.add(file.toURI().toURL());
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException("Invalid classpath entry [" + file + "]", e);
+            }
+        }
+        return urls.toArray(new URL[0]);
+    }
+
+    /**
+     * Loads a test by its name in the test list, which refers to nested classes with a dot.
+     */
+    static Class<?> loadTest(ClassLoader loader, String test) throws ClassNotFoundException {
+        String name = test;
+        while (true) {
+            try {
+                return Class.forName(name, false, loader);
+            } catch (ClassNotFoundException e) {
+                int dot = name.lastIndexOf('.');
+                if (dot < 0) {
+                    throw new ClassNotFoundException(test, e);
+                }
+                name = name.substring(0, dot) + "$" + name.substring(dot + 1);
+            }
+        }
+    }
+
+    private static void deleteContents(File dir) {
+        if (!dir.isDirectory()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            List<Path> sorted = paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            for (Path path : sorted) {
+                if (!path.equals(dir.toPath())) {
+                    Files.delete(path);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete old JMH benchmarks in [" + dir + "]", e);
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.JavaExec;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Runs the JMH benchmarks generated from the actors of the jcstress tests, and reports their throughput by test
+ * next to the jcstress report.
+ */
+public class JcstressJmhTask extends JavaExec {
+
+    private final ListProperty<String> jmhOptions;
+
+    private final RegularFileProperty benchmarksFile;
+
+    private final DirectoryProperty reportsDirectory;
+
+    public JcstressJmhTask() {
+        ObjectFactory objects = getProject().getObjects();
+        this.jmhOptions = objects.listProperty(String.class);
+        this.benchmarksFile = objects.fileProperty();
+        this.reportsDirectory = objects.directoryProperty();
+    }
+
+    /**
+     * JMH command line options.
+     */
+    @Input
+    public ListProperty<String> getJmhOptions() {
+        return jmhOptions;
+    }
+
+    /**
+     * Test names by benchmark class, written by {@link JcstressJmhSourcesTask}.
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getBenchmarksFile() {
+        return benchmarksFile;
+    }
+
+    @OutputDirectory
+    public DirectoryProperty getReportsDirectory() {
+        return reportsDirectory;
+    }
+
+    @Override
+    @TaskAction
+    public void exec() {
+        Map<String, String> benchmarks = readBenchmarks();
+        if (benchmarks.isEmpty()) {
+            getLogger().warn("No jcstress tests to benchmark.");
+            return;
+        }
+        File reportDir = reportsDirectory.get().getAsFile();
+        reportDir.mkdirs();
+        File jmhResults = new File(reportDir, JcstressJmhResults.JMH_FILE_NAME);
+        List<String> args = new ArrayList<>(jmhOptions.get());
+        args.addAll(Arrays.asList("-rf", "json", "-rff", jmhResults.getAbsolutePath()));
+        // only the generated benchmarks, not those of the project that may be on the classpath as well
+        args.add(".*" + JcstressJmhGenerator.CLASS_SUFFIX + "\\." + JcstressJmhGenerator.GROUP + "$");
+        setArgs(args);
+        super.exec();
+
+        JcstressJmhResults results = JcstressJmhResults.read(jmhResults, benchmarks);
+        results.write(reportDir);
+        for (Map.Entry<String, JcstressJmhResults.Throughput> test : results.getTests().entrySet()) {
+            getLogger().lifecycle("{}: {} {}", test.getKey(), JcstressJmhResults.format(test.getValue().getScore()), test.getValue().getUnit());
+        }
+        getLogger().lifecycle("jcstress throughput: {}", new File(reportDir, "index.html").toURI());
+    }
+
+    private Map<String, String> readBenchmarks() {
+        File file = benchmarksFile.get().getAsFile();
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read JMH benchmark list [" + file + "]", e);
+        }
+        Map<String, String> result = new HashMap<>();
+        for (String benchmark : properties.stringPropertyNames()) {
+            result.put(benchmark, properties.getProperty(benchmark));
+        }
+        return result;
+    }
+
+}
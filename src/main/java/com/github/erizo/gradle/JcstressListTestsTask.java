@@ -0,0 +1,83 @@
+package com.github.erizo.gradle;
+
+import java.util.List;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+/**
+ * Lists jcstress tests from the test list generated at compile time, without starting the harness.
+ */
+public class JcstressListTestsTask extends DefaultTask {
+
+    private final ConfigurableFileCollection testIndexDirs;
+
+    private final Property<String> regexp;
+
+    private final Property<String> glob;
+
+    public JcstressListTestsTask() {
+        this.testIndexDirs = getProject().getObjects().fileCollection();
+        this.regexp = getProject().getObjects().property(String.class);
+        this.glob = getProject().getObjects().property(String.class);
+    }
+
+    /**
+     * Directories holding the test list generated by the jcstress annotation processor.
+     */
+    @InputFiles
+    public ConfigurableFileCollection getTestIndexDirs() {
+        return testIndexDirs;
+    }
+
+    /**
+     * Test selector with the harness semantics: a test matches if the regexp is found anywhere in its name.
+     */
+    @Input
+    @Optional
+    public Property<String> getRegexp() {
+        return regexp;
+    }
+
+    @Option(option = "tests", description = "Regexp selecting the tests to list, as used by the jcstress task.")
+    public void setTests(String tests) {
+        this.regexp.set(tests);
+    }
+
+    /**
+     * Test selector matching whole test names, with {@code *} and {@code ?} wildcards. Takes precedence over
+     * {@link #getRegexp()}.
+     */
+    @Input
+    @Optional
+    public Property<String> getGlob() {
+        return glob;
+    }
+
+    @Option(option = "glob", description = "Glob selecting the tests to list, e.g. '*.atomic.*'.")
+    public void setGlob(String glob) {
+        this.glob.set(glob);
+    }
+
+    @TaskAction
+    public void listTests() {
+        JcstressTestIndex index = JcstressTestIndex.read(testIndexDirs);
+        if (index.getTests().isEmpty()) {
+            throw new GradleException("No jcstress test list found in " + testIndexDirs.getFiles());
+        }
+        String selector = glob.isPresent() ? JcstressTestIndex.globRegexp(glob.get()) : regexp.getOrNull();
+        List<String> tests = index.select(selector);
+        for (String test : tests) {
+            getLogger().quiet(test);
+        }
+        getLogger().quiet("{} of {} jcstress tests selected.", tests.size(), index.getTests().size());
+    }
+
+}
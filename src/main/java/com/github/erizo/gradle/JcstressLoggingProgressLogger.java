@@ -0,0 +1,38 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.logging.Logger;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Logs the status at most every {@value #INTERVAL_MILLIS} ms, for Gradle versions without the progress logging
+ * {@link JcstressGradleProgressLogger} uses.
+ */
+class JcstressLoggingProgressLogger implements JcstressProgressLogger {
+
+    static final long INTERVAL_MILLIS = 30_000;
+
+    private final Logger logger;
+    private final LongSupplier clock;
+    private long lastLogMillis;
+
+    JcstressLoggingProgressLogger(Logger logger, LongSupplier clock) {
+        this.logger = logger;
+        this.clock = clock;
+        this.lastLogMillis = clock.getAsLong();
+    }
+
+    @Override
+    public synchronized void progress(String status) {
+        long now = clock.getAsLong();
+        if (now - lastLogMillis >= INTERVAL_MILLIS) {
+            lastLogMillis = now;
+            logger.lifecycle("jcstress: {}", status);
+        }
+    }
+
+    @Override
+    public void completed() {
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.Action;
+import org.gradle.api.DomainObjectSet;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.jvm.toolchain.JavaLanguageVersion;
+import org.gradle.jvm.toolchain.JavaToolchainSpec;
+
+/**
+ * JDKs to run the jcstress tests on, configured in the {@code matrix} block of the {@code jcstress} extension.
+ * Every JDK gets its own jcstress task, which runs the tests with a Java toolchain. Requires Gradle 6.7 or newer.
+ */
+public class JcstressMatrix {
+
+    private final DomainObjectSet<Jdk> jdks;
+
+    public JcstressMatrix(ObjectFactory objects) {
+        this.jdks = objects.domainObjectSet(Jdk.class);
+    }
+
+    /**
+     * Adds a JDK of the given language version, named {@code jdk<version>}.
+     *
+     * @param languageVersion Java language version, e.g. {@code 17}
+     */
+    public void jdk(int languageVersion) {
+        jdk("jdk" + languageVersion, spec -> spec.getLanguageVersion().set(JavaLanguageVersion.of(languageVersion)));
+    }
+
+    /**
+     * Adds a JDK selected by a toolchain spec.
+     *
+     * @param name      name of the JDK, used in task names and reports
+     * @param toolchain toolchain spec, e.g. language version and vendor
+     */
+    public void jdk(String name, Action<? super JavaToolchainSpec> toolchain) {
+        jdks.add(new Jdk(name, toolchain));
+    }
+
+    public DomainObjectSet<Jdk> getJdks() {
+        return jdks;
+    }
+
+    public static class Jdk {
+
+        private final String name;
+        private final Action<? super JavaToolchainSpec> toolchain;
+
+        Jdk(String name, Action<? super JavaToolchainSpec> toolchain) {
+            this.name = name;
+            this.toolchain = toolchain;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Action<? super JavaToolchainSpec> getToolchain() {
+            return toolchain;
+        }
+
+    }
+
+}
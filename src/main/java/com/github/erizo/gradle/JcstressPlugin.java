@@ -15,28 +15,37 @@
  */
 package com.github.erizo.gradle;
 
+import com.github.erizo.gradle.agent.JcstressAgent;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.NamedDomainObjectContainer;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.Dependency;
-import org.gradle.api.artifacts.dsl.DependencyHandler;
 import org.gradle.api.distribution.Distribution;
 import org.gradle.api.distribution.DistributionContainer;
 import org.gradle.api.distribution.plugins.DistributionPlugin;
 import org.gradle.api.file.CopySpec;
+import org.gradle.api.file.Directory;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFile;
 import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.plugins.JavaPluginConvention;
 import org.gradle.api.plugins.JavaPluginExtension;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.JavaExec;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.api.tasks.Sync;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.application.CreateStartScripts;
+import org.gradle.api.tasks.bundling.AbstractArchiveTask;
 import org.gradle.api.tasks.bundling.Jar;
+import org.gradle.jvm.toolchain.JavaToolchainService;
 import org.gradle.plugins.ide.idea.IdeaPlugin;
 import org.gradle.plugins.ide.idea.model.IdeaModel;
 import org.gradle.plugins.ide.idea.model.IdeaModule;
@@ -47,6 +56,8 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -54,7 +65,10 @@ import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 /**
  * Configures the Jcstress Plugin.
@@ -71,8 +85,27 @@ public class JcstressPlugin implements Plugin<Project> {
     private static final String TASK_JCSTRESS_JAR_NAME = "jcstressJar";
     private static final String TASK_JCSTRESS_INSTALL_NAME = "jcstressInstall";
     private static final String TASK_JCSTRESS_SCRIPTS_NAME = "jcstressScripts";
+    private static final String TASK_JCSTRESS_AGENT_JAR_NAME = "jcstressAgentJar";
+    private static final String TASK_JCSTRESS_AGENT_SCRIPTS_NAME = "jcstressAgentScripts";
+    private static final String TASK_JCSTRESS_LIST_TESTS_NAME = "jcstressListTests";
+    private static final String TASK_JCSTRESS_MATRIX_NAME = "jcstressMatrix";
+    private static final String TASK_JCSTRESS_VARIANTS_NAME = "jcstressVariants";
+    private static final String TASK_JCSTRESS_CDS_NAME = "jcstressCds";
+    private static final String TASK_JCSTRESS_ALL_NAME = "jcstressAll";
+    static final String TASK_JCSTRESS_UPDATE_BASELINE_NAME = "jcstressUpdateThroughputBaseline";
+    private static final String JCSTRESS_JMH_SOURCESET_NAME = "jcstressJmh";
+    private static final String TASK_JCSTRESS_JMH_SOURCES_NAME = "jcstressJmhSources";
+    private static final String TASK_JCSTRESS_JMH_NAME = "jcstressJmh";
     public static final String KAPT_JCSTRESS_CONFIGURATION_NAME = "kaptJcstress";
 
+    /**
+     * Names a compared run cannot take, because its task, {@code jcstress<Name>}, or its report and build
+     * directories would clash with those of the plugin.
+     */
+    static final List<String> RESERVED_RUN_NAMES = Collections.unmodifiableList(Arrays.asList(
+            "agentJar", "agentScripts", "all", "cds", "classes", "install", "jar", "jmh", "jmhSources", "listTests",
+            "matrix", "matrixReport", "scripts", "updateThroughputBaseline", "variants", "variantsReport"));
+
     private Project project;
 
     private String jcstressApplicationName;
@@ -88,8 +121,7 @@ public class JcstressPlugin implements Plugin<Project> {
     private Configuration testCompileClasspath;
     private Configuration testRuntimeClasspath;
 
-    private Jar jcstressJarTask;
-    private Task jcstressClassesTask;
+    private TaskProvider<Jar> jcstressJarTask;
 
     private JcstressPluginExtension jcstressPluginExtension;
 
@@ -104,28 +136,34 @@ public class JcstressPlugin implements Plugin<Project> {
 
         this.jcstressConfiguration = createJcstressConfiguration();
 
-        addJcstressJarDependencies();
-
         this.jcstressSourceSet = createJcstressSourceSet();
 
-        this.jcstressClassesTask = getJcstressClassesTask();
+        addJcstressJarDependencies();
 
         this.jcstressJarTask = createJcstressJarTask();
 
         addJcstressTask();
 
+        addCdsTask();
+
+        addListTestsTask();
+
+        addMatrixTasks();
+
+        addVariantTasks();
+
         addCreateStartScriptsTask();
 
-        Sync installAppTask = addInstallAppTask();
+        addAgentTasks();
 
-        configureInstallTasks(installAppTask);
+        addInstallAppTask();
 
-        updateIdeaPluginConfiguration();
+        addAggregateTask();
 
-    }
+        jcstressPluginExtension.getJmh().whenEnabled(this::addJmhBenchmarks);
+
+        updateIdeaPluginConfiguration();
 
-    private Task getJcstressClassesTask() {
-        return project.getTasks().getByName(JCSTRESS_SOURCESET_NAME + "Classes");
     }
 
     private void configureJavaPlugin() {
@@ -148,15 +186,23 @@ public class JcstressPlugin implements Plugin<Project> {
         return project.getConfigurations().create(JCSTRESS_CONFIGURATION_NAME);
     }
 
+    /**
+     * The jcstress dependency is added lazily, so that it is created from the final extension value, and only
+     * when the configurations are actually used.
+     */
     private void addJcstressJarDependencies() {
-        project.afterEvaluate(proj -> {
-            addDependency(proj, JCSTRESS_SOURCESET_NAME + "Implementation", jcstressPluginExtension.getJcstressDependency());
-            if (hasConfiguration(proj, KAPT_JCSTRESS_CONFIGURATION_NAME)) {
-                addDependency(proj, KAPT_JCSTRESS_CONFIGURATION_NAME, jcstressPluginExtension.getJcstressDependency());
-            } else {
-                addDependency(proj, JCSTRESS_SOURCESET_NAME + "AnnotationProcessor", jcstressPluginExtension.getJcstressDependency());
-            }
-        });
+        Provider<Dependency> jcstressDependency = project.provider(() -> project.getDependencies().create(jcstressPluginExtension.getJcstressDependency()));
+
+        project.getConfigurations().getByName(JCSTRESS_SOURCESET_NAME + "Implementation").getDependencies().addLater(jcstressDependency);
+
+        project.getConfigurations()
+                .matching(configuration -> configuration.getName().equals(KAPT_JCSTRESS_CONFIGURATION_NAME))
+                .all(configuration -> configuration.getDependencies().addLater(jcstressDependency));
+
+        project.getConfigurations().getByName(JCSTRESS_SOURCESET_NAME + "AnnotationProcessor").getDependencies().addAllLater(project.provider(() ->
+                hasConfiguration(project, KAPT_JCSTRESS_CONFIGURATION_NAME)
+                        ? Collections.<Dependency>emptyList()
+                        : Collections.singletonList(jcstressDependency.get())));
     }
 
     private boolean hasConfiguration(Project project, String configurationName) {
@@ -170,130 +216,463 @@ public class JcstressPlugin implements Plugin<Project> {
         FileCollection compileClasspath = jcstressSourceSet.getCompileClasspath()
                 .plus(jcstressConfiguration)
                 .plus(mainCompileClasspath)
-                .plus(mainSourceSet.getOutput());
+                .plus(mainSourceSet.getOutput())
+                .plus(whenTestsIncluded(testCompileClasspath.plus(testSourceSet.getOutput())));
 
         jcstressSourceSet.setCompileClasspath(compileClasspath);
 
         FileCollection runtimeClasspath = jcstressSourceSet.getRuntimeClasspath()
                 .plus(jcstressConfiguration)
                 .plus(mainRuntimeClasspath)
-                .plus(mainSourceSet.getOutput());
+                .plus(mainSourceSet.getOutput())
+                .plus(whenTestsIncluded(testRuntimeClasspath.plus(testSourceSet.getOutput())));
 
         jcstressSourceSet.setRuntimeClasspath(runtimeClasspath);
 
-        project.afterEvaluate(proj -> {
-            if (jcstressPluginExtension.getIncludeTests()) {
-                FileCollection ccp = jcstressSourceSet.getCompileClasspath()
-                        .plus(testCompileClasspath)
-                        .plus(testSourceSet.getOutput());
-                jcstressSourceSet.setCompileClasspath(ccp);
-
-                FileCollection rcp = jcstressSourceSet.getRuntimeClasspath()
-                        .plus(testRuntimeClasspath)
-                        .plus(testSourceSet.getOutput());
-                jcstressSourceSet.setRuntimeClasspath(rcp);
-            }
-        });
-
         return jcstressSourceSet;
     }
 
-    private Jar createJcstressJarTask() {
-
-        Action<CopySpec> jcstressExclusions = copySpec -> copySpec.exclude("**/META-INF/BenchmarkList", "**/META-INF/CompilerHints");
+    /**
+     * @param files files used only with {@code includeTests}
+     * @return the files when tests are included, an empty collection otherwise; decided when the collection is used
+     */
+    private FileCollection whenTestsIncluded(FileCollection files) {
+        return project.files((Callable<Object>) () -> jcstressPluginExtension.getIncludeTests() ? files : Collections.emptyList());
+    }
 
-        Jar jcstressJarTask = project.getTasks().create(TASK_JCSTRESS_JAR_NAME, Jar.class);
+    private TaskProvider<Jar> createJcstressJarTask() {
 
-        jcstressJarTask.dependsOn(jcstressClassesTask);
-        jcstressJarTask.getInputs().files(jcstressSourceSet.getOutput().getFiles());
+        Action<CopySpec> jcstressExclusions = copySpec -> copySpec.exclude("**/META-INF/BenchmarkList", "**/META-INF/CompilerHints");
 
-        project.afterEvaluate(proj -> {
+        return project.getTasks().register(TASK_JCSTRESS_JAR_NAME, Jar.class, jcstressJarTask -> {
+            jcstressJarTask.dependsOn(jcstressSourceSet.getClassesTaskName());
             jcstressJarTask.from(jcstressSourceSet.getOutput());
             jcstressJarTask.from(mainSourceSet.getOutput(), jcstressExclusions);
-            if (jcstressPluginExtension.getIncludeTests()) {
-                jcstressJarTask.from(testSourceSet.getOutput(), jcstressExclusions);
-            }
+            jcstressJarTask.from(whenTestsIncluded(testSourceSet.getOutput()), jcstressExclusions);
             jcstressJarTask.getArchiveClassifier().set("jcstress");
         });
+    }
+
+    private void addJcstressTask() {
+        Provider<RegularFile> throughputBaseline = project.provider(() -> jcstressPluginExtension.getThroughputBaseline() == null
+                ? null
+                : project.getLayout().getProjectDirectory().file(jcstressPluginExtension.getThroughputBaseline()));
+        TaskProvider<JcstressTask> jcstress = project.getTasks().register(TASK_JCSTRESS_NAME, JcstressTask.class, jcstressTask -> {
+            configureJcstressTask(jcstressTask, null);
+            jcstressTask.setDescription("Runs jcstress benchmarks.");
+            jcstressTask.getThroughputBaseline().set(throughputBaseline);
+            jcstressTask.dependsOn((Callable<Object>) () -> jcstressPluginExtension.getCds().getEnabled()
+                    ? TASK_JCSTRESS_CDS_NAME
+                    : Collections.emptyList());
+            jcstressTask.getSharedArchiveFile().set(project.provider(() -> jcstressPluginExtension.getCds().getEnabled()
+                    ? sharedArchiveFile().get()
+                    : null));
+        });
+        project.getTasks().register(TASK_JCSTRESS_UPDATE_BASELINE_NAME, JcstressUpdateBaselineTask.class, task -> {
+            task.setGroup("Verification");
+            task.setDescription("Stores the results of the last jcstress run as the throughput baseline.");
+            task.mustRunAfter(jcstress);
+            task.getResultsFile().set(reportsDirectory(null).map(dir -> dir.file(JcstressResults.FILE_NAME)));
+            task.getBaselineFile().set(throughputBaseline);
+        });
+    }
 
-        return jcstressJarTask;
+    /**
+     * The archive is dumped for the JVM and classpath of the {@code jcstress} task. Matrix and variant runs do not use
+     * it, a JDK of the matrix would need an archive of its own.
+     */
+    private void addCdsTask() {
+        project.getTasks().register(TASK_JCSTRESS_CDS_NAME, JcstressCdsTask.class, cdsTask -> {
+            JcstressTask jcstressTask = (JcstressTask) project.getTasks().getByName(TASK_JCSTRESS_NAME);
+            cdsTask.setGroup("Verification");
+            cdsTask.setDescription("Builds a class data sharing archive of the jcstress classpath from a training run.");
+            cdsTask.getClasspath().from(jcstressTask.getClasspath());
+            cdsTask.getJavaExecutable().set(project.provider(jcstressTask::javaExecutable));
+            cdsTask.getJavaRuntimeVersion().set(project.provider(jcstressTask::getJavaRuntimeVersion));
+            cdsTask.getJvmArgs().set(project.provider(jcstressTask::getJvmArgs));
+            cdsTask.getTestIndexDirs().from(jcstressSourceSet.getOutput());
+            cdsTask.getTrainingTests().set(project.provider(() -> jcstressPluginExtension.getCds().getTrainingTests()));
+            cdsTask.getClassListFile().set(classListFile());
+            cdsTask.getArchiveFile().set(sharedArchiveFile());
+        });
     }
 
-    private JcstressTask addJcstressTask() {
-        final JcstressTask jcstressTask = project.getTasks().create(TASK_JCSTRESS_NAME, JcstressTask.class);
+    private Provider<RegularFile> sharedArchiveFile() {
+        return project.getLayout().getBuildDirectory().file("jcstress/cds/" + jcstressApplicationName + ".jsa");
+    }
 
-        jcstressTask.dependsOn(jcstressJarTask);
-        setMainClass(jcstressTask);
+    private Provider<RegularFile> classListFile() {
+        return project.getLayout().getBuildDirectory().file("jcstress/cds/" + jcstressApplicationName + ".classlist");
+    }
+
+    /**
+     * Configures a jcstress task from the extension.
+     *
+     * @param jcstressTask task to configure
+     * @param runName      name of a run among several, e.g. a JDK of the matrix, that gets its own report and working
+     *                     directories; {@code null} for the {@code jcstress} task
+     */
+    private void configureJcstressTask(JcstressTask jcstressTask, String runName) {
+        List<String> jvmArgs = Arrays.asList("-XX:+UnlockDiagnosticVMOptions", "-XX:+WhiteBoxAPI", "-XX:-RestrictContended", "-Duser.language=" + jcstressPluginExtension.getLanguage());
+        String runDir = runName == null ? "" : "/" + runName;
+
+        jcstressTask.dependsOn(jcstressSourceSet.getClassesTaskName());
+        setMainClass(jcstressTask, "org.openjdk.jcstress.Main");
         jcstressTask.setGroup("Verification");
-        jcstressTask.setDescription("Runs jcstress benchmarks.");
-        jcstressTask.setJvmArgs(Arrays.asList("-XX:+UnlockDiagnosticVMOptions", "-XX:+WhiteBoxAPI", "-XX:-RestrictContended", "-Duser.language=" + jcstressPluginExtension.getLanguage()));
-        jcstressTask.setClasspath(jcstressConfiguration.plus(project.getConfigurations().getByName(JCSTRESS_SOURCESET_NAME + "RuntimeClasspath").plus(mainRuntimeClasspath)));
-        jcstressTask.doFirst(new Action<Task>() {
-            @Override
-            public void execute(Task task1) {
-                getAndCreateDirectory(project.getBuildDir(), "tmp", "jcstress");
-            }
+        jcstressTask.setJvmArgs(jvmArgs);
+        jcstressTask.setClasspath(jcstressRuntimeClasspath());
+        jcstressTask.setWorkingDir(project.getLayout().getBuildDirectory().dir("tmp/jcstress" + runDir));
+
+        jcstressTask.getJcstressOptions().set(jcstressPluginExtension.getArguments());
+        jcstressTask.getReportsDirectory().set(reportsDirectory(runName));
+        jcstressTask.getShards().set(project.provider(() -> jcstressPluginExtension.getShards() == null
+                ? null
+                : JcstressShardExecutor.parseShards(jcstressPluginExtension.getShards())));
+        jcstressTask.getTestIndexDirs().from(jcstressSourceSet.getOutput());
+        jcstressTask.getIncremental().set(project.provider(jcstressPluginExtension::getIncremental));
+        jcstressTask.getCacheable().set(project.provider(jcstressPluginExtension::getCacheable));
+        jcstressTask.getIncrementalStateFile().set(project.getLayout().getBuildDirectory().file("jcstress" + runDir + "/incremental.properties"));
+        jcstressTask.getFingerprintDirs().from(
+                jcstressSourceSet.getOutput().getClassesDirs(),
+                mainSourceSet.getOutput().getClassesDirs(),
+                whenTestsIncluded(testSourceSet.getOutput().getClassesDirs()));
+        jcstressTask.getThroughputTolerance().set(project.provider(() -> jcstressPluginExtension.getThroughputTolerance() == null
+                ? null
+                : Double.valueOf(jcstressPluginExtension.getThroughputTolerance().trim())));
+        jcstressTask.getFailOnThroughputRegression().set(project.provider(jcstressPluginExtension::getFailOnThroughputRegression));
+        jcstressTask.getTimeBudget().set(project.provider(jcstressPluginExtension::getTimeBudget));
+        jcstressTask.getDurationHistoryFile().set(project.provider(() -> jcstressPluginExtension.getDurationHistoryDir() == null
+                ? project.getLayout().getBuildDirectory().file("jcstress" + runDir + "/durations.properties").get()
+                : project.getLayout().getProjectDirectory().dir(jcstressPluginExtension.getDurationHistoryDir())
+                        .file((runName == null ? "" : runName + "/") + "durations.properties")));
+        jcstressTask.getJfr().set(project.provider(() -> jcstressPluginExtension.getProfiling().getJfr()));
+        jcstressTask.getJfrSettings().set(project.provider(() -> jcstressPluginExtension.getProfiling().getSettings()));
+        jcstressTask.getTrace().set(project.provider(() -> jcstressPluginExtension.getProfiling().getTrace()));
+        jcstressTask.getAgents().set(project.provider(jcstressPluginExtension::getAgents));
+        jcstressTask.getAgentToken().set(project.provider(jcstressPluginExtension::getAgentToken));
+        jcstressTask.getFailFast().set(project.provider(jcstressPluginExtension::getFailFast));
+        jcstressTask.getRerunRounds().set(project.provider(() -> jcstressPluginExtension.getRerun().getRounds()));
+        jcstressTask.getRerunMinSamples().set(project.provider(() -> jcstressPluginExtension.getRerun().getMinSamples()));
+        jcstressTask.getRerunTimeFactor().set(project.provider(() -> jcstressPluginExtension.getRerun().getTimeFactor()));
+        jcstressTask.getRerunIterationsFactor().set(project.provider(() -> jcstressPluginExtension.getRerun().getIterationsFactor()));
+        jcstressTask.getRerunForksFactor().set(project.provider(() -> jcstressPluginExtension.getRerun().getForksFactor()));
+        jcstressTask.getEarlyStopping().set(project.provider(() -> jcstressPluginExtension.getEarlyStopping().getEnabled()));
+        jcstressTask.getEarlyStoppingTolerance().set(project.provider(() -> jcstressPluginExtension.getEarlyStopping().getTolerance()));
+        jcstressTask.getEarlyStoppingMinForks().set(project.provider(() -> jcstressPluginExtension.getEarlyStopping().getMinForks()));
+        jcstressTask.getTestTimeout().set(project.provider(jcstressPluginExtension::getTestTimeout));
+        jcstressTask.getRunTimeout().set(project.provider(jcstressPluginExtension::getRunTimeout));
+        jcstressTask.getExternalClasspath().from(
+                jcstressConfiguration,
+                mainRuntimeClasspath,
+                whenTestsIncluded(testRuntimeClasspath));
+        if (jcstressPluginExtension.getCpuLeases() && isAtLeastGradle("6.1")) {
+            useCpuLeases(jcstressTask);
+        }
+    }
+
+    /**
+     * Build services are only available from Gradle 6.1, the service class is only loaded from here.
+     */
+    private void useCpuLeases(JcstressTask jcstressTask) {
+        Provider<JcstressCpuLeaseService> cpuLeases = JcstressCpuLeaseService.register(project);
+        jcstressTask.getCpuLeases().set(cpuLeases);
+        jcstressTask.usesService(cpuLeases);
+    }
+
+    /**
+     * Registers a task that runs the {@code jcstress} task of every project applying the plugin. With
+     * {@code --parallel}, the suites run side by side on the CPUs they lease.
+     * <p>
+     * Only the root project registers the task, subprojects do not configure other projects. The projects applying
+     * the plugin are looked up when the task graph is built, after all projects are configured.
+     */
+    private void addAggregateTask() {
+        if (project != project.getRootProject()) {
+            return;
+        }
+        project.getTasks().register(TASK_JCSTRESS_ALL_NAME, task -> {
+            task.setGroup("Verification");
+            task.setDescription("Runs the jcstress tests of all projects, sharing the CPUs of the machine.");
+            task.dependsOn(project.provider(() -> jcstressTasksOf(project.getAllprojects())));
         });
+    }
 
-        project.afterEvaluate(project -> {
-            if (jcstressPluginExtension.getReportDir() == null) {
-                jcstressPluginExtension.setReportDir(getAndCreateDirectory(project.getBuildDir(), "reports", "jcstress").getAbsolutePath());
+    private static List<TaskProvider<Task>> jcstressTasksOf(Set<Project> projects) {
+        List<TaskProvider<Task>> result = new ArrayList<>();
+        for (Project candidate : projects) {
+            if (candidate.getExtensions().findByType(JcstressPluginExtension.class) != null) {
+                result.add(candidate.getTasks().named(TASK_JCSTRESS_NAME));
             }
-            jcstressTask.args(jcstressPluginExtension.buildArgs());
+        }
+        return result;
+    }
 
-            jcstressTask.reportsDirectory = new File(jcstressPluginExtension.getReportDir());
+    private Provider<Directory> reportsDirectory(String runName) {
+        return project.provider(() -> {
+            Directory reportDir = jcstressPluginExtension.getReportDir() == null
+                    ? project.getLayout().getBuildDirectory().dir("reports/jcstress").get()
+                    : project.getLayout().getProjectDirectory().dir(jcstressPluginExtension.getReportDir());
+            return runName == null ? reportDir : reportDir.dir(runName);
+        });
+    }
 
-            jcstressTask.setProperty("classpath", jcstressTask.getClasspath().plus(project.files(jcstressJarTask.getArchiveFile())));
-            filterConfiguration(jcstressConfiguration, "jcstress-core");
-            if (jcstressPluginExtension.getIncludeTests()) {
-                jcstressTask.setProperty("classpath", jcstressTask.getClasspath().plus(testRuntimeClasspath));
+    private void addMatrixTasks() {
+        JcstressMatrix matrix = jcstressPluginExtension.getMatrix();
+        TaskProvider<JcstressComparisonReportTask> reportTask = addComparisonTasks(TASK_JCSTRESS_MATRIX_NAME, "matrix", "every JDK of the matrix");
+        matrix.getJdks().all(jdk -> {
+            if (!isAtLeastGradle("6.7")) {
+                throw new GradleException("The jcstress JDK matrix requires Gradle 6.7 or newer.");
             }
+            addComparedRun(TASK_JCSTRESS_MATRIX_NAME, reportTask, jdk.getName(), jcstressTask -> {
+                jcstressTask.setDescription("Runs jcstress benchmarks on " + jdk.getName() + ".");
+                jcstressTask.getJavaLauncher().set(project.getExtensions().getByType(JavaToolchainService.class).launcherFor(jdk.getToolchain()));
+            });
+        });
+    }
+
+    private void addVariantTasks() {
+        NamedDomainObjectContainer<JcstressVariant> variants = jcstressPluginExtension.getVariants();
+        TaskProvider<JcstressComparisonReportTask> reportTask = addComparisonTasks(TASK_JCSTRESS_VARIANTS_NAME, "variants", "every JVM flag variant");
+        variants.all(variant -> addComparedRun(TASK_JCSTRESS_VARIANTS_NAME, reportTask, variant.getName(), jcstressTask -> {
+            jcstressTask.setDescription("Runs jcstress benchmarks with the " + variant.getName() + " JVM flags.");
+            jcstressTask.getJcstressOptions().set(jcstressPluginExtension.getArguments()
+                    .map(args -> HarnessArguments.appendTo(args, "-jvmArgsPrepend", variant.getJvmArgs())));
+        }));
+    }
+
+    /**
+     * Registers a task that runs several jcstress tasks, and a report task comparing their results.
+     *
+     * @param name          name of the task running all runs; the report task is named {@code <name>Report}
+     * @param reportDirName report subdirectory of the comparison
+     * @param runs          description of the runs
+     * @return report task
+     */
+    private TaskProvider<JcstressComparisonReportTask> addComparisonTasks(String name, String reportDirName, String runs) {
+        TaskProvider<JcstressComparisonReportTask> reportTask = project.getTasks().register(name + "Report", JcstressComparisonReportTask.class, task -> {
+            task.setGroup("Verification");
+            task.setDescription("Compares the jcstress results of " + runs + ".");
+            task.getReportDirectory().set(reportsDirectory(reportDirName));
+        });
+        project.getTasks().register(name, task -> {
+            task.setGroup("Verification");
+            task.setDescription("Runs jcstress tests with " + runs + " and compares the results.");
+            task.dependsOn(reportTask);
+        });
+        return reportTask;
+    }
 
-            File path = getAndCreateDirectory(project.getBuildDir(), "tmp", "jcstress");
-            jcstressTask.setWorkingDir(path);
+    /**
+     * Registers the jcstress task of one of the compared runs. The report task finalizes the run, so that the
+     * comparison is written even when a run fails. Runs share the CPUs through CPU leases, like the suites of
+     * different projects.
+     */
+    private void addComparedRun(String name, TaskProvider<JcstressComparisonReportTask> reportTask, String runName,
+                                Action<JcstressTask> configuration) {
+        requireRunName(runName);
+        String taskName = TASK_JCSTRESS_NAME + Character.toUpperCase(runName.charAt(0)) + runName.substring(1);
+        TaskProvider<JcstressTask> runTask = project.getTasks().register(taskName, JcstressTask.class, jcstressTask -> {
+            configureJcstressTask(jcstressTask, runName);
+            jcstressTask.finalizedBy(reportTask);
+            configuration.execute(jcstressTask);
         });
+        project.getTasks().named(name).configure(task -> task.dependsOn(runTask));
+        reportTask.configure(task -> {
+            task.mustRunAfter(runTask);
+            task.getRuns().put(runName, reportsDirectory(runName).map(dir -> dir.file(JcstressResults.FILE_NAME)));
+        });
+    }
 
-        jcstressTask.doFirst(new Action<Task>() {
-            @Override
-            public void execute(Task task1) {
-                jcstressTask.args(jcstressTask.jcstressArgs());
+    static void requireRunName(String runName) {
+        for (String reserved : RESERVED_RUN_NAMES) {
+            if (reserved.equalsIgnoreCase(runName)) {
+                throw new InvalidUserDataException("Invalid jcstress run name [" + runName + "], it is used by the plugin. "
+                        + "JDKs of the matrix and variants cannot be named " + RESERVED_RUN_NAMES + ".");
             }
+        }
+    }
+
+    private void addListTestsTask() {
+        project.getTasks().register(TASK_JCSTRESS_LIST_TESTS_NAME, JcstressListTestsTask.class, listTestsTask -> {
+            listTestsTask.dependsOn(jcstressSourceSet.getClassesTaskName());
+            listTestsTask.setGroup("Verification");
+            listTestsTask.setDescription("Lists jcstress tests without starting the harness.");
+            listTestsTask.getTestIndexDirs().from(jcstressSourceSet.getOutput());
+            listTestsTask.getRegexp().set(project.provider(jcstressPluginExtension::getRegexp));
         });
+    }
 
-        return jcstressTask;
+    /**
+     * @return classpath the tests run with
+     */
+    private FileCollection jcstressRuntimeClasspath() {
+        return project.files(
+                jcstressConfiguration,
+                project.getConfigurations().getByName(JCSTRESS_SOURCESET_NAME + "RuntimeClasspath"),
+                mainRuntimeClasspath,
+                jcstressClasses(),
+                whenTestsIncluded(testRuntimeClasspath));
     }
 
-    private CreateStartScripts addCreateStartScriptsTask() {
-        CreateStartScripts createStartScriptsTask = project.getTasks().create(TASK_JCSTRESS_SCRIPTS_NAME, CreateStartScripts.class);
+    /**
+     * Adds the {@code jcstressJmh} source set, compiled from benchmarks generated from the compiled tests and run
+     * with JMH. The source set is added when benchmarks are enabled, so that builds without them do not get its
+     * configurations and tasks.
+     */
+    private void addJmhBenchmarks() {
+        JcstressJmhOptions jmh = jcstressPluginExtension.getJmh();
+        Provider<Directory> sourcesDir = project.getLayout().getBuildDirectory().dir("generated/sources/jcstressJmh/java");
+        Provider<RegularFile> benchmarksFile = project.getLayout().getBuildDirectory().file("jcstress/jmh/benchmarks.properties");
+
+        TaskProvider<JcstressJmhSourcesTask> sourcesTask = project.getTasks().register(TASK_JCSTRESS_JMH_SOURCES_NAME, JcstressJmhSourcesTask.class, task -> {
+            task.setDescription("Generates JMH benchmarks from the actors of the jcstress tests.");
+            task.dependsOn(jcstressSourceSet.getClassesTaskName());
+            task.getClasspath().from(jcstressRuntimeClasspath());
+            task.getTestIndexDirs().from(jcstressSourceSet.getOutput());
+            task.getSourcesDirectory().set(sourcesDir);
+            task.getBenchmarksFile().set(benchmarksFile);
+        });
 
-        createStartScriptsTask.setDescription("Creates OS specific scripts to run the project as a jcstress test suite.");
-        createStartScriptsTask.setClasspath(jcstressJarTask.getOutputs().getFiles()
-                .plus(project.getConfigurations().getByName(JCSTRESS_SOURCESET_NAME + "RuntimeClasspath"))
-                .plus(mainRuntimeClasspath));
+        SourceSet jmhSourceSet = getProjectSourceSets().create(JCSTRESS_JMH_SOURCESET_NAME);
+        jmhSourceSet.getJava().setSrcDirs(Collections.singletonList(sourcesDir));
+        jmhSourceSet.getResources().setSrcDirs(Collections.emptyList());
+        jmhSourceSet.setCompileClasspath(jmhSourceSet.getCompileClasspath().plus(jcstressRuntimeClasspath()));
+        jmhSourceSet.setRuntimeClasspath(jmhSourceSet.getRuntimeClasspath().plus(jcstressRuntimeClasspath()));
+        project.getTasks().named(jmhSourceSet.getCompileJavaTaskName()).configure(task -> task.dependsOn(sourcesTask));
+
+        project.getConfigurations().getByName(JCSTRESS_JMH_SOURCESET_NAME + "Implementation").getDependencies().addLater(
+                project.provider(() -> project.getDependencies().create("org.openjdk.jmh:jmh-core:" + jmh.getJmhVersion())));
+        project.getConfigurations().getByName(JCSTRESS_JMH_SOURCESET_NAME + "AnnotationProcessor").getDependencies().addLater(
+                project.provider(() -> project.getDependencies().create("org.openjdk.jmh:jmh-generator-annprocess:" + jmh.getJmhVersion())));
+
+        project.getTasks().register(TASK_JCSTRESS_JMH_NAME, JcstressJmhTask.class, task -> {
+            task.setGroup("Verification");
+            task.setDescription("Runs JMH benchmarks of the actors of the jcstress tests.");
+            task.dependsOn(jmhSourceSet.getClassesTaskName());
+            setMainClass(task, "org.openjdk.jmh.Main");
+            task.setClasspath(jmhSourceSet.getRuntimeClasspath());
+            task.getJmhOptions().set(project.provider(jmh::getOptions));
+            task.getBenchmarksFile().set(benchmarksFile);
+            task.getReportsDirectory().set(reportsDirectory("jmh"));
+        });
+    }
 
-        String mainClassName = "org.openjdk.jcstress.Main";
-        if(isAtLeastGradle("6.0")) {
-            createStartScriptsTask.getMainClass().set(mainClassName);
-        } else {
-            createStartScriptsTask.setMainClassName(mainClassName);
-        }
+    /**
+     * By default, the harness runs directly from the class directories, so that no archive is built before every
+     * run. The {@code BenchmarkList} and {@code CompilerHints} files excluded from the jar are JMH resources that
+     * jcstress never reads, so the class directories can be used as they are.
+     *
+     * @return test classes of the {@code jcstress} task, the jar when {@code useJar} is set, or when class data sharing
+     * is enabled, which only works with a classpath of jars
+     */
+    private FileCollection jcstressClasses() {
+        return project.files((Callable<Object>) () -> jcstressPluginExtension.getUseJar() || jcstressPluginExtension.getCds().getEnabled()
+                ? jcstressJarTask.flatMap(AbstractArchiveTask::getArchiveFile)
+                : Arrays.asList(
+                        jcstressSourceSet.getOutput(),
+                        mainSourceSet.getOutput(),
+                        whenTestsIncluded(testSourceSet.getOutput())));
+    }
 
-        createStartScriptsTask.setApplicationName(jcstressApplicationName);
-        createStartScriptsTask.setOutputDir(new File(project.getBuildDir(), "scripts"));
-        createStartScriptsTask.setDefaultJvmOpts(new ArrayList<>(Arrays.asList(
+    private void addCreateStartScriptsTask() {
+        List<String> defaultJvmOpts = new ArrayList<>(Arrays.asList(
                 "-XX:+UnlockDiagnosticVMOptions",
                 "-XX:+WhiteBoxAPI",
                 "-XX:-RestrictContended",
-                "-Duser.language=" + jcstressPluginExtension.getLanguage())));
+                "-Duser.language=" + jcstressPluginExtension.getLanguage()));
+
+        project.getTasks().register(TASK_JCSTRESS_SCRIPTS_NAME, CreateStartScripts.class, createStartScriptsTask -> {
+            createStartScriptsTask.setDescription("Creates OS specific scripts to run the project as a jcstress test suite.");
+            createStartScriptsTask.setClasspath(project.files(
+                    jcstressJarTask,
+                    project.getConfigurations().getByName(JCSTRESS_SOURCESET_NAME + "RuntimeClasspath"),
+                    mainRuntimeClasspath,
+                    whenTestsIncluded(testRuntimeClasspath)));
+
+            String mainClassName = "org.openjdk.jcstress.Main";
+            if (isAtLeastGradle("6.0")) {
+                createStartScriptsTask.getMainClass().set(mainClassName);
+            } else {
+                createStartScriptsTask.setMainClassName(mainClassName);
+            }
+
+            createStartScriptsTask.setApplicationName(jcstressApplicationName);
+            createStartScriptsTask.setOutputDir(new File(project.getBuildDir(), "scripts"));
+            createStartScriptsTask.setDefaultJvmOpts(defaultJvmOpts);
+            boolean cds = jcstressPluginExtension.getCds().getEnabled();
+            createStartScriptsTask.getInputs().property("cds", cds);
+            if (cds) {
+                createStartScriptsTask.doLast(new AddSharedArchiveToScripts(jcstressApplicationName, jcstressApplicationName + ".jsa"));
+            }
+        });
+    }
+
+    /**
+     * Points the default JVM options of the start scripts to the archive in the {@code lib} directory of the
+     * installation. The installation directory is only known when the script runs, and Gradle has no way to refer
+     * to it in the default JVM options, so the generated scripts are amended.
+     */
+    private static class AddSharedArchiveToScripts implements Action<Task> {
 
-        project.afterEvaluate(it -> {
-            if (jcstressPluginExtension.getIncludeTests()) {
-                FileCollection classpath = createStartScriptsTask.getClasspath();
-                createStartScriptsTask.setClasspath(classpath.plus(testRuntimeClasspath));
+        private final String applicationName;
+        private final String archiveName;
+
+        AddSharedArchiveToScripts(String applicationName, String archiveName) {
+            this.applicationName = applicationName;
+            this.archiveName = archiveName;
+        }
+
+        @Override
+        public void execute(Task task) {
+            File outputDir = ((CreateStartScripts) task).getOutputDir();
+            File unixScript = new File(outputDir, applicationName);
+            File windowsScript = new File(outputDir, applicationName + ".bat");
+            try {
+                String unix = new String(Files.readAllBytes(unixScript.toPath()), StandardCharsets.UTF_8);
+                Files.write(unixScript.toPath(), JcstressCds.addToUnixScript(unix, archiveName).getBytes(StandardCharsets.UTF_8));
+                String windows = new String(Files.readAllBytes(windowsScript.toPath()), StandardCharsets.UTF_8);
+                Files.write(windowsScript.toPath(), JcstressCds.addToWindowsScript(windows, archiveName).getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to add the class data sharing archive to the scripts in [" + outputDir + "]", e);
             }
+        }
+
+    }
+
+    /**
+     * The agent is a part of this plugin that runs without Gradle. Its classes are copied from the plugin into a jar
+     * of the distribution, and get start scripts with the classpath of the jcstress start scripts.
+     */
+    private void addAgentTasks() {
+        File pluginCode;
+        try {
+            pluginCode = new File(JcstressAgent.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Cannot locate the jcstress agent classes", e);
+        }
+        TaskProvider<Jar> agentJar = project.getTasks().register(TASK_JCSTRESS_AGENT_JAR_NAME, Jar.class, jar -> {
+            jar.setDescription("Assembles the jcstress agent that runs tests for remote jcstress tasks.");
+            jar.from(pluginCode.isDirectory() ? project.fileTree(pluginCode) : project.zipTree(pluginCode),
+                    copySpec -> copySpec.include(JcstressAgent.class.getPackage().getName().replace('.', '/') + "/**"));
+            jar.getArchiveClassifier().set("jcstress-agent");
         });
 
-        return createStartScriptsTask;
+        project.getTasks().register(TASK_JCSTRESS_AGENT_SCRIPTS_NAME, CreateStartScripts.class, createStartScriptsTask -> {
+            CreateStartScripts jcstressScripts = (CreateStartScripts) project.getTasks().getByName(TASK_JCSTRESS_SCRIPTS_NAME);
+            createStartScriptsTask.setDescription("Creates OS specific scripts to start a jcstress agent.");
+            createStartScriptsTask.setClasspath(project.files(agentJar, jcstressScripts.getClasspath()));
+
+            String mainClassName = JcstressAgent.class.getName();
+            if (isAtLeastGradle("6.0")) {
+                createStartScriptsTask.getMainClass().set(mainClassName);
+            } else {
+                createStartScriptsTask.setMainClassName(mainClassName);
+            }
+
+            createStartScriptsTask.setApplicationName(jcstressApplicationName + "-agent");
+            createStartScriptsTask.setOutputDir(new File(project.getBuildDir(), "agentScripts"));
+            createStartScriptsTask.setDefaultJvmOpts(jcstressScripts.getDefaultJvmOpts());
+        });
     }
 
     private static boolean isAtLeastGradle(String gradleVersion) {
@@ -301,8 +680,66 @@ public class JcstressPlugin implements Plugin<Project> {
     }
 
     private void configureInstallTasks(Sync installTask) {
-        installTask.doFirst(task -> {
-            File destinationDir = installTask.getDestinationDir();
+        installTask.doFirst(new CheckInstallationDirectory());
+        installTask.doLast(new MakeStartScriptExecutable(jcstressApplicationName));
+        installTask.doLast(new MakeStartScriptExecutable(jcstressApplicationName + "-agent"));
+        if (jcstressPluginExtension.getCds().getEnabled()) {
+            JcstressTask jcstressTask = (JcstressTask) project.getTasks().getByName(TASK_JCSTRESS_NAME);
+            CreateStartScripts startScripts = (CreateStartScripts) project.getTasks().getByName(TASK_JCSTRESS_SCRIPTS_NAME);
+            installTask.dependsOn(TASK_JCSTRESS_CDS_NAME);
+            installTask.doLast(new DumpInstalledArchive(jcstressApplicationName + ".jsa", startScripts.getClasspath(),
+                    classListFile(), project.provider(jcstressTask::javaExecutable)));
+        }
+    }
+
+    /**
+     * Dumps the archive the start scripts refer to. An archive is only used with the classpath it was dumped with, so
+     * it is dumped again from the installed jars, in the order of the start script classpath, with the class list of
+     * the {@code jcstressCds} training run.
+     */
+    private static class DumpInstalledArchive implements Action<Task> {
+
+        private final String archiveName;
+        private final FileCollection scriptClasspath;
+        private final Provider<RegularFile> classList;
+        private final Provider<String> javaExecutable;
+
+        DumpInstalledArchive(String archiveName, FileCollection scriptClasspath, Provider<RegularFile> classList,
+                             Provider<String> javaExecutable) {
+            this.archiveName = archiveName;
+            this.scriptClasspath = scriptClasspath;
+            this.classList = classList;
+            this.javaExecutable = javaExecutable;
+        }
+
+        @Override
+        public void execute(Task task) {
+            File lib;
+            try {
+                // the unix start script resolves the installation directory with symbolic links resolved
+                lib = new File(((Sync) task).getDestinationDir().getCanonicalFile(), "lib");
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to resolve the installation directory", e);
+            }
+            List<String> classpath = new ArrayList<>();
+            for (File file : scriptClasspath) {
+                classpath.add(new File(lib, file.getName()).getPath());
+            }
+            JcstressCds.dump(javaExecutable.get(), String.join(File.pathSeparator, classpath), classList.get().getAsFile(),
+                    new File(lib, archiveName), new File(task.getTemporaryDir(), "cds-dump.txt"));
+        }
+
+    }
+
+    /**
+     * Refuses to overwrite a directory that does not look like an earlier installation. Implemented as a class
+     * rather than a lambda, so that the action can be stored in the configuration cache.
+     */
+    private static class CheckInstallationDirectory implements Action<Task> {
+
+        @Override
+        public void execute(Task task) {
+            File destinationDir = ((Sync) task).getDestinationDir();
             if (destinationDir.isDirectory()) {
                 if (!new File(destinationDir, "lib").isDirectory() || !new File(destinationDir, "bin").isDirectory()) {
                     throw new GradleException("The specified installation directory '" + destinationDir
@@ -311,35 +748,45 @@ public class JcstressPlugin implements Plugin<Project> {
                             + "Alternatively, choose a different installation directory.");
                 }
             }
-        });
+        }
+
+    }
+
+    private static class MakeStartScriptExecutable implements Action<Task> {
+
+        private final String applicationName;
 
-        installTask.doLast(task ->
-        {
-            Path bin = Paths.get(installTask.getDestinationDir().getAbsolutePath(), "bin", jcstressApplicationName);
+        MakeStartScriptExecutable(String applicationName) {
+            this.applicationName = applicationName;
+        }
+
+        @Override
+        public void execute(Task task) {
+            Path bin = Paths.get(((Sync) task).getDestinationDir().getAbsolutePath(), "bin", applicationName);
             try {
                 Set<PosixFilePermission> posixFilePermissions = PosixFilePermissions.fromString("ugo+x");
                 Files.setPosixFilePermissions(bin, posixFilePermissions);
             } catch (IOException e) {
                 throw new UncheckedIOException("Failed to update attributes of [" + bin + "]", e);
             }
-        });
+        }
+
     }
 
-    private Sync addInstallAppTask() {
+    private void addInstallAppTask() {
         DistributionContainer distributions = (DistributionContainer) project.getExtensions().getByName("distributions");
 
         Distribution distribution = distributions.create("jcstress");
         setDistributionBaseName(distribution);
         configureDistSpec(distribution.getContents());
 
-        Sync installTask = project.getTasks().create(TASK_JCSTRESS_INSTALL_NAME, Sync.class);
-
-        installTask.setDescription("Installs the project as a JVM application along with libs and OS specific scripts.");
-        installTask.setGroup("Verification");
-        installTask.with(distribution.getContents());
-        installTask.into(project.file(project.getBuildDir() + "/install/" + jcstressApplicationName));
-
-        return installTask;
+        project.getTasks().register(TASK_JCSTRESS_INSTALL_NAME, Sync.class, installTask -> {
+            installTask.setDescription("Installs the project as a JVM application along with libs and OS specific scripts.");
+            installTask.setGroup("Verification");
+            installTask.with(distribution.getContents());
+            installTask.into(project.file(project.getBuildDir() + "/install/" + jcstressApplicationName));
+            configureInstallTasks(installTask);
+        });
     }
 
     private void setDistributionBaseName(Distribution distribution) {
@@ -369,33 +816,37 @@ public class JcstressPlugin implements Plugin<Project> {
         }
     }
 
-    private void setMainClass(JcstressTask jcstressTask) {
+    private void setMainClass(JavaExec task, String mainClass) {
         if (isAtLeastGradle("8.0")) {
-            jcstressTask.getMainClass().set("org.openjdk.jcstress.Main");
+            task.getMainClass().set(mainClass);
         } else {
             try {
-                Method setMainMethod = JcstressTask.class.getMethod("setMain", String.class);
-                setMainMethod.invoke(jcstressTask, "org.openjdk.jcstress.Main");
+                Method setMainMethod = JavaExec.class.getMethod("setMain", String.class);
+                setMainMethod.invoke(task, mainClass);
             } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-                throw new IllegalStateException("Failed to set main class to [org.openjdk.jcstress.Main]", e);
+                throw new IllegalStateException("Failed to set main class to [" + mainClass + "]", e);
             }
         }
     }
 
 
     private void configureDistSpec(CopySpec distSpec) {
-        final Task jar = project.getTasks().getByName(TASK_JCSTRESS_JAR_NAME);
-        final Task startScripts = project.getTasks().getByName(TASK_JCSTRESS_SCRIPTS_NAME);
+        final TaskProvider<Task> jar = project.getTasks().named(TASK_JCSTRESS_JAR_NAME);
+        final TaskProvider<Task> startScripts = project.getTasks().named(TASK_JCSTRESS_SCRIPTS_NAME);
+        final TaskProvider<Task> agentJar = project.getTasks().named(TASK_JCSTRESS_AGENT_JAR_NAME);
+        final TaskProvider<Task> agentStartScripts = project.getTasks().named(TASK_JCSTRESS_AGENT_SCRIPTS_NAME);
 
         CopySpec copy = project.copySpec();
         copy.from(project.file("src/dist"));
         copy.into("lib", cs -> {
             cs.from(jar);
+            cs.from(agentJar);
             cs.from(jcstressConfiguration.plus(mainRuntimeClasspath));
         });
 
         copy.into("bin", cs -> {
             cs.from(startScripts);
+            cs.from(agentStartScripts);
             if(isAtLeastGradle("8.3")) {
                 cs.filePermissions(filePermissions -> {
                     filePermissions.unix(0755);
@@ -408,26 +859,16 @@ public class JcstressPlugin implements Plugin<Project> {
         distSpec.with(copy);
     }
 
-    private static File getAndCreateDirectory(File dir, String... subdirectory) {
-        File path = Paths.get(dir.getPath(), subdirectory).toFile();
-        path.mkdirs();
-        return path;
-    }
-
     private void updateIdeaPluginConfiguration() {
-        project.afterEvaluate(project -> {
-            IdeaPlugin ideaPlugin = project.getPlugins().findPlugin(IdeaPlugin.class);
-            if (ideaPlugin != null) {
-                IdeaModel ideaModel = project.getExtensions().getByType(IdeaModel.class);
-                IdeaModule module = ideaModel.getModule();
-                module.getScopes()
-                        .get("TEST")
-                        .get("plus")
-                        .add(jcstressConfiguration);
-
-                Set<File> jcstressSourceDirs = jcstressSourceSet.getJava().getSrcDirs();
-                module.getTestSources().from(jcstressSourceDirs);
-            }
+        project.getPlugins().withType(IdeaPlugin.class, ideaPlugin -> {
+            IdeaModel ideaModel = project.getExtensions().getByType(IdeaModel.class);
+            IdeaModule module = ideaModel.getModule();
+            module.getScopes()
+                    .get("TEST")
+                    .get("plus")
+                    .add(jcstressConfiguration);
+
+            module.getTestSources().from(jcstressSourceSet.getJava().getSourceDirectories());
         });
     }
 
@@ -441,28 +882,9 @@ public class JcstressPlugin implements Plugin<Project> {
         }
     }
 
-    private void addDependency(Project project, String configurationName, String dependencyName) {
-        DependencyHandler dependencyHandler = this.project.getDependencies();
-        Dependency dependency = dependencyHandler.create(dependencyName);
-
-        project.getConfigurations().getByName(configurationName).getDependencies().add(dependency);
-    }
-
-
     public static String getFileNameFromDependency(String gradleDependencyName) {
         String[] split = gradleDependencyName.split(":");
         return split[1] + "-" + split[2] + ".jar";
     }
 
-    /**
-     * Dummy method, loads configuration dependencies.
-     *
-     * @param configuration configuration
-     * @param jarFileName   jar file name
-     * @return ignored
-     */
-    private static Set<File> filterConfiguration(Configuration configuration, final String jarFileName) {
-        return configuration.filter(it -> it.getName().contains(jarFileName)).getFiles();
-    }
-
 }
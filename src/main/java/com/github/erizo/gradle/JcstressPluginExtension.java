@@ -1,12 +1,20 @@
 package com.github.erizo.gradle;
 
+import org.gradle.api.Action;
+import org.gradle.api.NamedDomainObjectContainer;
 import org.gradle.api.Project;
+import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.model.ReplacedBy;
+import org.gradle.api.provider.Provider;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
+ * Configuration of the jcstress plugin. The options from {@code concurrency} to {@code affinityMode} map to harness
+ * flags and are passed to jcstress by {@link #buildArgs()}; the options after them configure how the plugin runs the
+ * harness.
+ *
  * @author jerzykrlk
  */
 public class JcstressPluginExtension {
@@ -40,9 +48,39 @@ public class JcstressPluginExtension {
     private String heapPerFork;
     private boolean splitPerActor;
     private String affinityMode;
+    private String shards;
+    private boolean incremental;
+    private boolean cacheable;
+    private boolean useJar;
+    private String throughputBaseline;
+    private String throughputTolerance;
+    private boolean failOnThroughputRegression = true;
+    private String timeBudget;
+    private String durationHistoryDir;
+    private List<String> agents = new ArrayList<>();
+    private String agentToken;
+    private boolean failFast;
+    private boolean cpuLeases = true;
+    private String testTimeout;
+    private String runTimeout;
+    private final JcstressProfilingOptions profiling;
+    private final JcstressRerunOptions rerun;
+    private final JcstressEarlyStoppingOptions earlyStopping;
+    private final JcstressCdsOptions cds;
+    private final JcstressJmhOptions jmh;
+    private final JcstressMatrix matrix;
+    private final NamedDomainObjectContainer<JcstressVariant> variants;
 
     public JcstressPluginExtension(final Project project) {
         this.project = project;
+        ObjectFactory objects = project.getObjects();
+        this.profiling = new JcstressProfilingOptions(objects);
+        this.rerun = new JcstressRerunOptions(objects);
+        this.earlyStopping = new JcstressEarlyStoppingOptions(objects);
+        this.cds = new JcstressCdsOptions(objects);
+        this.jmh = new JcstressJmhOptions(objects);
+        this.matrix = new JcstressMatrix(objects);
+        this.variants = objects.domainObjectContainer(JcstressVariant.class, name -> new JcstressVariant(name, objects));
     }
 
     public List<String> buildArgs() {
@@ -74,6 +112,15 @@ public class JcstressPluginExtension {
         return result;
     }
 
+    /**
+     * Harness arguments, computed from the current configuration whenever the provider is queried.
+     *
+     * @return lazy harness arguments
+     */
+    public Provider<List<String>> getArguments() {
+        return project.provider(this::buildArgs);
+    }
+
     public static void addParameter(List<String> result, String param, String value) {
         if ("-v".equals(param) && "true".equals(value)) {
             result.add(param);
@@ -305,6 +352,245 @@ public class JcstressPluginExtension {
         this.affinityMode = affinityMode;
     }
 
+    /**
+     * Number of harness JVMs to split the suite into. Each shard runs a disjoint part of the tests on its own share
+     * of the CPUs.
+     */
+    public String getShards() {
+        return shards;
+    }
+
+    public void setShards(String shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * Skip tests whose bytecode, and the project classes it refers to, did not change since they last passed.
+     */
+    public boolean getIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Store the report in the build cache, and reuse it when the classpath, options and JVM did not change.
+     */
+    public boolean getCacheable() {
+        return cacheable;
+    }
+
+    public void setCacheable(boolean cacheable) {
+        this.cacheable = cacheable;
+    }
+
+    /**
+     * Run the {@code jcstress} task from the {@code jcstressJar} archive instead of the class directories.
+     */
+    public boolean getUseJar() {
+        return useJar;
+    }
+
+    public void setUseJar(boolean useJar) {
+        this.useJar = useJar;
+    }
+
+    /**
+     * Results file of a baseline run. When set, the sample throughput of every test is compared with the baseline.
+     */
+    public String getThroughputBaseline() {
+        return throughputBaseline;
+    }
+
+    public void setThroughputBaseline(String throughputBaseline) {
+        this.throughputBaseline = throughputBaseline;
+    }
+
+    /**
+     * Allowed drop of sample throughput, in percent of the baseline.
+     */
+    public String getThroughputTolerance() {
+        return throughputTolerance;
+    }
+
+    public void setThroughputTolerance(String throughputTolerance) {
+        this.throughputTolerance = throughputTolerance;
+    }
+
+    /**
+     * Fail the build on a throughput regression, instead of only logging a warning.
+     */
+    public boolean getFailOnThroughputRegression() {
+        return failOnThroughputRegression;
+    }
+
+    public void setFailOnThroughputRegression(boolean failOnThroughputRegression) {
+        this.failOnThroughputRegression = failOnThroughputRegression;
+    }
+
+    /**
+     * Wall time the run should fit in, e.g. {@code 15m}, {@code 900s} or {@code 1h}. Overrides {@code timeMillis}
+     * and {@code iterations}.
+     */
+    public String getTimeBudget() {
+        return timeBudget;
+    }
+
+    public void setTimeBudget(String timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Directory keeping the wall times of earlier runs for {@code timeBudget}, {@code build/jcstress} by default.
+     */
+    public String getDurationHistoryDir() {
+        return durationHistoryDir;
+    }
+
+    public void setDurationHistoryDir(String durationHistoryDir) {
+        this.durationHistoryDir = durationHistoryDir;
+    }
+
+    public List<String> getAgents() {
+        return agents;
+    }
+
+    public void setAgents(List<String> agents) {
+        this.agents = agents;
+    }
+
+    public String getAgentToken() {
+        return agentToken;
+    }
+
+    public void setAgentToken(String agentToken) {
+        this.agentToken = agentToken;
+    }
+
+    /**
+     * Stop the run on the first test with a forbidden outcome or an error, and fail with a partial report.
+     */
+    public boolean getFailFast() {
+        return failFast;
+    }
+
+    public void setFailFast(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    /**
+     * Lease CPUs from the pool shared by the jcstress tasks of all projects of the build. Needs Gradle 6.1 or newer.
+     */
+    public boolean getCpuLeases() {
+        return cpuLeases;
+    }
+
+    public void setCpuLeases(boolean cpuLeases) {
+        this.cpuLeases = cpuLeases;
+    }
+
+    /**
+     * Longest life of a forked test JVM, e.g. {@code 5m}. Stuck forks are dumped and killed, and their test is
+     * reported as {@code TIMEOUT}.
+     */
+    public String getTestTimeout() {
+        return testTimeout;
+    }
+
+    public void setTestTimeout(String testTimeout) {
+        this.testTimeout = testTimeout;
+    }
+
+    /**
+     * Longest duration of the whole run, e.g. {@code 2h}.
+     */
+    public String getRunTimeout() {
+        return runTimeout;
+    }
+
+    public void setRunTimeout(String runTimeout) {
+        this.runTimeout = runTimeout;
+    }
+
+    /**
+     * Profiling of the forked test JVMs.
+     */
+    public JcstressProfilingOptions getProfiling() {
+        return profiling;
+    }
+
+    public void profiling(Action<? super JcstressProfilingOptions> action) {
+        action.execute(profiling);
+    }
+
+    /**
+     * Re-runs of interesting and borderline tests with escalated settings.
+     */
+    public JcstressRerunOptions getRerun() {
+        return rerun;
+    }
+
+    public void rerun(Action<? super JcstressRerunOptions> action) {
+        action.execute(rerun);
+    }
+
+    /**
+     * Early stopping of tests whose outcome distribution has converged.
+     */
+    public JcstressEarlyStoppingOptions getEarlyStopping() {
+        return earlyStopping;
+    }
+
+    public void earlyStopping(Action<? super JcstressEarlyStoppingOptions> action) {
+        action.execute(earlyStopping);
+    }
+
+    /**
+     * Class data sharing archive of the harness and its forks.
+     */
+    public JcstressCdsOptions getCds() {
+        return cds;
+    }
+
+    public void cds(Action<? super JcstressCdsOptions> action) {
+        action.execute(cds);
+    }
+
+    /**
+     * JMH benchmarks of the actors of the tests.
+     */
+    public JcstressJmhOptions getJmh() {
+        return jmh;
+    }
+
+    public void jmh(Action<? super JcstressJmhOptions> action) {
+        action.execute(jmh);
+    }
+
+    /**
+     * JDKs to run the tests on, each in its own task.
+     */
+    public JcstressMatrix getMatrix() {
+        return matrix;
+    }
+
+    public void matrix(Action<? super JcstressMatrix> action) {
+        action.execute(matrix);
+    }
+
+    /**
+     * JVM flag variants to run the tests with, each in its own task.
+     */
+    public NamedDomainObjectContainer<JcstressVariant> getVariants() {
+        return variants;
+    }
+
+    public void variants(Action<? super NamedDomainObjectContainer<JcstressVariant>> action) {
+        action.execute(variants);
+    }
+
     public boolean getParse() {
         return parse;
     }
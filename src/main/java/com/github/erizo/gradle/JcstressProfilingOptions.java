@@ -0,0 +1,54 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+
+/**
+ * Profiling of the forked test JVMs, configured in the {@code profiling} block of the {@code jcstress} extension.
+ */
+public class JcstressProfilingOptions {
+
+    private final Property<Boolean> jfr;
+    private final Property<String> settings;
+    private final Property<Boolean> trace;
+
+    public JcstressProfilingOptions(ObjectFactory objects) {
+        this.jfr = objects.property(Boolean.class).convention(false);
+        this.settings = objects.property(String.class).convention("profile");
+        this.trace = objects.property(Boolean.class).convention(false);
+    }
+
+    /**
+     * Record every fork with Java Flight Recorder. Recordings are stored in {@code jfr} in the report directory.
+     */
+    public boolean getJfr() {
+        return jfr.get();
+    }
+
+    public void setJfr(boolean jfr) {
+        this.jfr.set(jfr);
+    }
+
+    /**
+     * JFR settings: {@code default}, {@code profile}, or the path of a {@code .jfc} file.
+     */
+    public String getSettings() {
+        return settings.get();
+    }
+
+    public void setSettings(String settings) {
+        this.settings.set(settings);
+    }
+
+    /**
+     * Write a timeline of the run, {@code jcstress-trace.json} in the report directory.
+     */
+    public boolean getTrace() {
+        return trace.get();
+    }
+
+    public void setTrace(boolean trace) {
+        this.trace.set(trace);
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.model.ObjectFactory;
+
+/**
+ * Status of a running jcstress task.
+ * <p>
+ * Gradle shows the status of an operation in its console through an internal API, which may change in any release.
+ * Only {@link JcstressGradleProgressLogger} refers to it, and is only loaded here; when it is not available, the
+ * status is logged from time to time instead.
+ */
+interface JcstressProgressLogger {
+
+    void progress(String status);
+
+    void completed();
+
+    static JcstressProgressLogger start(ObjectFactory objects, Logger logger, String description) {
+        JcstressProgressLogger result;
+        try {
+            result = objects.newInstance(JcstressGradleProgressLogger.class).start(description);
+        } catch (RuntimeException | LinkageError e) {
+            logger.debug("Gradle progress logging is not available, logging the jcstress status instead.", e);
+            result = new JcstressLoggingProgressLogger(logger, System::currentTimeMillis);
+        }
+        result.progress("starting");
+        return result;
+    }
+
+}
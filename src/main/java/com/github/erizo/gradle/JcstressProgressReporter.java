@@ -0,0 +1,240 @@
+package com.github.erizo.gradle;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns harness output into a one-line progress status: finished tests, remaining forks, estimated time left,
+ * the number of forbidden and interesting outcomes seen so far, and the last reported test.
+ * <p>
+ * The work is announced with {@link #expect} once the tests of a run or a round are known, and shrinks with
+ * {@link #stopped} when a test needs no more forks. Finished tests and remaining forks are counted from result lines,
+ * which the harness only prints for every fork in verbose mode; otherwise the status shows the results and running
+ * JVMs from the progress line of the harness. Only result lines, outcome rows and progress lines are looked at, up to
+ * the results summary of every run, and the status is published at most every {@value #UPDATE_INTERVAL_MILLIS} ms, so
+ * that following a chatty harness costs next to nothing.
+ */
+class JcstressProgressReporter implements HarnessOutputListener {
+
+    static final long UPDATE_INTERVAL_MILLIS = 200;
+
+    private static final Pattern HARNESS_ETA = Pattern.compile("\\(ETA:\\s*([^)]+)\\)");
+    private static final Pattern HARNESS_RESULTS = Pattern.compile("\\(Results:\\s*(\\d+) planned;([^)]*)\\)");
+    private static final Pattern COUNT = Pattern.compile("\\d+");
+
+    private final Consumer<String> progress;
+    private final LongSupplier clock;
+    private final long startMillis;
+
+    private final Map<String, Integer> expectedForks = new HashMap<>();
+    private final Map<String, Integer> forks = new HashMap<>();
+    private final Map<HarnessInvocation, Boolean> inTable = new HashMap<>();
+    private final Set<HarnessInvocation> completed = new HashSet<>();
+    private final Map<HarnessInvocation, int[]> harnessResults = new HashMap<>();
+    private final Map<HarnessInvocation, Integer> runningJvms = new HashMap<>();
+    private int totalForks;
+    private boolean forksKnown = true;
+    private boolean everyForkPrinted = true;
+    private int testsDone;
+    private int forksDone;
+    private int forbidden;
+    private int interesting;
+    private String lastTest;
+    private String harnessEta;
+    private long lastUpdateMillis;
+
+    /**
+     * @param progress receives status lines
+     */
+    JcstressProgressReporter(Consumer<String> progress, LongSupplier clock) {
+        this.progress = progress;
+        this.clock = clock;
+        this.startMillis = clock.getAsLong();
+        this.lastUpdateMillis = startMillis;
+    }
+
+    /**
+     * Adds forks to run, e.g. of a run, or of a round of re-runs.
+     *
+     * @param tests           tests to run
+     * @param forksPerTest    forks of every test, {@code 0} if not known
+     * @param everyForkPrinted whether the harness prints the result of every fork, in verbose mode
+     */
+    synchronized void expect(Collection<String> tests, int forksPerTest, boolean everyForkPrinted) {
+        int testForks = Math.max(1, forksPerTest);
+        forksKnown &= forksPerTest > 0;
+        this.everyForkPrinted &= everyForkPrinted;
+        for (String test : tests) {
+            if (isDone(test)) {
+                testsDone--;
+            }
+            expectedForks.merge(test, testForks, Integer::sum);
+            totalForks += testForks;
+        }
+    }
+
+    /**
+     * Drops the forks of a test that are not run, e.g. after it converged.
+     */
+    synchronized void stopped(String test) {
+        Integer expected = expectedForks.get(test);
+        int done = forks.getOrDefault(test, 0);
+        if (expected != null && done < expected) {
+            totalForks -= expected - done;
+            expectedForks.put(test, done);
+            testsDone++;
+        }
+    }
+
+    private boolean isDone(String test) {
+        Integer expected = expectedForks.get(test);
+        return expected != null && forks.getOrDefault(test, 0) >= expected;
+    }
+
+    @Override
+    public synchronized void onLine(HarnessInvocation invocation, String line) {
+        if (completed.contains(invocation)) {
+            return;
+        }
+        if (line.startsWith(JcstressStatusCollector.RUN_RESULTS)) {
+            // the summary repeats the results of the run
+            completed.add(invocation);
+            inTable.remove(invocation);
+            return;
+        }
+        Matcher result = JcstressResultParser.RESULT_LINE.matcher(line);
+        if (result.matches()) {
+            onFork(result.group(2));
+            inTable.put(invocation, false);
+        } else if (line.indexOf("(ETA:") >= 0) {
+            onHarnessProgress(invocation, line);
+        } else if (JcstressResultParser.TABLE_HEADER.matcher(line).matches()) {
+            inTable.put(invocation, lastTest != null);
+        } else if (Boolean.TRUE.equals(inTable.get(invocation))) {
+            onOutcome(line);
+        }
+        publish(false);
+    }
+
+    private void onHarnessProgress(HarnessInvocation invocation, String line) {
+        Matcher eta = HARNESS_ETA.matcher(line);
+        if (eta.find()) {
+            harnessEta = eta.group(1).trim();
+        }
+        Matcher jvms = JcstressTraceWriter.JVMS.matcher(line);
+        if (jvms.find()) {
+            runningJvms.put(invocation, Integer.parseInt(jvms.group(2)));
+        }
+        Matcher results = HARNESS_RESULTS.matcher(line);
+        if (results.find()) {
+            int done = 0;
+            Matcher count = COUNT.matcher(results.group(2));
+            while (count.find()) {
+                done += Integer.parseInt(count.group());
+            }
+            harnessResults.put(invocation, new int[]{done, Integer.parseInt(results.group(1))});
+        }
+    }
+
+    @Override
+    public synchronized void finished(HarnessInvocation invocation) {
+        runningJvms.remove(invocation);
+    }
+
+    private void onFork(String test) {
+        lastTest = test;
+        forksDone++;
+        int testForks = forks.merge(test, 1, Integer::sum);
+        if (testForks == expectedForks.getOrDefault(test, 1)) {
+            testsDone++;
+        }
+    }
+
+    private void onOutcome(String line) {
+        Matcher row = JcstressResultParser.TABLE_ROW.matcher(line);
+        if (!row.matches() || "0".equals(row.group(2))) {
+            return;
+        }
+        String expectation = row.group(3).toUpperCase(Locale.ROOT);
+        if (expectation.equals("FORBIDDEN")) {
+            forbidden++;
+        } else if (expectation.contains("INTERESTING")) {
+            interesting++;
+        }
+    }
+
+    /**
+     * @param force publish even if the previous status is recent
+     */
+    synchronized void publish(boolean force) {
+        long now = clock.getAsLong();
+        if (!force && now - lastUpdateMillis < UPDATE_INTERVAL_MILLIS) {
+            return;
+        }
+        lastUpdateMillis = now;
+        progress.accept(status(now));
+    }
+
+    String status(long now) {
+        StringBuilder result = new StringBuilder();
+        if (everyForkPrinted) {
+            result.append(testsDone);
+            if (!expectedForks.isEmpty()) {
+                result.append('/').append(expectedForks.size());
+            }
+            result.append(" tests");
+            if (forksKnown && totalForks > 0) {
+                result.append(", ").append(Math.max(0, totalForks - forksDone)).append(" forks left");
+            }
+        } else if (!harnessResults.isEmpty()) {
+            int done = 0;
+            int planned = 0;
+            for (int[] counts : harnessResults.values()) {
+                done += counts[0];
+                planned += counts[1];
+            }
+            result.append(done).append('/').append(planned).append(" results");
+        }
+        if (!runningJvms.isEmpty()) {
+            int jvms = 0;
+            for (int running : runningJvms.values()) {
+                jvms += running;
+            }
+            separate(result).append(jvms).append(" JVMs running");
+        }
+        String eta = eta(now);
+        if (eta != null) {
+            separate(result).append("ETA ").append(eta);
+        }
+        separate(result).append(forbidden).append(" forbidden, ").append(interesting).append(" interesting");
+        if (lastTest != null) {
+            result.append(", last ").append(lastTest);
+        }
+        return result.toString();
+    }
+
+    private static StringBuilder separate(StringBuilder status) {
+        return status.length() > 0 ? status.append(", ") : status;
+    }
+
+    private String eta(long now) {
+        if (harnessEta != null) {
+            return harnessEta;
+        }
+        if (!everyForkPrinted || forksDone == 0 || forksDone >= totalForks) {
+            return null;
+        }
+        long remainingMillis = (now - startMillis) * (totalForks - forksDone) / forksDone;
+        long seconds = remainingMillis / 1000;
+        return seconds >= 60 ? (seconds / 60) + "m " + (seconds % 60) + "s" : seconds + "s";
+    }
+
+}
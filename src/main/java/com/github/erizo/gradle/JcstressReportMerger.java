@@ -0,0 +1,142 @@
+package com.github.erizo.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Combines the reports of several harness runs into one report directory.
+ * <p>
+ * Every run reports into its own directory. Per-test pages are copied to the top level of the report directory,
+ * and a new {@code index.html} links to the pages and to the index of each run.
+ */
+class JcstressReportMerger {
+
+    private final File reportDir;
+
+    JcstressReportMerger(File reportDir) {
+        this.reportDir = reportDir;
+    }
+
+    /**
+     * @param invocations  runs to merge
+     * @param upToDateTests tests that were not run, whose pages from a previous run are kept
+     */
+    void merge(List<HarnessInvocation> invocations, Collection<String> upToDateTests) {
+        merge(invocations, upToDateTests, null);
+    }
+
+    /**
+     * Merges the reports of a run that may have been stopped early. Stopped runs write no report of their own, so
+     * their tests are listed without links.
+     *
+     * @param invocations   runs to merge
+     * @param upToDateTests tests that were not run, whose pages from a previous run are kept
+     * @param stopReason    why the run was stopped, or {@code null} if it ran to the end
+     */
+    void merge(List<HarnessInvocation> invocations, Collection<String> upToDateTests, String stopReason) {
+        reportDir.mkdirs();
+        for (HarnessInvocation invocation : invocations) {
+            copyTestPages(invocation.getReportDir());
+        }
+        writeIndex(invocations, upToDateTests, stopReason);
+    }
+
+    private void copyTestPages(File runReportDir) {
+        if (!runReportDir.isDirectory()) {
+            return;
+        }
+        Path source = runReportDir.toPath();
+        Path target = reportDir.toPath();
+        try {
+            Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Path relative = source.relativize(file);
+                    if (!relative.toString().equals("index.html")) {
+                        Path destination = target.resolve(relative.toString());
+                        Files.createDirectories(destination.getParent());
+                        Files.copy(file, destination, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to merge jcstress report [" + runReportDir + "]", e);
+        }
+    }
+
+    private void writeIndex(List<HarnessInvocation> invocations, Collection<String> upToDateTests, String stopReason) {
+        File index = new File(reportDir, "index.html");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(index.toPath(), StandardCharsets.UTF_8))) {
+            out.println("<!DOCTYPE html>");
+            out.println("<html><head><meta charset=\"UTF-8\"><title>jcstress report</title></head><body>");
+            out.println("<h1>jcstress report</h1>");
+            if (stopReason != null) {
+                out.println("<p><strong>The run was stopped early: " + escape(stopReason) + ".</strong> "
+                        + "Results are partial, see " + JcstressResults.FILE_NAME + " for the outcomes reported so far.</p>");
+            }
+            for (HarnessInvocation invocation : invocations) {
+                File runIndexFile = new File(invocation.getReportDir(), "index.html");
+                String runIndex = runIndexFile.isFile()
+                        ? reportDir.toPath().relativize(runIndexFile.toPath()).toString().replace(File.separatorChar, '/')
+                        : null;
+                out.println("<h2>" + link(runIndex, invocation.getName()) + "</h2>");
+                out.println("<ul>");
+                for (String test : invocation.getTests()) {
+                    String page = test + ".html";
+                    out.println("<li>" + link(new File(reportDir, page).isFile() ? page : runIndex, test) + "</li>");
+                }
+                out.println("</ul>");
+            }
+            if (!upToDateTests.isEmpty()) {
+                out.println("<h2>Up-to-date tests, results of a previous run</h2>");
+                out.println("<ul>");
+                for (String test : upToDateTests) {
+                    String page = test + ".html";
+                    out.println("<li>" + link(new File(reportDir, page).isFile() ? page : null, test) + "</li>");
+                }
+                out.println("</ul>");
+            }
+            writeRecordings(out);
+            out.println("</body></html>");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write jcstress report index [" + index + "]", e);
+        }
+    }
+
+    private void writeRecordings(PrintWriter out) {
+        File[] recordings = new File(reportDir, JcstressJfrProfiler.DIRECTORY).listFiles((dir, name) -> name.endsWith(".jfr"));
+        if (recordings == null || recordings.length == 0) {
+            return;
+        }
+        Arrays.sort(recordings);
+        out.println("<h2>Flight recordings</h2>");
+        out.println("<ul>");
+        for (File recording : recordings) {
+            String link = JcstressJfrProfiler.DIRECTORY + "/" + recording.getName();
+            out.println("<li><a href=\"" + link + "\">" + escape(recording.getName()) + "</a></li>");
+        }
+        out.println("</ul>");
+    }
+
+    private static String link(String href, String text) {
+        return href != null ? "<a href=\"" + href + "\">" + escape(text) + "</a>" : escape(text);
+    }
+
+    static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+
+/**
+ * Re-runs of interesting and borderline tests, configured in the {@code rerun} block of the {@code jcstress}
+ * extension.
+ */
+public class JcstressRerunOptions {
+
+    private final Property<Integer> rounds;
+    private final Property<Long> minSamples;
+    private final Property<Integer> timeFactor;
+    private final Property<Integer> iterationsFactor;
+    private final Property<Integer> forksFactor;
+
+    public JcstressRerunOptions(ObjectFactory objects) {
+        this.rounds = objects.property(Integer.class).convention(0);
+        this.minSamples = objects.property(Long.class).convention(10_000L);
+        this.timeFactor = objects.property(Integer.class).convention(2);
+        this.iterationsFactor = objects.property(Integer.class).convention(1);
+        this.forksFactor = objects.property(Integer.class).convention(2);
+    }
+
+    /**
+     * Number of re-run rounds after the main pass. {@code 0} disables re-runs.
+     */
+    public int getRounds() {
+        return rounds.get();
+    }
+
+    public void setRounds(int rounds) {
+        this.rounds.set(rounds);
+    }
+
+    /**
+     * Tests that reported fewer samples are re-run. Samples of passed tests are only reported with
+     * {@code verbose = true}.
+     */
+    public long getMinSamples() {
+        return minSamples.get();
+    }
+
+    public void setMinSamples(long minSamples) {
+        this.minSamples.set(minSamples);
+    }
+
+    /**
+     * {@code timeMillis} is multiplied by this factor in every round.
+     */
+    public int getTimeFactor() {
+        return timeFactor.get();
+    }
+
+    public void setTimeFactor(int timeFactor) {
+        this.timeFactor.set(timeFactor);
+    }
+
+    /**
+     * {@code iterations} is multiplied by this factor in every round.
+     */
+    public int getIterationsFactor() {
+        return iterationsFactor.get();
+    }
+
+    public void setIterationsFactor(int iterationsFactor) {
+        this.iterationsFactor.set(iterationsFactor);
+    }
+
+    /**
+     * {@code forks} is multiplied by this factor in every round.
+     */
+    public int getForksFactor() {
+        return forksFactor.get();
+    }
+
+    public void setForksFactor(int forksFactor) {
+        this.forksFactor.set(forksFactor);
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.github.erizo.gradle;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chooses the tests to run again after a pass, and the harness settings of every re-run round.
+ * <p>
+ * A test is re-run when it reported an error, when it observed an {@code ACCEPTABLE_INTERESTING} outcome, or when
+ * it reported fewer samples than the minimum. Failed tests are not re-run, they already fail the build. In round
+ * {@code n}, {@code timeMillis}, {@code iterations} and {@code forks} are the settings of the main pass multiplied by
+ * their factor to the power of {@code n}. Settings with a factor of {@code 1} are left as they are; unset settings
+ * with a larger factor start from 1000 ms, 1 iteration and 1 fork, the values the throughput check assumes.
+ */
+class JcstressRerunPolicy {
+
+    static final long DEFAULT_TIME_MILLIS = 1000;
+
+    private final long minSamples;
+    private final int timeFactor;
+    private final int iterationsFactor;
+    private final int forksFactor;
+
+    JcstressRerunPolicy(long minSamples, int timeFactor, int iterationsFactor, int forksFactor) {
+        this.minSamples = minSamples;
+        this.timeFactor = timeFactor;
+        this.iterationsFactor = iterationsFactor;
+        this.forksFactor = forksFactor;
+    }
+
+    /**
+     * @param results results of the previous pass
+     * @param tests   tests that ran in the previous pass
+     * @return tests to run again, in the order given
+     */
+    List<String> select(JcstressResults results, Collection<String> tests) {
+        List<String> result = new ArrayList<>();
+        for (String test : tests) {
+            JcstressTestResult testResult = results.get(test);
+            if (testResult != null && reason(testResult) != null) {
+                result.add(test);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return why the test should be run again, or {@code null} if it should not
+     */
+    String reason(JcstressTestResult test) {
+        String status = test.getStatus();
+        if (status != null && status.contains("ERROR")) {
+            return "error";
+        }
+        if ("FAILED".equals(status)) {
+            return null;
+        }
+        for (JcstressTestResult.Outcome outcome : test.getOutcomes()) {
+            if (outcome.getSamples() > 0 && "ACCEPTABLE_INTERESTING".equals(outcome.getExpectation())) {
+                return "interesting outcome";
+            }
+        }
+        if (!test.getOutcomes().isEmpty() && test.getSamples() < minSamples) {
+            return "only " + test.getSamples() + " samples";
+        }
+        return null;
+    }
+
+    /**
+     * @param harnessArgs harness arguments of the main pass
+     * @param round       re-run round, starting at 1
+     * @return harness arguments of the round
+     */
+    List<String> escalate(List<String> harnessArgs, int round) {
+        List<String> result = harnessArgs;
+        result = multiply(result, "-time", DEFAULT_TIME_MILLIS, timeFactor, round);
+        result = multiply(result, "-iters", 1, iterationsFactor, round);
+        result = multiply(result, "-f", 1, forksFactor, round);
+        return result;
+    }
+
+    /**
+     * @return options of the round, named as in {@link JcstressResults#getOptions()}
+     */
+    Map<String, String> options(List<String> harnessArgs, int round) {
+        List<String> escalated = escalate(harnessArgs, round);
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put("timeMillis", HarnessArguments.valueOf(escalated, "-time"));
+        result.put("iterations", HarnessArguments.valueOf(escalated, "-iters"));
+        result.put("forks", HarnessArguments.valueOf(escalated, "-f"));
+        result.values().removeIf(value -> value == null);
+        return result;
+    }
+
+    private static List<String> multiply(List<String> args, String option, long defaultValue, int factor, int round) {
+        if (factor <= 1) {
+            return args;
+        }
+        String value = HarnessArguments.valueOf(args, option);
+        long base = value != null ? Long.parseLong(value.trim()) : defaultValue;
+        return HarnessArguments.with(args, option, Long.toString(base * (long) Math.pow(factor, round)));
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.github.erizo.gradle;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds {@link JcstressResults} from harness output while the harness is running.
+ * <p>
+ * Every fork of a test is reported with a {@code [STATUS] test} line, optionally followed by a table of observed
+ * outcomes with their sample counts and expectations. Only the current test and table of every run are kept, so
+ * memory use does not depend on the length of the output. The harness repeats interesting and failed tests after
+ * {@code RUN RESULTS}; that summary is skipped, so forks are not counted twice.
+ * <p>
+ * The harness runs forks of different tests at the same time and prints neither their durations nor their
+ * iterations, so times are only kept for the whole run: from the start of its first harness to the end of the last.
+ */
+class JcstressResultParser implements HarnessOutputListener {
+
+    static final Pattern RESULT_LINE = Pattern.compile("^\\s*\\[([A-Z][A-Z _-]*)]\\s+([\\w$.]+)(?:\\s.*)?$");
+    static final Pattern TABLE_HEADER = Pattern.compile("^\\s*(?:RESULT\\s+SAMPLES|Observed state\\s+Occurrences)\\b.*$");
+    static final Pattern TABLE_ROW = Pattern.compile("^\\s*(\\S.*?)\\s+([\\d,]+)\\s+(?:[\\d.,]+%\\s+)?([A-Za-z_]+)(?:\\s+(.*?))?\\s*$");
+
+    private final JcstressResults results;
+    private final LongSupplier clock;
+    private final Map<HarnessInvocation, RunState> runs = new ConcurrentHashMap<>();
+    private long startMillis = -1;
+
+    JcstressResultParser(JcstressResults results) {
+        this(results, System::currentTimeMillis);
+    }
+
+    JcstressResultParser(JcstressResults results, LongSupplier clock) {
+        this.results = results;
+        this.clock = clock;
+    }
+
+    JcstressResults getResults() {
+        return results;
+    }
+
+    @Override
+    public void started(HarnessInvocation invocation) {
+        runs.put(invocation, new RunState());
+        synchronized (this) {
+            if (startMillis < 0) {
+                startMillis = clock.getAsLong();
+            }
+        }
+    }
+
+    @Override
+    public void onLine(HarnessInvocation invocation, String line) {
+        RunState run = runs.computeIfAbsent(invocation, key -> new RunState());
+        if (run.completed) {
+            return;
+        }
+        if (line.startsWith(JcstressStatusCollector.RUN_RESULTS)) {
+            run.completed = true;
+            run.current = null;
+            return;
+        }
+
+        Matcher result = RESULT_LINE.matcher(line);
+        if (result.matches()) {
+            run.current = results.test(result.group(2));
+            run.current.addFork(result.group(1));
+            run.inTable = false;
+            return;
+        }
+        if (run.current == null) {
+            return;
+        }
+        if (TABLE_HEADER.matcher(line).matches()) {
+            run.inTable = true;
+            return;
+        }
+        if (run.inTable) {
+            Matcher row = TABLE_ROW.matcher(line);
+            if (row.matches()) {
+                run.current.addOutcome(row.group(1).trim(), Long.parseLong(row.group(2).replace(",", "")),
+                        row.group(3).toUpperCase(), row.group(4));
+            } else if (line.trim().isEmpty()) {
+                run.inTable = false;
+            }
+        }
+    }
+
+    /**
+     * Completes the results of a finished run. Tests of a completed run that were not reported passed, because the
+     * harness only prints passed tests in verbose mode.
+     *
+     * @param invocation finished run
+     */
+    @Override
+    public void finished(HarnessInvocation invocation) {
+        synchronized (this) {
+            if (startMillis >= 0) {
+                results.setDurationMillis(Math.max(results.getDurationMillis(), clock.getAsLong() - startMillis));
+            }
+        }
+        RunState run = runs.get(invocation);
+        if (run == null || !run.completed) {
+            return;
+        }
+        List<String> tests = invocation.getTests();
+        for (String test : tests) {
+            if (results.get(test) == null) {
+                results.test(test).addStatus(JcstressIncrementalState.PASSED);
+            }
+        }
+    }
+
+    private static class RunState {
+
+        private JcstressTestResult current;
+        private boolean inTable;
+        private boolean completed;
+
+    }
+
+}
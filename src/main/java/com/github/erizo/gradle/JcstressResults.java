@@ -0,0 +1,190 @@
+package com.github.erizo.gradle;
+
+import groovy.json.JsonOutput;
+import groovy.json.JsonSlurper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Machine-readable results of a jcstress run, stored as {@value #FILE_NAME} in the report directory.
+ * <p>
+ * The duration and the iterations are those of the whole run: the harness runs forks of different tests at the same
+ * time and gives every test the same iterations.
+ */
+class JcstressResults {
+
+    static final String FILE_NAME = "jcstress-results.json";
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final Map<String, String> options = new LinkedHashMap<>();
+    private final Map<String, JcstressTestResult> tests = new TreeMap<>();
+    private final List<String> autoTuning = new ArrayList<>();
+    private long durationMillis;
+
+    /**
+     * Records the harness options the results depend on.
+     *
+     * @param harnessArgs harness arguments of the run
+     */
+    void useOptions(List<String> harnessArgs) {
+        putOption("timeMillis", HarnessArguments.valueOf(harnessArgs, "-time"));
+        putOption("iterations", HarnessArguments.valueOf(harnessArgs, "-iters"));
+        putOption("forks", HarnessArguments.valueOf(harnessArgs, "-f"));
+        putOption("mode", HarnessArguments.valueOf(harnessArgs, "-m"));
+        putOption("cpuCount", HarnessArguments.valueOf(harnessArgs, "-c"));
+        putOption("heapPerFork", HarnessArguments.valueOf(harnessArgs, "-hs"));
+        putOption("affinityMode", HarnessArguments.valueOf(harnessArgs, "-af"));
+    }
+
+    /**
+     * Records how {@code auto} options were resolved.
+     *
+     * @param decisions chosen values with the reasons
+     */
+    synchronized void setAutoTuning(List<String> decisions) {
+        autoTuning.clear();
+        autoTuning.addAll(decisions);
+    }
+
+    synchronized List<String> getAutoTuning() {
+        return new ArrayList<>(autoTuning);
+    }
+
+    /**
+     * @return wall time of the run, without re-runs
+     */
+    synchronized long getDurationMillis() {
+        return durationMillis;
+    }
+
+    synchronized void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    private void putOption(String name, String value) {
+        if (value != null) {
+            options.put(name, value);
+        }
+    }
+
+    Map<String, String> getOptions() {
+        return options;
+    }
+
+    synchronized JcstressTestResult test(String name) {
+        return tests.computeIfAbsent(name, JcstressTestResult::new);
+    }
+
+    synchronized JcstressTestResult get(String name) {
+        return tests.get(name);
+    }
+
+    synchronized Collection<JcstressTestResult> getTests() {
+        return new ArrayList<>(tests.values());
+    }
+
+    /**
+     * Copies results of tests that were not run from earlier results.
+     *
+     * @param previous earlier results
+     * @param names    tests to copy
+     */
+    synchronized void copyFrom(JcstressResults previous, Collection<String> names) {
+        for (String name : names) {
+            JcstressTestResult result = previous.get(name);
+            if (result != null && !tests.containsKey(name)) {
+                tests.put(name, result);
+            }
+        }
+    }
+
+    /**
+     * Adds the results of a re-run round to the results of the same tests.
+     *
+     * @param rerun   results of the round
+     * @param round   re-run round, starting at 1
+     * @param options harness options of the round that differ from the main pass
+     */
+    synchronized void addRerun(JcstressResults rerun, int round, Map<String, String> options) {
+        for (JcstressTestResult result : rerun.getTests()) {
+            test(result.getName()).addRerun(result, round, options);
+        }
+    }
+
+    synchronized void write(File file) {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("version", FORMAT_VERSION);
+        root.put("options", options);
+        root.put("durationMillis", durationMillis);
+        if (!autoTuning.isEmpty()) {
+            root.put("autoTuning", autoTuning);
+        }
+        List<Map<String, Object>> testMaps = new ArrayList<>();
+        for (JcstressTestResult result : tests.values()) {
+            testMaps.add(result.toMap());
+        }
+        root.put("tests", testMaps);
+
+        file.getParentFile().mkdirs();
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(JsonOutput.prettyPrint(JsonOutput.toJson(root)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write jcstress results [" + file + "]", e);
+        }
+    }
+
+    /**
+     * @param file results file
+     * @return results, empty if the file does not exist
+     */
+    @SuppressWarnings("unchecked")
+    static JcstressResults read(File file) {
+        JcstressResults result = new JcstressResults();
+        if (!file.isFile()) {
+            return result;
+        }
+        Map<String, Object> root;
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            root = (Map<String, Object>) new JsonSlurper().parse(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read jcstress results [" + file + "]", e);
+        }
+        Map<String, Object> options = (Map<String, Object>) root.get("options");
+        if (options != null) {
+            for (Map.Entry<String, Object> entry : options.entrySet()) {
+                result.options.put(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+        }
+        if (root.get("durationMillis") != null) {
+            result.durationMillis = ((Number) root.get("durationMillis")).longValue();
+        }
+        List<Object> autoTuning = (List<Object>) root.get("autoTuning");
+        if (autoTuning != null) {
+            for (Object decision : autoTuning) {
+                result.autoTuning.add(String.valueOf(decision));
+            }
+        }
+        List<Map<String, Object>> testMaps = (List<Map<String, Object>>) root.get("tests");
+        if (testMaps != null) {
+            for (Map<String, Object> testMap : testMaps) {
+                JcstressTestResult test = JcstressTestResult.fromMap(testMap);
+                result.tests.put(test.getName(), test);
+            }
+        }
+        return result;
+    }
+
+}
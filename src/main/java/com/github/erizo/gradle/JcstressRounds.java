@@ -0,0 +1,92 @@
+package com.github.erizo.gradle;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs tests in rounds after or instead of the main pass, e.g. the forks of early stopping or re-runs with escalated
+ * settings. Every round is split into shards like the main pass, its invocations are named after the round, and its
+ * output is parsed into results of its own, so that the caller can decide which tests the next round runs.
+ */
+class JcstressRounds {
+
+    private final JcstressShardExecutor executor;
+    private final HarnessOutputListener listener;
+    private final int shardCount;
+    private final CpuSet cpus;
+    private final boolean pin;
+    private final String agentCpuCount;
+    private final File workingDir;
+    private final File reportDir;
+    private final List<HarnessInvocation> invocations = new ArrayList<>();
+    private final Map<HarnessInvocation, Integer> exitValues = new HashMap<>();
+
+    /**
+     * @param executor      executor of the shards
+     * @param listener      receives the output of every round
+     * @param shardCount    shards of every round
+     * @param cpus          CPUs of the run, shards are pinned to CPUs among them
+     * @param pin           whether shards should be pinned to their CPUs
+     * @param agentCpuCount CPUs of a shard on an agent, see {@link RemoteHarnessLauncher#forAgents}, or {@code null}
+     *                      if the rounds do not run on agents
+     * @param workingDir    directory the working directories of the rounds are created in
+     * @param reportDir     directory the reports of the rounds are written to
+     */
+    JcstressRounds(JcstressShardExecutor executor, HarnessOutputListener listener, int shardCount, CpuSet cpus, boolean pin,
+                   String agentCpuCount, File workingDir, File reportDir) {
+        this.executor = executor;
+        this.listener = listener;
+        this.shardCount = shardCount;
+        this.cpus = cpus;
+        this.pin = pin;
+        this.agentCpuCount = agentCpuCount;
+        this.workingDir = workingDir;
+        this.reportDir = reportDir;
+    }
+
+    /**
+     * Runs one round and waits for it to finish.
+     *
+     * @param name  name of the round, prefixed to its invocations and used as its directory
+     * @param tests tests of the round
+     * @param args  harness arguments of the round
+     * @return results of the round
+     */
+    JcstressResults run(String name, List<String> tests, List<String> args) {
+        List<HarnessInvocation> round = new ArrayList<>();
+        for (HarnessInvocation shard : JcstressShardExecutor.plan(tests, args, shardCount, cpus, pin,
+                new File(workingDir, name), new File(reportDir, name))) {
+            round.add(new HarnessInvocation(name + " " + shard.getName(), shard.getShard(), shard.getTests(), shard.getArgs(),
+                    shard.getCommandPrefix(), shard.getWorkingDir(), shard.getReportDir()));
+        }
+        if (agentCpuCount != null) {
+            round = RemoteHarnessLauncher.forAgents(round, agentCpuCount);
+        }
+        JcstressResults results = new JcstressResults();
+        exitValues.putAll(executor.execute(round, HarnessOutputListener.of(listener, new JcstressResultParser(results))));
+        invocations.addAll(round);
+        return results;
+    }
+
+    boolean isCancelled() {
+        return executor.isCancelled();
+    }
+
+    /**
+     * @return invocations of all rounds so far
+     */
+    List<HarnessInvocation> getInvocations() {
+        return invocations;
+    }
+
+    /**
+     * @return exit values of the invocations of all rounds so far
+     */
+    Map<HarnessInvocation, Integer> getExitValues() {
+        return exitValues;
+    }
+
+}
@@ -0,0 +1,247 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.logging.Logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Splits the test suite into disjoint shards and runs every shard in its own harness JVM.
+ * <p>
+ * The CPUs given to the suite are divided evenly between shards. On Linux, when {@code taskset} is available,
+ * every shard is also pinned to its own CPUs; jcstress affinity is then switched off inside the shard, because
+ * the harness would otherwise place actors on CPUs outside of the shard.
+ * <p>
+ * The tests of a shard are selected with a regexp on the harness command line. A shard whose regexp would be longer
+ * than {@value #MAX_SELECTOR_LENGTH} characters is run by several harnesses one after another, so that the command
+ * line stays within the limits of the operating system.
+ */
+class JcstressShardExecutor {
+
+    /**
+     * Longest test selector of a harness. Command lines are limited to 32K characters on Windows.
+     */
+    static final int MAX_SELECTOR_LENGTH = 8192;
+
+    private final Logger logger;
+    private final HarnessLauncher launcher;
+
+    JcstressShardExecutor(Logger logger, HarnessLauncher launcher) {
+        this.logger = logger;
+        this.launcher = launcher;
+    }
+
+    /**
+     * Splits the tests into shards.
+     *
+     * @param tests      selected tests
+     * @param args       harness arguments of the whole run
+     * @param shards     requested number of shards
+     * @param allowed    CPUs available to the run
+     * @param pin        whether shards should be pinned to their CPUs
+     * @param workingDir working directory of the whole run
+     * @param reportDir  report directory of the whole run
+     * @return one invocation per non-empty shard
+     */
+    static List<HarnessInvocation> plan(List<String> tests, List<String> args, int shards, CpuSet allowed, boolean pin,
+                                        File workingDir, File reportDir) {
+        requireShards(shards);
+        if (tests.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return plan(partition(tests, Math.min(shards, tests.size())), args, allowed, pin, workingDir, reportDir);
+    }
+
+    /**
+     * Creates one invocation per shard of an already partitioned suite.
+     *
+     * @param partitions tests of every shard
+     * @param args       harness arguments of the whole run
+     * @param allowed    CPUs available to the run
+     * @param pin        whether shards should be pinned to their CPUs
+     * @param workingDir working directory of the whole run
+     * @param reportDir  report directory of the whole run
+     * @return invocations of every shard, one per shard unless its test selector is too long
+     */
+    static List<HarnessInvocation> plan(List<List<String>> partitions, List<String> args, CpuSet allowed, boolean pin,
+                                        File workingDir, File reportDir) {
+        int shardCount = partitions.size();
+
+        String requestedCpus = HarnessArguments.valueOf(args, "-c");
+        int cpus = requestedCpus != null ? Integer.parseInt(requestedCpus.trim()) : allowed.size();
+        int cpusPerShard = Math.max(1, cpus / Math.max(1, shardCount));
+        List<CpuSet> cpuSets = pin && shardCount > 1 ? allowed.split(shardCount, cpusPerShard) : Collections.<CpuSet>emptyList();
+
+        List<HarnessInvocation> result = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            String shard = "shard-" + (i + 1);
+            List<String> commonArgs = HarnessArguments.without(args, "-t", "-c", "-r");
+            List<String> prefix = Collections.emptyList();
+            if (!cpuSets.isEmpty()) {
+                prefix = cpuSets.get(i).pinningPrefix();
+                commonArgs = HarnessArguments.with(commonArgs, "-af", "NONE");
+            }
+            List<List<String>> parts = bySelectorLength(partitions.get(i));
+            for (int part = 0; part < parts.size(); part++) {
+                String name = parts.size() > 1 ? shard + "." + (part + 1) : shard;
+                File partReportDir = new File(new File(reportDir, "shards"), name);
+                List<String> partArgs = new ArrayList<>(commonArgs);
+                JcstressPluginExtension.addParameter(partArgs, "-t", JcstressTestIndex.exactRegexp(parts.get(part)));
+                JcstressPluginExtension.addParameter(partArgs, "-c", Integer.toString(cpusPerShard));
+                JcstressPluginExtension.addParameter(partArgs, "-r", partReportDir.getAbsolutePath());
+                result.add(new HarnessInvocation(name, shard, parts.get(part), partArgs, prefix, new File(workingDir, name), partReportDir));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Splits the tests of a shard into parts whose selector is at most {@value #MAX_SELECTOR_LENGTH} characters long.
+     * A test whose own selector is longer is a part of its own.
+     */
+    static List<List<String>> bySelectorLength(List<String> tests) {
+        int emptyLength = JcstressTestIndex.exactRegexp(Collections.<String>emptyList()).length();
+        List<List<String>> result = new ArrayList<>();
+        List<String> part = new ArrayList<>();
+        int length = emptyLength;
+        for (String test : tests) {
+            // the quoted name and a separator
+            int testLength = Pattern.quote(test).length() + 1;
+            if (!part.isEmpty() && length + testLength > MAX_SELECTOR_LENGTH) {
+                result.add(part);
+                part = new ArrayList<>();
+                length = emptyLength;
+            }
+            part.add(test);
+            length += testLength;
+        }
+        if (!part.isEmpty() || result.isEmpty()) {
+            result.add(part);
+        }
+        return result;
+    }
+
+    /**
+     * @param text {@code shards} option of the extension
+     * @return number of shards
+     * @throws InvalidUserDataException if the option is not a number of 1 or more
+     */
+    static int parseShards(String text) {
+        int shards;
+        try {
+            shards = Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidUserDataException("Invalid jcstress shards [" + text + "], expected a number of 1 or more", e);
+        }
+        requireShards(shards);
+        return shards;
+    }
+
+    static void requireShards(int shards) {
+        if (shards < 1) {
+            throw new InvalidUserDataException("Invalid jcstress shards [" + shards + "], expected a number of 1 or more");
+        }
+    }
+
+    static List<List<String>> partition(List<String> tests, int shards) {
+        requireShards(shards);
+        List<List<String>> result = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            result.add(new ArrayList<>());
+        }
+        for (int i = 0; i < tests.size(); i++) {
+            result.get(i % shards).add(tests.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * @return whether the runs were cancelled, e.g. by fail-fast or a timeout
+     */
+    boolean isCancelled() {
+        return launcher.isCancelled();
+    }
+
+    /**
+     * Runs all shards concurrently and waits for them to finish. Invocations of the same shard run one after another.
+     *
+     * @param invocations invocations of the shards to run
+     * @param listener    receives the output of all shards
+     * @return exit value of every invocation
+     */
+    Map<HarnessInvocation, Integer> execute(List<HarnessInvocation> invocations, HarnessOutputListener listener) {
+        return executeGroups(byShard(invocations), listener);
+    }
+
+    /**
+     * @return invocations grouped by their shard, in the order of the shards
+     */
+    static List<List<HarnessInvocation>> byShard(List<HarnessInvocation> invocations) {
+        Map<String, List<HarnessInvocation>> groups = new LinkedHashMap<>();
+        for (HarnessInvocation invocation : invocations) {
+            groups.computeIfAbsent(invocation.getShard(), shard -> new ArrayList<>()).add(invocation);
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    /**
+     * Runs groups of invocations concurrently. The invocations of a group run one after another.
+     *
+     * @param groups   invocations of every shard
+     * @param listener receives the output of all invocations
+     * @return exit value of every invocation
+     */
+    Map<HarnessInvocation, Integer> executeGroups(List<List<HarnessInvocation>> groups, HarnessOutputListener listener) {
+        if (groups.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(groups.size());
+        try {
+            Map<HarnessInvocation, Integer> result = Collections.synchronizedMap(new LinkedHashMap<>());
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<HarnessInvocation> group : groups) {
+                futures.add(executor.submit(() -> {
+                    for (HarnessInvocation invocation : group) {
+                        result.put(invocation, run(invocation, listener));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while waiting for jcstress shards", e);
+        } catch (ExecutionException e) {
+            throw new GradleException("jcstress shard failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int run(HarnessInvocation invocation, HarnessOutputListener listener) {
+        logger.info("Starting jcstress {}: {} tests, command line {}", invocation.getName(), invocation.getTests().size(), launcher.commandLine(invocation));
+        listener.started(invocation);
+        try {
+            return launcher.run(invocation, line -> {
+                logger.quiet("[{}] {}", invocation.getName(), line);
+                listener.onLine(invocation, line);
+            });
+        } finally {
+            listener.finished(invocation);
+        }
+    }
+
+}
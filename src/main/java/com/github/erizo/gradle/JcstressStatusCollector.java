@@ -0,0 +1,47 @@
+package com.github.erizo.gradle;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+
+/**
+ * Picks test statuses out of harness output.
+ * <p>
+ * The harness prints a {@code [STATUS] test} line for every test it reports on, and prints {@code RUN RESULTS}
+ * once all tests have completed. Without {@code -v} passed tests are not printed, so a test of a completed run
+ * that was not reported otherwise is considered passed.
+ */
+class JcstressStatusCollector implements HarnessOutputListener {
+
+    static final String RUN_RESULTS = "RUN RESULTS";
+
+    private final Map<String, String> statuses = new ConcurrentHashMap<>();
+    private final Set<HarnessInvocation> completed = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void onLine(HarnessInvocation invocation, String line) {
+        Matcher matcher = JcstressResultParser.RESULT_LINE.matcher(line);
+        if (matcher.matches()) {
+            String status = matcher.group(1);
+            String test = matcher.group(2);
+            statuses.merge(test, status, (previous, current) -> JcstressIncrementalState.PASSED.equals(previous) ? current : previous);
+        } else if (line.startsWith(RUN_RESULTS)) {
+            completed.add(invocation);
+        }
+    }
+
+    /**
+     * @param invocation run the test was part of
+     * @param test       test name
+     * @return test status, or {@code null} if the run did not complete and the test was not reported
+     */
+    String statusOf(HarnessInvocation invocation, String test) {
+        String status = statuses.get(test);
+        if (status == null && completed.contains(invocation)) {
+            return JcstressIncrementalState.PASSED;
+        }
+        return status;
+    }
+
+}
@@ -1,20 +1,230 @@
 package com.github.erizo.gradle;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import javax.inject.Inject;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.Task;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.JavaExec;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.options.Option;
+import org.gradle.jvm.toolchain.JavaInstallationMetadata;
+import org.gradle.process.CommandLineArgumentProvider;
+import org.gradle.util.GradleVersion;
 
 public class JcstressTask extends JavaExec {
 
     private String jcstressTestName;
 
-    File reportsDirectory;
+    private final ListProperty<String> jcstressOptions;
+
+    private final Property<Integer> shards;
+
+    private final ConfigurableFileCollection testIndexDirs;
+
+    private final Property<Boolean> incremental;
+
+    private final ConfigurableFileCollection fingerprintDirs;
+
+    private final ConfigurableFileCollection externalClasspath;
+
+    private final RegularFileProperty incrementalStateFile;
+
+    private final Property<Boolean> cacheable;
+
+    private final DirectoryProperty reportsDirectory;
+
+    private final RegularFileProperty throughputBaseline;
+
+    private final Property<Double> throughputTolerance;
+
+    private final Property<Boolean> failOnThroughputRegression;
+
+
+    private final Property<String> timeBudget;
+
+    private final RegularFileProperty durationHistoryFile;
+
+    private final Property<Boolean> jfr;
+
+    private final Property<String> jfrSettings;
+
+    private final Property<Boolean> trace;
+
+    private final ListProperty<String> agents;
+
+    private final Property<String> agentToken;
+
+    private final Property<Boolean> failFast;
+
+    private final Property<Integer> rerunRounds;
+
+    private final Property<Long> rerunMinSamples;
+
+    private final Property<Integer> rerunTimeFactor;
+
+    private final Property<Integer> rerunIterationsFactor;
+
+    private final Property<Integer> rerunForksFactor;
+
+    private final Property<Boolean> earlyStopping;
+
+    private final Property<Double> earlyStoppingTolerance;
+
+    private final Property<Integer> earlyStoppingMinForks;
+
+    private final RegularFileProperty sharedArchiveFile;
+
+    private final Property<JcstressCpuLeases> cpuLeases;
+
+    private final Property<String> testTimeout;
+
+    private final Property<String> runTimeout;
+
+    private final HarnessArgumentProvider singleJvmArgs = new HarnessArgumentProvider();
+
+    public JcstressTask() {
+        ObjectFactory objects = getProject().getObjects();
+        this.jcstressOptions = objects.listProperty(String.class);
+        this.shards = objects.property(Integer.class);
+        this.testIndexDirs = objects.fileCollection();
+        this.incremental = objects.property(Boolean.class).convention(false);
+        this.fingerprintDirs = objects.fileCollection();
+        this.externalClasspath = objects.fileCollection();
+        this.incrementalStateFile = objects.fileProperty();
+        this.cacheable = objects.property(Boolean.class).convention(false);
+        this.reportsDirectory = objects.directoryProperty();
+        this.throughputBaseline = objects.fileProperty();
+        this.throughputTolerance = objects.property(Double.class).convention(20.0);
+        this.failOnThroughputRegression = objects.property(Boolean.class).convention(true);
+        this.timeBudget = objects.property(String.class);
+        this.durationHistoryFile = objects.fileProperty();
+        this.jfr = objects.property(Boolean.class).convention(false);
+        this.jfrSettings = objects.property(String.class).convention("profile");
+        this.trace = objects.property(Boolean.class).convention(false);
+        this.agents = objects.listProperty(String.class);
+        this.agentToken = objects.property(String.class);
+        this.failFast = objects.property(Boolean.class).convention(false);
+        this.rerunRounds = objects.property(Integer.class).convention(0);
+        this.rerunMinSamples = objects.property(Long.class).convention(10_000L);
+        this.rerunTimeFactor = objects.property(Integer.class).convention(2);
+        this.rerunIterationsFactor = objects.property(Integer.class).convention(1);
+        this.rerunForksFactor = objects.property(Integer.class).convention(2);
+        this.earlyStopping = objects.property(Boolean.class).convention(false);
+        this.earlyStoppingTolerance = objects.property(Double.class).convention(0.05);
+        this.earlyStoppingMinForks = objects.property(Integer.class).convention(2);
+        this.sharedArchiveFile = objects.fileProperty();
+        this.cpuLeases = objects.property(JcstressCpuLeases.class);
+        this.testTimeout = objects.property(String.class);
+        this.runTimeout = objects.property(String.class);
+        getOutputs().cacheIf("jcstress build cache is enabled", new CacheableSpec());
+        getArgumentProviders().add(singleJvmArgs);
+        getJvmArgumentProviders().add(new SharedArchiveArgumentProvider(sharedArchiveFile, agents));
+    }
+
+    /**
+     * A class rather than a lambda, so that the spec can be stored in the configuration cache.
+     */
+    private static class CacheableSpec implements Spec<Task> {
+
+        @Override
+        public boolean isSatisfiedBy(Task task) {
+            return ((JcstressTask) task).getCacheable().get();
+        }
+
+    }
+
+    /**
+     * Harness arguments of a run in the {@link JavaExec} JVM following the task arguments, decided when the task runs.
+     */
+    private static class HarnessArgumentProvider implements CommandLineArgumentProvider {
+
+        private List<String> args = Collections.emptyList();
+
+        @Internal
+        public List<String> getArgs() {
+            return args;
+        }
+
+        void setArgs(List<String> args) {
+            this.args = args;
+        }
+
+        @Override
+        public Iterable<String> asArguments() {
+            return args;
+        }
+
+    }
+
+    /**
+     * Starts the harness JVM with the class data sharing archive. Agents do not have the archive.
+     */
+    private static class SharedArchiveArgumentProvider implements CommandLineArgumentProvider {
+
+        private final RegularFileProperty sharedArchiveFile;
+        private final ListProperty<String> agents;
+
+        SharedArchiveArgumentProvider(RegularFileProperty sharedArchiveFile, ListProperty<String> agents) {
+            this.sharedArchiveFile = sharedArchiveFile;
+            this.agents = agents;
+        }
+
+        /**
+         * Tracked by {@link JcstressTask#getSharedArchiveFile()}.
+         */
+        @Internal
+        public RegularFileProperty getSharedArchiveFile() {
+            return sharedArchiveFile;
+        }
+
+        @Internal
+        public ListProperty<String> getAgents() {
+            return agents;
+        }
+
+        String option() {
+            if (!sharedArchiveFile.isPresent() || !agents.get().isEmpty()) {
+                return null;
+            }
+            return JcstressCds.archiveOption(sharedArchiveFile.get().getAsFile());
+        }
+
+        @Override
+        public Iterable<String> asArguments() {
+            String option = option();
+            return option != null ? Collections.singletonList(option) : Collections.<String>emptyList();
+        }
+
+    }
+
+    @Inject
+    protected ObjectFactory getObjectFactory() {
+        throw new UnsupportedOperationException();
+    }
 
     @Option(option = "tests", description = "JCstress tests to execute.")
     public void setJcstressTestName(String jcstressTestName) {
@@ -27,11 +237,313 @@ public class JcstressTask extends JavaExec {
         return jcstressTestName;
     }
 
+    /**
+     * Options configured in the {@code jcstress} extension, passed to the harness after {@link #getArgs()}.
+     */
+    @Internal
+    public ListProperty<String> getJcstressOptions() {
+        return jcstressOptions;
+    }
+
+    @Input
+    @Optional
+    public Property<Integer> getShards() {
+        return shards;
+    }
+
+    /**
+     * Directories holding the test list generated by the jcstress annotation processor.
+     */
+    @Internal
+    public ConfigurableFileCollection getTestIndexDirs() {
+        return testIndexDirs;
+    }
+
+    @Input
+    public Property<Boolean> getIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Class directories whose content is fingerprinted per test in incremental mode.
+     */
+    @Internal
+    public ConfigurableFileCollection getFingerprintDirs() {
+        return fingerprintDirs;
+    }
+
+    /**
+     * Dependencies of the tests. In incremental mode, any change here reruns all tests.
+     */
+    @Internal
+    public ConfigurableFileCollection getExternalClasspath() {
+        return externalClasspath;
+    }
+
+    @Internal
+    public RegularFileProperty getIncrementalStateFile() {
+        return incrementalStateFile;
+    }
+
+    /**
+     * Arguments given directly to the task. Tracked through {@link #getNormalizedArgs()} instead, so that the
+     * absolute report directory path does not end up in the build cache key.
+     */
+    @Internal
+    @Override
+    public List<String> getArgs() {
+        return super.getArgs();
+    }
+
+    /**
+     * Complete harness command line: task arguments, extension options with the report directory, and the
+     * {@code --tests} selector.
+     */
+    @Internal
+    public List<String> getHarnessArgs() {
+        List<String> result = new ArrayList<>(getArgs());
+        result.addAll(HarnessArguments.with(jcstressOptions.get(), "-r", reportsDirectory.get().getAsFile().getAbsolutePath()));
+        result.addAll(jcstressArgs());
+        return result;
+    }
+
+    /**
+     * Harness arguments with the report directory replaced by a placeholder. The report directory itself is
+     * tracked as an output.
+     */
+    @Input
+    public List<String> getNormalizedArgs() {
+        return HarnessArguments.with(getHarnessArgs(), "-r", "<reportsDirectory>");
+    }
+
+    /**
+     * Version of the JVM that runs the harness. Results of a stress run are only reusable on the same JVM build.
+     */
+    @Input
+    public String getJavaRuntimeVersion() {
+        if (GradleVersion.current().compareTo(GradleVersion.version("6.7")) >= 0 && getJavaLauncher().isPresent()) {
+            JavaInstallationMetadata metadata = getJavaLauncher().get().getMetadata();
+            if (GradleVersion.current().compareTo(GradleVersion.version("7.1")) >= 0) {
+                return metadata.getVendor() + " " + metadata.getJavaRuntimeVersion();
+            }
+            return metadata.getVendor() + " " + metadata.getLanguageVersion();
+        }
+        return System.getProperty("java.vendor") + " " + System.getProperty("java.runtime.version");
+    }
+
+    /**
+     * Allows the report to be stored in, and loaded from, the build cache.
+     */
+    @Internal
+    public Property<Boolean> getCacheable() {
+        return cacheable;
+    }
+
     @OutputDirectory
-    public File getReportsDirectory() {
+    public DirectoryProperty getReportsDirectory() {
         return reportsDirectory;
     }
 
+    /**
+     * Results file of a baseline run to compare sample throughput with. The check is skipped while the file is missing.
+     */
+    @InputFiles
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getThroughputBaseline() {
+        return throughputBaseline;
+    }
+
+    /**
+     * Allowed drop of sample throughput, in percent of the baseline.
+     */
+    @Input
+    public Property<Double> getThroughputTolerance() {
+        return throughputTolerance;
+    }
+
+    @Input
+    public Property<Boolean> getFailOnThroughputRegression() {
+        return failOnThroughputRegression;
+    }
+
+    /**
+     * Wall time the run should fit in, e.g. {@code 15m}. Iteration time and iterations are chosen from the durations
+     * of earlier runs.
+     */
+    @Input
+    @Optional
+    public Property<String> getTimeBudget() {
+        return timeBudget;
+    }
+
+    /**
+     * Wall times of earlier runs, used to fit a run into {@link #getTimeBudget()}.
+     */
+    @Internal
+    public RegularFileProperty getDurationHistoryFile() {
+        return durationHistoryFile;
+    }
+
+    /**
+     * Whether every fork is recorded with Java Flight Recorder. Recordings are collected in the {@code jfr}
+     * subdirectory of the report directory.
+     */
+    @Input
+    public Property<Boolean> getJfr() {
+        return jfr;
+    }
+
+    /**
+     * JFR settings used for recordings, a name of a JDK configuration such as {@code default} or {@code profile},
+     * or a path to a {@code .jfc} file.
+     */
+    @Input
+    public Property<String> getJfrSettings() {
+        return jfrSettings;
+    }
+
+    /**
+     * Whether a timeline of the run is written to {@code jcstress-trace.json} in the report directory.
+     */
+    @Input
+    public Property<Boolean> getTrace() {
+        return trace;
+    }
+
+    /**
+     * Addresses of jcstress agents, {@code host:port}, to run the shards on instead of this machine.
+     */
+    @Input
+    public ListProperty<String> getAgents() {
+        return agents;
+    }
+
+    @Option(option = "agents", description = "Comma separated jcstress agents, host:port, to run the tests on.")
+    public void setAgents(String agents) {
+        List<String> result = new ArrayList<>();
+        for (String agent : agents.split(",")) {
+            if (!agent.trim().isEmpty()) {
+                result.add(agent.trim());
+            }
+        }
+        this.agents.set(result);
+    }
+
+    /**
+     * Token the agents were started with. Not tracked as an input.
+     */
+    @Internal
+    public Property<String> getAgentToken() {
+        return agentToken;
+    }
+
+    /**
+     * Whether the run is stopped on the first test with a forbidden outcome or an error.
+     */
+    @Input
+    public Property<Boolean> getFailFast() {
+        return failFast;
+    }
+
+    @Option(option = "fail-fast", description = "Stops the run on the first test with a forbidden outcome or an error.")
+    public void setFailFast(boolean failFast) {
+        this.failFast.set(failFast);
+    }
+
+    /**
+     * Number of rounds in which interesting, erroneous and undersampled tests are run again with escalated
+     * settings. {@code 0} disables re-runs.
+     */
+    @Input
+    public Property<Integer> getRerunRounds() {
+        return rerunRounds;
+    }
+
+    /**
+     * Tests that reported fewer samples are run again.
+     */
+    @Input
+    public Property<Long> getRerunMinSamples() {
+        return rerunMinSamples;
+    }
+
+    @Input
+    public Property<Integer> getRerunTimeFactor() {
+        return rerunTimeFactor;
+    }
+
+    @Input
+    public Property<Integer> getRerunIterationsFactor() {
+        return rerunIterationsFactor;
+    }
+
+    @Input
+    public Property<Integer> getRerunForksFactor() {
+        return rerunForksFactor;
+    }
+
+    /**
+     * Whether forks run in rounds, and tests whose outcome distribution has converged stop before their last fork.
+     */
+    @Input
+    public Property<Boolean> getEarlyStopping() {
+        return earlyStopping;
+    }
+
+    /**
+     * Largest total variation distance between the outcome frequencies of the last fork of a converged test and
+     * those of its earlier forks.
+     */
+    @Input
+    public Property<Double> getEarlyStoppingTolerance() {
+        return earlyStoppingTolerance;
+    }
+
+    @Input
+    public Property<Integer> getEarlyStoppingMinForks() {
+        return earlyStoppingMinForks;
+    }
+
+    /**
+     * Class data sharing archive the harness and its forks are started with, dumped for the classpath of this task.
+     * Not used on agents.
+     */
+    @InputFiles
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getSharedArchiveFile() {
+        return sharedArchiveFile;
+    }
+
+    /**
+     * CPUs shared with the jcstress tasks of other projects. The task leases its {@code cpuCount}, or all CPUs of
+     * the pool, before it starts, and runs on the leased CPUs only. Not used on agents.
+     */
+    Property<JcstressCpuLeases> getCpuLeases() {
+        return cpuLeases;
+    }
+
+    /**
+     * Longest life of a fork, e.g. {@code 5m}. A fork runs a single test; a fork that lives longer is dumped with
+     * {@code jcmd} and killed, and its test is reported as {@code TIMEOUT}. Not used on agents.
+     */
+    @Input
+    @Optional
+    public Property<String> getTestTimeout() {
+        return testTimeout;
+    }
+
+    /**
+     * Longest duration of the run, e.g. {@code 2h}. A run that takes longer is dumped and stopped, and the tests it
+     * did not report are reported as {@code TIMEOUT}.
+     */
+    @Input
+    @Optional
+    public Property<String> getRunTimeout() {
+        return runTimeout;
+    }
+
     public List<String> jcstressArgs() {
         List<String> result = new ArrayList<>();
         if (jcstressTestName != null) {
@@ -41,4 +553,572 @@ public class JcstressTask extends JavaExec {
         return result;
     }
 
+    @Override
+    @TaskAction
+    public void exec() {
+        if (shards.isPresent()) {
+            JcstressShardExecutor.requireShards(shards.get());
+        }
+        File reportDir = reportsDirectory.get().getAsFile();
+        JcstressProgressLogger progressLogger = JcstressProgressLogger.start(getObjectFactory(), getLogger(), "Running jcstress tests");
+        JcstressTraceWriter traceWriter = trace.get() ? new JcstressTraceWriter(new File(reportDir, JcstressTraceWriter.FILE_NAME)) : null;
+        JcstressCpuPool.Lease lease = null;
+        try {
+            List<String> autoTuning = new ArrayList<>();
+            List<String> harnessArgs = tunedHarnessArgs(autoTuning);
+            CpuSet cpus = CpuSet.allowed();
+            CpuSet confinement = null;
+            if (cpuLeases.isPresent() && agents.get().isEmpty()) {
+                lease = acquireCpus(harnessArgs, progressLogger);
+                // options given as task arguments are the user's choice and are left alone
+                if (HarnessArguments.valueOf(getArgs(), "-c") == null) {
+                    harnessArgs = HarnessArguments.with(harnessArgs, "-c", Integer.toString(lease.getCpus().size()));
+                }
+                if (lease.getCpus().size() < cpus.size() && CpuSet.isTasksetAvailable()) {
+                    if (HarnessArguments.valueOf(getArgs(), "-af") == null) {
+                        confinement = lease.getCpus();
+                        harnessArgs = HarnessArguments.with(harnessArgs, "-af", "NONE");
+                    } else {
+                        getLogger().info("jcstress is not confined to its leased CPUs, -af is set in the task arguments.");
+                    }
+                }
+                cpus = lease.getCpus();
+            }
+            run(harnessArgs, autoTuning, cpus, confinement, reportDir, progressLogger,
+                    traceWriter != null ? traceWriter : HarnessOutputListener.of());
+        } finally {
+            if (lease != null) {
+                lease.release();
+            }
+            if (traceWriter != null) {
+                traceWriter.close();
+            }
+            progressLogger.completed();
+        }
+    }
+
+    /**
+     * @param autoTuning receives the auto-tuning decisions
+     * @return harness arguments with auto-tuned values
+     */
+    private List<String> tunedHarnessArgs(List<String> autoTuning) {
+        List<String> harnessArgs = getHarnessArgs();
+        if (JcstressAutoTuning.isRequested(harnessArgs)) {
+            JcstressAutoTuning tuning = new JcstressAutoTuning(HostResources.read());
+            harnessArgs = tuning.apply(harnessArgs);
+            for (String decision : tuning.getDecisions()) {
+                getLogger().lifecycle("jcstress auto-tuning: {}", decision);
+            }
+            autoTuning.addAll(tuning.getDecisions());
+        }
+        return harnessArgs;
+    }
+
+    private JcstressCpuPool.Lease acquireCpus(List<String> harnessArgs, JcstressProgressLogger progressLogger) {
+        String cpuCount = HarnessArguments.valueOf(harnessArgs, "-c");
+        int requested = cpuCount != null ? Integer.parseInt(cpuCount.trim()) : Integer.MAX_VALUE;
+        JcstressCpuLeases leases = cpuLeases.get();
+        JcstressCpuPool.Lease lease = leases.tryAcquire(getPath(), requested);
+        if (lease == null) {
+            progressLogger.progress("waiting for CPUs");
+            getLogger().lifecycle("Waiting for CPUs, leased to {}.", leases.holders());
+            try {
+                lease = leases.acquire(getPath(), requested);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GradleException("Interrupted while waiting for CPUs", e);
+            }
+        }
+        getLogger().lifecycle("Running jcstress on leased CPUs {}.", lease.getCpus());
+        return lease;
+    }
+
+    /**
+     * @param cpus        CPUs of the run, shards are pinned to CPUs among them
+     * @param confinement CPUs every harness is confined to, {@code null} to run on all CPUs
+     */
+    private void run(List<String> harnessArgs, List<String> autoTuning, CpuSet cpus, CpuSet confinement, File reportDir,
+                     JcstressProgressLogger progressLogger, HarnessOutputListener traceListener) {
+        getWorkingDir().mkdirs();
+        String sharedArchive = sharedArchiveOption();
+        if (sharedArchive != null) {
+            // the harness splits the option at spaces
+            if (sharedArchive.contains(" ")) {
+                getLogger().warn("jcstress forks do not use the class data sharing archive, its path contains spaces: {}", sharedArchive);
+            } else {
+                harnessArgs = HarnessArguments.appendTo(harnessArgs, "-jvmArgsPrepend", sharedArchive);
+            }
+        }
+        JcstressTestIndex index = JcstressTestIndex.read(testIndexDirs);
+        String selector = HarnessArguments.valueOf(harnessArgs, "-t");
+        List<String> selectedTests = index.select(selector);
+        if (!index.getTests().isEmpty() && selectedTests.isEmpty()) {
+            throw new GradleException("No jcstress tests match [" + selector + "]. Run the jcstressListTests task to see the available tests.");
+        }
+        File resultsFile = new File(reportDir, JcstressResults.FILE_NAME);
+        JcstressResults results = new JcstressResults();
+        results.useOptions(harnessArgs);
+        results.setAutoTuning(autoTuning);
+        JcstressResultParser resultParser = new JcstressResultParser(results);
+        JcstressProgressReporter progress = new JcstressProgressReporter(progressLogger::progress, System::currentTimeMillis);
+        HarnessOutputListener listener = HarnessOutputListener.of(resultParser, progress, traceListener);
+        List<String> features = externalHarnessFeatures(confinement);
+        if (features.isEmpty() || selectedTests.isEmpty()) {
+            if (!features.isEmpty()) {
+                getLogger().warn("No jcstress test list found in {}, running all tests in a single JVM without {}.",
+                        testIndexDirs.getFiles(), String.join(", ", features));
+            }
+            progress.expect(selectedTests, forksOf(harnessArgs), harnessArgs.contains("-v"));
+            execInSingleJvmAndVerify(harnessArgs, selectedTests, listener, results, resultsFile);
+            return;
+        }
+
+        List<String> tests = selectedTests;
+        List<String> upToDateTests = new ArrayList<>();
+        Map<String, String> fingerprints = new HashMap<>();
+        JcstressIncrementalState state = null;
+        JcstressResults previousResults = new JcstressResults();
+        if (incremental.get()) {
+            previousResults = JcstressResults.read(resultsFile);
+            state = JcstressIncrementalState.load(incrementalStateFile.get().getAsFile());
+            state.useConfiguration(configurationFingerprint(harnessArgs));
+            JcstressFingerprinter fingerprinter = new JcstressFingerprinter(fingerprintDirs);
+            tests = new ArrayList<>();
+            for (String test : selectedTests) {
+                String fingerprint = fingerprinter.fingerprint(test);
+                fingerprints.put(test, fingerprint);
+                if (state.isUpToDate(test, fingerprint)) {
+                    upToDateTests.add(test);
+                } else {
+                    tests.add(test);
+                }
+            }
+            getLogger().lifecycle("{} of {} jcstress tests are up to date.", upToDateTests.size(), selectedTests.size());
+        }
+
+        List<HarnessInvocation> invocations = new ArrayList<>();
+        Map<HarnessInvocation, Integer> exitValues = new HashMap<>();
+        JcstressStatusCollector statuses = new JcstressStatusCollector();
+        boolean remote = !agents.get().isEmpty();
+        if (remote && jfr.get()) {
+            throw new GradleException("JFR recordings cannot be collected from jcstress agents, disable profiling.jfr to use agents.");
+        }
+        int shardCount = remote ? Math.max(shards.getOrElse(1), agents.get().size()) : shards.getOrElse(1);
+        boolean pin = !remote && CpuSet.isTasksetAvailable();
+        JcstressFailFast failFastListener = null;
+        JcstressWatchdog watchdog = null;
+        if (!tests.isEmpty()) {
+            List<String> passArgs = harnessArgs;
+            if (timeBudget.isPresent()) {
+                JcstressTimeBudget.Plan plan = new JcstressTimeBudget(JcstressTimeBudget.parseDuration(timeBudget.get()),
+                        JcstressDurationHistory.load(durationHistoryFile.get().getAsFile())).plan(tests, harnessArgs, shardCount);
+                getLogger().lifecycle("Fitting jcstress tests into {}: {} iterations of {} ms, estimated {} s.", timeBudget.get(),
+                        plan.getIterations(), plan.getTimeMillis(), plan.getEstimatedMillis() / 1000);
+                if (plan.isOverBudget()) {
+                    getLogger().warn("jcstress tests are expected to take {} s even with {} iterations of {} ms, longer than the time budget of {}.",
+                            plan.getEstimatedMillis() / 1000, plan.getIterations(), plan.getTimeMillis(), timeBudget.get());
+                }
+                passArgs = plan.apply(harnessArgs);
+                results.useOptions(passArgs);
+            }
+            invocations = JcstressShardExecutor.plan(tests, passArgs, shardCount, cpus, pin, getWorkingDir(), reportDir);
+            String passForks = HarnessArguments.valueOf(passArgs, "-f");
+            boolean stopEarly = earlyStopping.get() && !jfr.get() && passForks != null && Integer.parseInt(passForks.trim()) > 1;
+            if (earlyStopping.get() && !stopEarly) {
+                getLogger().warn("jcstress early stopping needs forks of 2 or more and cannot be combined with profiling.jfr, all forks are run.");
+            }
+            // rounds of early stopping are verbose
+            progress.expect(tests, forksOf(passArgs), stopEarly || passArgs.contains("-v"));
+            HarnessLauncher launcher = createHarnessLauncher();
+            if (confinement != null) {
+                launcher.confineTo(confinement);
+            }
+            if (remote) {
+                invocations = RemoteHarnessLauncher.forAgents(invocations, HarnessArguments.valueOf(harnessArgs, "-c"));
+                launcher = new RemoteHarnessLauncher(agents.get(), agentToken.getOrNull(), getAllJvmArgs());
+                getLogger().lifecycle("Running {} jcstress tests in {} shards on agents {}.", tests.size(), invocations.size(), agents.get());
+            } else {
+                getLogger().lifecycle("Running {} jcstress tests in {} shards.", tests.size(), invocations.size());
+            }
+            JcstressShardExecutor executor = new JcstressShardExecutor(getLogger(), launcher);
+            HarnessOutputListener runListener = HarnessOutputListener.of(statuses, listener);
+            if (failFast.get()) {
+                HarnessLauncher stoppable = launcher;
+                failFastListener = new JcstressFailFast(() -> {
+                    getLogger().lifecycle("Stopping jcstress, failFast is set.");
+                    stoppable.cancel();
+                });
+                runListener = HarnessOutputListener.of(runListener, failFastListener);
+            }
+            if (testTimeout.isPresent() || runTimeout.isPresent()) {
+                watchdog = createWatchdog(launcher, remote, reportDir);
+                runListener = HarnessOutputListener.of(runListener, watchdog);
+                watchdog.start();
+            }
+            try {
+                if (stopEarly) {
+                    JcstressRounds rounds = new JcstressRounds(executor, runListener, shardCount, cpus, pin,
+                            remote ? HarnessArguments.valueOf(passArgs, "-c") : null, getWorkingDir(), new File(reportDir, "forks"));
+                    runUntilConverged(rounds, passArgs, Integer.parseInt(passForks.trim()), tests, results, progress, failFastListener);
+                    invocations = rounds.getInvocations();
+                    exitValues = rounds.getExitValues();
+                } else if (jfr.get()) {
+                    JcstressJfrProfiler profiler = new JcstressJfrProfiler(jfrSettings.get(), reportDir);
+                    List<List<HarnessInvocation>> runs = profiler.perTest(invocations);
+                    invocations = new ArrayList<>();
+                    for (List<HarnessInvocation> shardRuns : runs) {
+                        invocations.addAll(shardRuns);
+                    }
+                    exitValues = executor.executeGroups(runs, HarnessOutputListener.of(runListener, profiler));
+                } else {
+                    long startMillis = System.currentTimeMillis();
+                    exitValues = executor.execute(invocations, runListener);
+                    if (!executor.isCancelled()) {
+                        // early stopping and JFR runs change the number of forks and JVMs, only plain runs fit the history
+                        recordDuration(tests.size(), shardCount, passArgs, System.currentTimeMillis() - startMillis);
+                    }
+                }
+                if (rerunRounds.get() > 0) {
+                    HarnessOutputListener rerunListener = failFastListener != null
+                            ? HarnessOutputListener.of(statuses, progress, traceListener, failFastListener)
+                            : HarnessOutputListener.of(statuses, progress, traceListener);
+                    if (watchdog != null) {
+                        rerunListener = HarnessOutputListener.of(rerunListener, watchdog);
+                    }
+                    JcstressRounds rounds = new JcstressRounds(executor, rerunListener, shardCount, cpus, pin,
+                            remote ? HarnessArguments.valueOf(passArgs, "-c") : null, getWorkingDir(), new File(reportDir, "reruns"));
+                    rerun(rounds, passArgs, tests, results, progress, failFastListener);
+                    exitValues = new HashMap<>(exitValues);
+                    exitValues.putAll(rounds.getExitValues());
+                    invocations = new ArrayList<>(invocations);
+                    invocations.addAll(rounds.getInvocations());
+                }
+            } finally {
+                if (watchdog != null) {
+                    watchdog.close();
+                }
+            }
+        }
+        String failFastFailure = failFastListener != null ? failFastListener.getFailure() : null;
+        boolean runTimedOut = watchdog != null && watchdog.isRunTimedOut();
+        List<String> timedOutTests = watchdog != null ? watchdog.getTimedOut() : Collections.<String>emptyList();
+        for (String test : timedOutTests) {
+            results.test(test).setStatus(JcstressWatchdog.TIMEOUT);
+        }
+        if (watchdog != null) {
+            for (String test : watchdog.getNotRun()) {
+                if (results.get(test) == null) {
+                    results.test(test).setStatus(JcstressWatchdog.NOT_RUN);
+                }
+            }
+        }
+        String stopReason = failFastFailure != null ? failFastFailure
+                : runTimedOut ? "the run took longer than " + runTimeout.get() : null;
+        new JcstressReportMerger(reportDir).merge(invocations, upToDateTests, stopReason);
+        results.copyFrom(previousResults, upToDateTests);
+        results.write(resultsFile);
+
+        if (state != null) {
+            for (HarnessInvocation invocation : invocations) {
+                for (String test : invocation.getTests()) {
+                    state.record(test, fingerprints.get(test), timedOutTests.contains(test)
+                            ? JcstressWatchdog.TIMEOUT : statuses.statusOf(invocation, test));
+                }
+            }
+            state.save();
+        }
+
+        if (failFastFailure != null) {
+            throw new GradleException("jcstress stopped on the first failure, " + failFastFailure + ", see "
+                    + new File(reportDir, "index.html"));
+        }
+        File dumpDir = new File(reportDir, JcstressWatchdog.DIR_NAME);
+        if (runTimedOut) {
+            throw new GradleException("jcstress took longer than the run timeout of " + runTimeout.get() + ", thread dumps in " + dumpDir);
+        }
+        if (!timedOutTests.isEmpty() && !isIgnoreExitValue()) {
+            throw new GradleException("jcstress tests timed out: " + timedOutTests + ", thread dumps in " + dumpDir);
+        }
+        List<String> failedShards = new ArrayList<>();
+        for (Map.Entry<HarnessInvocation, Integer> entry : exitValues.entrySet()) {
+            if (entry.getValue() != 0) {
+                failedShards.add(entry.getKey().getName() + " (exit value " + entry.getValue() + ")");
+            }
+        }
+        if (!failedShards.isEmpty() && !isIgnoreExitValue()) {
+            throw new GradleException("jcstress failed in " + failedShards + ", see " + new File(reportDir, "index.html"));
+        }
+        verifyThroughput(results);
+    }
+
+    private JcstressWatchdog createWatchdog(HarnessLauncher launcher, boolean remote, File reportDir) {
+        Long testTimeoutMillis = testTimeout.isPresent() ? JcstressTimeBudget.parseDuration(testTimeout.get()) : null;
+        Long runTimeoutMillis = runTimeout.isPresent() ? JcstressTimeBudget.parseDuration(runTimeout.get()) : null;
+        if (testTimeoutMillis != null && remote) {
+            getLogger().warn("jcstress testTimeout is not available on agents, only the run timeout is used.");
+            testTimeoutMillis = null;
+        } else if (testTimeoutMillis != null && !JvmProcesses.isSupported()) {
+            getLogger().warn("jcstress testTimeout needs Gradle to run on Java 9 or newer, forks are not stopped.");
+            testTimeoutMillis = null;
+        }
+        File dumpDir = new File(reportDir, JcstressWatchdog.DIR_NAME);
+        JcstressWatchdog.deleteDumps(dumpDir);
+        return new JcstressWatchdog(launcher, JvmProcesses.jcmd(javaExecutable()), testTimeoutMillis, runTimeoutMillis, dumpDir,
+                getLogger(), System::currentTimeMillis);
+    }
+
+    /**
+     * Runs the forks of the tests in rounds of one fork per test. After every round, tests whose outcome distribution
+     * has converged are left out of the following rounds, and the forks they skipped are recorded in their results.
+     */
+    private void runUntilConverged(JcstressRounds rounds, List<String> passArgs, int forks, List<String> tests,
+                                   JcstressResults results, JcstressProgressReporter progress, JcstressFailFast failFast) {
+        JcstressEarlyStopping convergence = new JcstressEarlyStopping(earlyStoppingTolerance.get(), earlyStoppingMinForks.get());
+        List<String> roundArgs = HarnessArguments.with(passArgs, "-f", "1");
+        if (!roundArgs.contains("-v")) {
+            // passed tests only print their outcomes in verbose mode
+            roundArgs.add("-v");
+        }
+        List<String> remaining = new ArrayList<>(tests);
+        Map<String, Integer> stoppedAfter = new HashMap<>();
+        for (int fork = 1; fork <= forks && !remaining.isEmpty(); fork++) {
+            if (rounds.isCancelled() || failFast != null && failFast.getFailure() != null) {
+                break;
+            }
+            getLogger().lifecycle("Running fork {} of {} of {} jcstress tests.", fork, forks, remaining.size());
+            JcstressResults roundResults = rounds.run("fork-" + fork, remaining, roundArgs);
+
+            List<String> unstable = new ArrayList<>();
+            for (String test : remaining) {
+                if (fork < forks && convergence.addFork(test, roundResults.get(test))) {
+                    stoppedAfter.put(test, fork);
+                    progress.stopped(test);
+                    getLogger().info("jcstress test {} converged after {} forks, distance {}.", test, fork, convergence.lastDistance(test));
+                } else {
+                    unstable.add(test);
+                }
+            }
+            remaining = unstable;
+        }
+
+        int skippedForks = 0;
+        for (Map.Entry<String, Integer> entry : stoppedAfter.entrySet()) {
+            JcstressTestResult test = results.get(entry.getKey());
+            if (test != null) {
+                test.setSkippedForks(forks - entry.getValue());
+            }
+            skippedForks += forks - entry.getValue();
+        }
+        if (!stoppedAfter.isEmpty()) {
+            getLogger().lifecycle("{} of {} jcstress tests converged early, skipping {} of {} forks.", stoppedAfter.size(),
+                    tests.size(), skippedForks, tests.size() * forks);
+        }
+    }
+
+    /**
+     * Runs tests of the main pass again with escalated settings, round after round, and adds their results to the
+     * results of the run. Every round runs the tests selected from the results of the previous round.
+     */
+    private void rerun(JcstressRounds rounds, List<String> passArgs, List<String> tests, JcstressResults results,
+                       JcstressProgressReporter progress, JcstressFailFast failFast) {
+        JcstressRerunPolicy policy = new JcstressRerunPolicy(rerunMinSamples.get(), rerunTimeFactor.get(),
+                rerunIterationsFactor.get(), rerunForksFactor.get());
+        JcstressResults previous = results;
+        List<String> candidates = tests;
+        for (int round = 1; round <= rerunRounds.get(); round++) {
+            if (rounds.isCancelled() || failFast != null && failFast.getFailure() != null) {
+                break;
+            }
+            List<String> selected = policy.select(previous, candidates);
+            if (selected.isEmpty()) {
+                break;
+            }
+            for (String test : selected) {
+                getLogger().info("Re-running jcstress test {}: {}", test, policy.reason(previous.get(test)));
+            }
+            Map<String, String> options = policy.options(passArgs, round);
+            getLogger().lifecycle("Re-running {} jcstress tests, round {} of {}: {}", selected.size(), round, rerunRounds.get(), options);
+
+            List<String> roundArgs = policy.escalate(passArgs, round);
+            progress.expect(selected, forksOf(roundArgs), roundArgs.contains("-v"));
+            JcstressResults roundResults = rounds.run("rerun-" + round, selected, roundArgs);
+            results.addRerun(roundResults, round, options);
+            previous = roundResults;
+            candidates = selected;
+        }
+    }
+
+    /**
+     * A {@link JavaExec} run cannot be split, stopped early, confined to CPUs or given tests of its own, so these
+     * features start harnesses outside of it, which needs the test list written by the annotation processor.
+     *
+     * @param confinement CPUs every harness is confined to, {@code null} to run on all CPUs
+     * @return requested features that need harnesses started outside of {@link JavaExec}, empty if the run can use
+     * {@link JavaExec}
+     */
+    private List<String> externalHarnessFeatures(CpuSet confinement) {
+        List<String> result = new ArrayList<>();
+        if (shards.isPresent() && shards.get() > 1) {
+            result.add("shards");
+        }
+        if (incremental.get()) {
+            result.add("incremental");
+        }
+        if (timeBudget.isPresent()) {
+            result.add("timeBudget");
+        }
+        if (jfr.get()) {
+            result.add("profiling.jfr");
+        }
+        if (!agents.get().isEmpty()) {
+            result.add("agents");
+        }
+        if (failFast.get()) {
+            result.add("failFast");
+        }
+        if (rerunRounds.get() > 0) {
+            result.add("rerun");
+        }
+        if (earlyStopping.get()) {
+            result.add("earlyStopping");
+        }
+        if (confinement != null) {
+            result.add("CPU confinement");
+        }
+        if (testTimeout.isPresent()) {
+            result.add("testTimeout");
+        }
+        if (runTimeout.isPresent()) {
+            result.add("runTimeout");
+        }
+        return result;
+    }
+
+    private static int forksOf(List<String> harnessArgs) {
+        String forks = HarnessArguments.valueOf(harnessArgs, "-f");
+        return forks != null ? Integer.parseInt(forks.trim()) : 0;
+    }
+
+    private void execInSingleJvmAndVerify(List<String> harnessArgs, List<String> tests, HarnessOutputListener listener,
+                                          JcstressResults results, File resultsFile) {
+        long startMillis = System.currentTimeMillis();
+        execInSingleJvm(harnessArgs, tests, listener, results, resultsFile);
+        recordDuration(tests.size(), 1, harnessArgs, System.currentTimeMillis() - startMillis);
+        verifyThroughput(results);
+    }
+
+    private void recordDuration(int tests, int shards, List<String> harnessArgs, long wallMillis) {
+        if (durationHistoryFile.isPresent()) {
+            JcstressDurationHistory history = JcstressDurationHistory.load(durationHistoryFile.get().getAsFile());
+            history.record(tests, shards, harnessArgs, wallMillis);
+            history.save();
+        }
+    }
+
+    /**
+     * Compares sample throughput with the baseline. The baseline is written by {@link JcstressUpdateBaselineTask}.
+     */
+    private void verifyThroughput(JcstressResults results) {
+        if (!throughputBaseline.isPresent()) {
+            return;
+        }
+        File baselineFile = throughputBaseline.get().getAsFile();
+        if (!baselineFile.isFile()) {
+            getLogger().warn("No jcstress throughput baseline in {}, run {} to store the results of this run as the baseline.",
+                    baselineFile, JcstressPlugin.TASK_JCSTRESS_UPDATE_BASELINE_NAME);
+            return;
+        }
+
+        JcstressResults baseline = JcstressResults.read(baselineFile);
+        String incompatibility = JcstressThroughputGate.incompatibility(baseline, results);
+        if (incompatibility != null) {
+            getLogger().warn("Skipping jcstress throughput check against {}: {}.", baselineFile, incompatibility);
+            return;
+        }
+        JcstressThroughputGate.Comparison comparison = new JcstressThroughputGate(throughputTolerance.get()).compare(baseline, results);
+        getLogger().lifecycle("Compared the sample throughput of {} jcstress tests with {}.", comparison.getCompared(), baselineFile);
+        if (comparison.getCompared() == 0 && !comparison.getUnsampled().isEmpty()) {
+            throughputFailure("No jcstress test has samples in both the baseline " + baselineFile + " and this run, "
+                    + "the throughput was not checked. Passed tests only report samples with verbose = true.");
+        } else if (!comparison.getUnsampled().isEmpty()) {
+            getLogger().warn("{} jcstress tests have no samples in the baseline or this run and were not compared, "
+                    + "passed tests only report samples with verbose = true.", comparison.getUnsampled().size());
+        }
+        if (!comparison.getRegressions().isEmpty()) {
+            throughputFailure("jcstress sample throughput dropped by more than " + throughputTolerance.get() + "% compared to "
+                    + baselineFile + ":\n  " + String.join("\n  ", comparison.getRegressions())
+                    + "\nRun " + JcstressPlugin.TASK_JCSTRESS_UPDATE_BASELINE_NAME + " to accept the results as the new baseline.");
+        }
+    }
+
+    private void throughputFailure(String message) {
+        if (failOnThroughputRegression.get()) {
+            throw new GradleException(message);
+        }
+        getLogger().warn(message);
+    }
+
+    /**
+     * Runs the harness through {@link JavaExec}, with its output passed through the result parser.
+     */
+    private void execInSingleJvm(List<String> harnessArgs, List<String> tests, HarnessOutputListener listener,
+                                 JcstressResults results, File resultsFile) {
+        HarnessInvocation invocation = new HarnessInvocation(getName(), tests, harnessArgs, Collections.<String>emptyList(), getWorkingDir(), resultsFile.getParentFile());
+        OutputStream standardOutput = getStandardOutput();
+        // JavaExec passes the task arguments itself, ahead of the argument providers
+        List<String> taskArgs = getArgs();
+        if (harnessArgs.size() < taskArgs.size() || !harnessArgs.subList(0, taskArgs.size()).equals(taskArgs)) {
+            throw new GradleException("jcstress options given as task arguments cannot be auto-tuned, "
+                    + "set them in the jcstress extension instead: " + taskArgs);
+        }
+        singleJvmArgs.setArgs(new ArrayList<>(harnessArgs.subList(taskArgs.size(), harnessArgs.size())));
+        listener.started(invocation);
+        try (OutputStream output = new LineSplittingOutputStream(standardOutput, line -> listener.onLine(invocation, line))) {
+            setStandardOutput(output);
+            super.exec();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read jcstress output", e);
+        } finally {
+            setStandardOutput(standardOutput);
+            singleJvmArgs.setArgs(Collections.<String>emptyList());
+            listener.finished(invocation);
+            results.write(resultsFile);
+        }
+    }
+
+    /**
+     * Fingerprint of everything that affects all tests at once: harness options, JVM options and dependencies.
+     */
+    private String configurationFingerprint(List<String> harnessArgs) {
+        List<String> values = new ArrayList<>(HarnessArguments.without(harnessArgs, "-t", "-r"));
+        values.addAll(getAllJvmArgs());
+        for (File file : externalClasspath) {
+            values.add(file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified());
+        }
+        return JcstressFingerprinter.hash(values);
+    }
+
+    HarnessLauncher createHarnessLauncher() {
+        // the JVM arguments include the class data sharing archive
+        return new HarnessLauncher(javaExecutable(), getAllJvmArgs(), getClasspath().getAsPath(), getEnvironment());
+    }
+
+    /**
+     * @return JVM option of the class data sharing archive, or {@code null} without an archive or when the tests run
+     * on agents, which do not have the archive
+     */
+    private String sharedArchiveOption() {
+        return new SharedArchiveArgumentProvider(sharedArchiveFile, agents).option();
+    }
+
+    String javaExecutable() {
+        if (GradleVersion.current().compareTo(GradleVersion.version("6.7")) >= 0 && getJavaLauncher().isPresent()) {
+            return getJavaLauncher().get().getExecutablePath().getAsFile().getAbsolutePath();
+        }
+        if (getExecutable() != null) {
+            return getExecutable();
+        }
+        return new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath();
+    }
+
 }
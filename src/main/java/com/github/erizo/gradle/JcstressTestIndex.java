@@ -0,0 +1,139 @@
+package com.github.erizo.gradle;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the test list generated by the jcstress annotation processor.
+ * <p>
+ * The processor writes {@code META-INF/TestList} next to the compiled tests. Every line describes one test,
+ * and the first qualified class name on the line is the test name.
+ */
+public class JcstressTestIndex {
+
+    public static final String TEST_LIST = "META-INF/TestList";
+
+    private static final Pattern CLASS_NAME = Pattern.compile("(?<![\\w$.])(?:[A-Za-z_$][\\w$]*\\.)+[A-Za-z_$][\\w$]*");
+
+    private final List<String> tests;
+
+    JcstressTestIndex(Collection<String> tests) {
+        this.tests = new ArrayList<>(new TreeSet<>(tests));
+    }
+
+    /**
+     * Reads all test lists found in the given directories.
+     *
+     * @param directories class or resource directories of the jcstress source set
+     * @return test index, empty if no test list was generated
+     */
+    public static JcstressTestIndex read(Iterable<File> directories) {
+        List<String> result = new ArrayList<>();
+        for (File directory : directories) {
+            File testList = new File(directory, TEST_LIST);
+            if (testList.isFile()) {
+                result.addAll(readTestList(testList));
+            }
+        }
+        return new JcstressTestIndex(result);
+    }
+
+    static List<String> readTestList(File testList) {
+        List<String> result = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(testList.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String testName = parseTestName(line);
+                if (testName != null) {
+                    result.add(testName);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read jcstress test list [" + testList + "]", e);
+        }
+        return result;
+    }
+
+    static String parseTestName(String line) {
+        Matcher matcher = CLASS_NAME.matcher(line);
+        return matcher.find() ? matcher.group() : null;
+    }
+
+    public List<String> getTests() {
+        return tests;
+    }
+
+    /**
+     * Selects tests the way the harness does: a test matches if the regexp is found anywhere in its name.
+     *
+     * @param regexp test selector, {@code null} selects all tests
+     * @return matching tests, sorted by name
+     */
+    public List<String> select(String regexp) {
+        if (regexp == null) {
+            return tests;
+        }
+        Pattern pattern = Pattern.compile(regexp);
+        List<String> result = new ArrayList<>();
+        for (String test : tests) {
+            if (pattern.matcher(test).find()) {
+                result.add(test);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts a glob to a regexp matching whole test names: {@code *} matches any sequence of characters and
+     * {@code ?} any single character.
+     *
+     * @param glob test name pattern, e.g. {@code *.atomic.*Test}
+     * @return regexp for {@link #select(String)} and the {@code -t} option
+     */
+    public static String globRegexp(String glob) {
+        StringBuilder result = new StringBuilder("^");
+        StringBuilder literal = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    result.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                result.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            result.append(Pattern.quote(literal.toString()));
+        }
+        return result.append("$").toString();
+    }
+
+    /**
+     * Builds a harness selector that matches exactly the given tests.
+     *
+     * @param tests test names
+     * @return regexp for the {@code -t} option
+     */
+    public static String exactRegexp(Collection<String> tests) {
+        StringBuilder result = new StringBuilder("^(");
+        String separator = "";
+        for (String test : tests) {
+            result.append(separator).append(Pattern.quote(test));
+            separator = "|";
+        }
+        return result.append(")$").toString();
+    }
+
+}
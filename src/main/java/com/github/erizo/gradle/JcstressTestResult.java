@@ -0,0 +1,228 @@
+package com.github.erizo.gradle;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results of one jcstress test, aggregated over all of its forks. Durations and iterations are not known per test, see
+ * {@link JcstressResults}.
+ */
+class JcstressTestResult {
+
+    /**
+     * Distinct outcomes kept per test. Tests that produce more outcomes are usually broken in a way that the first
+     * few outcomes already show, and the limit keeps the model small for any log size.
+     */
+    static final int MAX_OUTCOMES = 64;
+
+    static final int MAX_DESCRIPTION_LENGTH = 200;
+
+    private final String name;
+    private String status;
+    private int forks;
+    private long samples;
+    private int skippedForks;
+    private final Map<String, Outcome> outcomes = new LinkedHashMap<>();
+    private boolean outcomesTruncated;
+    private final List<Map<String, Object>> reruns = new ArrayList<>();
+
+    JcstressTestResult(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records the status of one fork. The status of the test is the first status other than {@code OK}.
+     */
+    void addFork(String status) {
+        addStatus(status);
+        forks++;
+    }
+
+    void addStatus(String status) {
+        if (this.status == null || JcstressIncrementalState.PASSED.equals(this.status)) {
+            this.status = status;
+        }
+    }
+
+    /**
+     * Replaces the status of the test, e.g. with {@code TIMEOUT} after its fork was killed.
+     */
+    void setStatus(String status) {
+        this.status = status;
+    }
+
+    void addOutcome(String state, long samples, String expectation, String description) {
+        this.samples += samples;
+        Outcome outcome = outcomes.get(state);
+        if (outcome == null) {
+            if (outcomes.size() >= MAX_OUTCOMES) {
+                outcomesTruncated = true;
+                return;
+            }
+            outcome = new Outcome(state, expectation, truncate(description));
+            outcomes.put(state, outcome);
+        }
+        outcome.samples += samples;
+    }
+
+    /**
+     * Adds the forks and outcomes of a re-run of the test.
+     *
+     * @param rerun   results of the test in the re-run
+     * @param round   re-run round, starting at 1
+     * @param options harness options of the re-run that differ from the main pass
+     */
+    void addRerun(JcstressTestResult rerun, int round, Map<String, String> options) {
+        if (rerun.status != null) {
+            addStatus(rerun.status);
+        }
+        forks += rerun.forks;
+        for (Outcome outcome : rerun.outcomes.values()) {
+            addOutcome(outcome.state, outcome.samples, outcome.expectation, outcome.description);
+        }
+        outcomesTruncated |= rerun.outcomesTruncated;
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("round", round);
+        entry.put("options", new LinkedHashMap<>(options));
+        entry.put("status", rerun.status);
+        entry.put("forks", rerun.forks);
+        entry.put("samples", rerun.samples);
+        reruns.add(entry);
+    }
+
+    private static String truncate(String text) {
+        if (text == null || text.length() <= MAX_DESCRIPTION_LENGTH) {
+            return text;
+        }
+        return text.substring(0, MAX_DESCRIPTION_LENGTH);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getStatus() {
+        return status;
+    }
+
+    int getForks() {
+        return forks;
+    }
+
+    long getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return forks the test did not run because it stopped early
+     */
+    int getSkippedForks() {
+        return skippedForks;
+    }
+
+    void setSkippedForks(int skippedForks) {
+        this.skippedForks = skippedForks;
+    }
+
+    List<Outcome> getOutcomes() {
+        return new ArrayList<>(outcomes.values());
+    }
+
+    boolean isOutcomesTruncated() {
+        return outcomesTruncated;
+    }
+
+    /**
+     * @return round, options, status, forks and samples of every re-run of the test
+     */
+    List<Map<String, Object>> getReruns() {
+        return new ArrayList<>(reruns);
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", name);
+        result.put("status", status);
+        result.put("forks", forks);
+        result.put("samples", samples);
+        if (skippedForks > 0) {
+            result.put("skippedForks", skippedForks);
+        }
+        List<Map<String, Object>> outcomeMaps = new ArrayList<>();
+        for (Outcome outcome : outcomes.values()) {
+            Map<String, Object> outcomeMap = new LinkedHashMap<>();
+            outcomeMap.put("state", outcome.state);
+            outcomeMap.put("samples", outcome.samples);
+            outcomeMap.put("expectation", outcome.expectation);
+            outcomeMap.put("description", outcome.description);
+            outcomeMaps.add(outcomeMap);
+        }
+        result.put("outcomes", outcomeMaps);
+        if (outcomesTruncated) {
+            result.put("outcomesTruncated", true);
+        }
+        if (!reruns.isEmpty()) {
+            result.put("reruns", reruns);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    static JcstressTestResult fromMap(Map<String, Object> map) {
+        JcstressTestResult result = new JcstressTestResult((String) map.get("name"));
+        result.status = (String) map.get("status");
+        result.forks = ((Number) map.get("forks")).intValue();
+        result.samples = ((Number) map.get("samples")).longValue();
+        if (map.get("skippedForks") != null) {
+            result.skippedForks = ((Number) map.get("skippedForks")).intValue();
+        }
+        List<Map<String, Object>> outcomeMaps = (List<Map<String, Object>>) map.get("outcomes");
+        if (outcomeMaps != null) {
+            for (Map<String, Object> outcomeMap : outcomeMaps) {
+                Outcome outcome = new Outcome((String) outcomeMap.get("state"), (String) outcomeMap.get("expectation"), (String) outcomeMap.get("description"));
+                outcome.samples = ((Number) outcomeMap.get("samples")).longValue();
+                result.outcomes.put(outcome.state, outcome);
+            }
+        }
+        result.outcomesTruncated = Boolean.TRUE.equals(map.get("outcomesTruncated"));
+        List<Map<String, Object>> rerunMaps = (List<Map<String, Object>>) map.get("reruns");
+        if (rerunMaps != null) {
+            result.reruns.addAll(rerunMaps);
+        }
+        return result;
+    }
+
+    static class Outcome {
+
+        private final String state;
+        private final String expectation;
+        private final String description;
+        private long samples;
+
+        Outcome(String state, String expectation, String description) {
+            this.state = state;
+            this.expectation = expectation;
+            this.description = description;
+        }
+
+        String getState() {
+            return state;
+        }
+
+        String getExpectation() {
+            return expectation;
+        }
+
+        String getDescription() {
+            return description;
+        }
+
+        long getSamples() {
+            return samples;
+        }
+
+    }
+
+}
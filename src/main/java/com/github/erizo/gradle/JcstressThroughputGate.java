@@ -0,0 +1,126 @@
+package com.github.erizo.gradle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Compares the sample throughput of every test with a baseline run.
+ * <p>
+ * The number of samples a test collects shows how fast the code under test is. Throughput is the number of samples
+ * per fork, per iteration and per second of iteration time, so that runs with different {@code forks},
+ * {@code iterations} and {@code timeMillis} can be compared. An option that is not set counts as one iteration of one
+ * second; runs can then only be compared if the option is not set in either of them and both use the same mode.
+ * <p>
+ * The harness only prints the samples of passed tests in verbose mode, so without it most tests cannot be compared;
+ * the {@link Comparison} tells which.
+ */
+class JcstressThroughputGate {
+
+    private static final String TIME_MILLIS = "timeMillis";
+    private static final String ITERATIONS = "iterations";
+    private static final String MODE = "mode";
+
+    private final double tolerancePercent;
+
+    /**
+     * @param tolerancePercent allowed drop of throughput, in percent of the baseline
+     */
+    JcstressThroughputGate(double tolerancePercent) {
+        this.tolerancePercent = tolerancePercent;
+    }
+
+    /**
+     * @return normalized throughput of the test, or {@code null} if the test collected no samples or was re-run
+     * with other settings
+     */
+    static Double throughput(JcstressResults results, JcstressTestResult test) {
+        if (test.getForks() == 0 || test.getSamples() == 0 || !test.getReruns().isEmpty()) {
+            return null;
+        }
+        double seconds = test.getForks()
+                * option(results, ITERATIONS, 1)
+                * option(results, TIME_MILLIS, 1000) / 1000.0;
+        return test.getSamples() / seconds;
+    }
+
+    private static double option(JcstressResults results, String name, double defaultValue) {
+        String value = results.getOptions().get(name);
+        return value != null ? Double.parseDouble(value.trim()) : defaultValue;
+    }
+
+    /**
+     * @return reason why the runs cannot be compared, or {@code null} if they can
+     */
+    static String incompatibility(JcstressResults baseline, JcstressResults current) {
+        for (String option : new String[]{TIME_MILLIS, ITERATIONS}) {
+            boolean inBaseline = baseline.getOptions().containsKey(option);
+            boolean inCurrent = current.getOptions().containsKey(option);
+            if (inBaseline != inCurrent) {
+                return "option " + option + " is set in only one of the runs";
+            }
+            if (!inBaseline && !Objects.equals(baseline.getOptions().get(MODE), current.getOptions().get(MODE))) {
+                return "option " + option + " is not set and the runs use different modes";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param baseline results of the baseline run
+     * @param current  results of the current run
+     * @return tests of both runs that were compared, could not be compared and regressed
+     */
+    Comparison compare(JcstressResults baseline, JcstressResults current) {
+        Comparison result = new Comparison();
+        for (JcstressTestResult test : current.getTests()) {
+            JcstressTestResult baselineTest = baseline.get(test.getName());
+            if (baselineTest == null || !test.getReruns().isEmpty()) {
+                continue;
+            }
+            Double before = throughput(baseline, baselineTest);
+            Double after = throughput(current, test);
+            if (before == null || after == null) {
+                result.unsampled.add(test.getName());
+                continue;
+            }
+            result.compared++;
+            double change = (after - before) * 100 / before;
+            if (-change > tolerancePercent) {
+                result.regressions.add(String.format(Locale.ROOT, "%s: %.0f -> %.0f samples/s (%.1f%%)", test.getName(), before, after, change));
+            }
+        }
+        return result;
+    }
+
+    static class Comparison {
+
+        private int compared;
+        private final List<String> unsampled = new ArrayList<>();
+        private final List<String> regressions = new ArrayList<>();
+
+        /**
+         * @return number of tests whose throughput was compared
+         */
+        int getCompared() {
+            return compared;
+        }
+
+        /**
+         * @return tests of both runs without samples in one of them, e.g. passed tests of a run that is not verbose
+         */
+        List<String> getUnsampled() {
+            return unsampled;
+        }
+
+        /**
+         * @return description of every test whose throughput dropped by more than the tolerance
+         */
+        List<String> getRegressions() {
+            return regressions;
+        }
+
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.InvalidUserDataException;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fits a run of the suite into a time budget.
+ * <p>
+ * The run is modelled as a whole, see {@link JcstressDurationHistory}: the busiest shard runs its forks with their
+ * JVM starts and iteration times, scaled by the wall time factor learned from earlier runs, or 1 before the first
+ * run. The iteration time and the number of iterations are chosen so that the run is expected to finish within
+ * {@value #SAFETY_FACTOR} of the budget. Tests are never stopped; a run that takes longer than estimated finishes
+ * late, and a run that cannot fit, e.g. because starting its forks alone takes longer, is
+ * {@link Plan#isOverBudget() over budget}.
+ * <p>
+ * The settings apply to the whole run; the harness cannot give tests iteration times of their own.
+ */
+class JcstressTimeBudget {
+
+    static final double SAFETY_FACTOR = 0.8;
+
+    static final long MIN_TIME_MILLIS = 10;
+
+    private static final Pattern DURATION = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*(ms|s|m|h)?");
+
+    private final long budgetMillis;
+    private final JcstressDurationHistory history;
+
+    JcstressTimeBudget(long budgetMillis, JcstressDurationHistory history) {
+        this.budgetMillis = budgetMillis;
+        this.history = history;
+    }
+
+    /**
+     * @param text duration with a unit: {@code ms}, {@code s}, {@code m} or {@code h}; seconds if the unit is missing
+     * @return duration in milliseconds
+     */
+    static long parseDuration(String text) {
+        Matcher matcher = DURATION.matcher(text.trim().toLowerCase(Locale.ROOT));
+        if (!matcher.matches()) {
+            throw new InvalidUserDataException("Invalid jcstress duration [" + text + "], expected e.g. 90s, 15m or 1h");
+        }
+        double value = Double.parseDouble(matcher.group(1));
+        String unit = matcher.group(2) != null ? matcher.group(2) : "s";
+        switch (unit) {
+            case "ms":
+                return (long) value;
+            case "m":
+                return (long) (value * 60_000);
+            case "h":
+                return (long) (value * 3_600_000);
+            default:
+                return (long) (value * 1000);
+        }
+    }
+
+    /**
+     * @param tests       tests to run
+     * @param harnessArgs harness arguments of the run
+     * @param shards      number of shards
+     * @return harness settings of the run
+     */
+    Plan plan(List<String> tests, List<String> harnessArgs, int shards) {
+        String configuredForks = HarnessArguments.valueOf(harnessArgs, "-f");
+        String configuredIterations = HarnessArguments.valueOf(harnessArgs, "-iters");
+        int forks = configuredForks != null ? Integer.parseInt(configuredForks.trim()) : 1;
+        int iterations = configuredIterations != null ? Integer.parseInt(configuredIterations.trim()) : 1;
+
+        Double learned = history.factor();
+        double factor = learned != null ? learned : 1.0;
+        int shardForks = JcstressDurationHistory.forksOfBusiestShard(tests.size(), shards, forks);
+        // the longest time of all iterations of a fork that lets the busiest shard finish within the safe part of the budget
+        double iterationTime = shardForks > 0
+                ? Math.max(0, SAFETY_FACTOR * budgetMillis / (factor * shardForks) - JcstressDurationHistory.FORK_OVERHEAD_MILLIS)
+                : budgetMillis;
+
+        if (iterationTime / iterations < MIN_TIME_MILLIS) {
+            iterations = (int) Math.max(1, iterationTime / MIN_TIME_MILLIS);
+        }
+        long timeMillis = Math.max(MIN_TIME_MILLIS, (long) (iterationTime / iterations));
+        long estimatedMillis = (long) (factor * JcstressDurationHistory.nominalMillis(tests.size(), shards, forks,
+                (double) timeMillis * iterations));
+        return new Plan(timeMillis, iterations, estimatedMillis, budgetMillis);
+    }
+
+    static class Plan {
+
+        private final long timeMillis;
+        private final int iterations;
+        private final long estimatedMillis;
+        private final long budgetMillis;
+
+        Plan(long timeMillis, int iterations, long estimatedMillis, long budgetMillis) {
+            this.timeMillis = timeMillis;
+            this.iterations = iterations;
+            this.estimatedMillis = estimatedMillis;
+            this.budgetMillis = budgetMillis;
+        }
+
+        long getTimeMillis() {
+            return timeMillis;
+        }
+
+        int getIterations() {
+            return iterations;
+        }
+
+        long getEstimatedMillis() {
+            return estimatedMillis;
+        }
+
+        /**
+         * @return whether the run is expected to take longer than the budget even with the shortest settings
+         */
+        boolean isOverBudget() {
+            return estimatedMillis > budgetMillis;
+        }
+
+        /**
+         * @return harness arguments with the planned iteration time and number of iterations
+         */
+        List<String> apply(List<String> harnessArgs) {
+            List<String> result = HarnessArguments.with(harnessArgs, "-time", Long.toString(timeMillis));
+            return HarnessArguments.with(result, "-iters", Integer.toString(iterations));
+        }
+
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.github.erizo.gradle;
+
+import groovy.json.JsonOutput;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes a timeline of the run in the Chrome trace event format, viewable in {@code chrome://tracing} or Perfetto.
+ * <p>
+ * Every harness run is a process with a track of tests. Only what the harness output shows is recorded: the span
+ * before the first output of a run is the harness startup, every reported fork is an instant event, and every test is
+ * a span from its first to its last reported fork. The harness reports neither fork start times nor iterations, so
+ * the time before the first report of a test is not part of its span. The number of starting, running and finishing
+ * fork JVMs reported by the harness is recorded as a counter, which shows idle gaps.
+ * <p>
+ * Events are written to the file as they happen.
+ */
+class JcstressTraceWriter implements HarnessOutputListener, Closeable {
+
+    static final String FILE_NAME = "jcstress-trace.json";
+
+    private static final int TESTS_TRACK = 1;
+
+    static final Pattern JVMS = Pattern.compile("\\(JVMs:\\s*(\\d+) starting,\\s*(\\d+) running,\\s*(\\d+) finishing\\)");
+
+    private final Writer writer;
+    private final LongSupplier clockNanos;
+    private final long startNanos;
+    private final Map<HarnessInvocation, Run> runs = new HashMap<>();
+    private boolean firstEvent = true;
+
+    JcstressTraceWriter(File file) {
+        this(file, System::nanoTime);
+    }
+
+    JcstressTraceWriter(File file, LongSupplier clockNanos) {
+        this.clockNanos = clockNanos;
+        this.startNanos = clockNanos.getAsLong();
+        try {
+            file.getParentFile().mkdirs();
+            this.writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+            writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write jcstress trace [" + file + "]", e);
+        }
+    }
+
+    @Override
+    public synchronized void started(HarnessInvocation invocation) {
+        run(invocation);
+    }
+
+    private Run run(HarnessInvocation invocation) {
+        Run run = runs.get(invocation);
+        if (run == null) {
+            run = new Run(runs.size() + 1, now());
+            runs.put(invocation, run);
+            metadata(run.pid, 0, "process_name", invocation.getName());
+            metadata(run.pid, TESTS_TRACK, "thread_name", "tests");
+        }
+        return run;
+    }
+
+    @Override
+    public synchronized void onLine(HarnessInvocation invocation, String line) {
+        Run run = run(invocation);
+        long now = now();
+        if (!run.output) {
+            run.output = true;
+            span(run.pid, TESTS_TRACK, "harness startup", "harness", run.startMicros, now, null);
+        }
+        if (run.completed) {
+            return;
+        }
+        if (line.startsWith(JcstressStatusCollector.RUN_RESULTS)) {
+            run.completed = true;
+            return;
+        }
+        Matcher result = JcstressResultParser.RESULT_LINE.matcher(line);
+        if (result.matches()) {
+            String test = result.group(2);
+            int fork = run.forks.merge(test, 1, Integer::sum);
+            Map<String, Object> args = new LinkedHashMap<>();
+            args.put("status", result.group(1));
+            args.put("fork", fork);
+            Map<String, Object> event = event(test, "i", run.pid, TESTS_TRACK, now, args);
+            event.put("cat", "fork");
+            event.put("s", "t");
+            event(event);
+            run.testStartMicros.putIfAbsent(test, now);
+            run.testEndMicros.put(test, now);
+            return;
+        }
+        Matcher jvms = JVMS.matcher(line);
+        if (jvms.find()) {
+            String counts = jvms.group(1) + "/" + jvms.group(2) + "/" + jvms.group(3);
+            if (!counts.equals(run.jvms)) {
+                run.jvms = counts;
+                Map<String, Object> args = new LinkedHashMap<>();
+                args.put("starting", Integer.valueOf(jvms.group(1)));
+                args.put("running", Integer.valueOf(jvms.group(2)));
+                args.put("finishing", Integer.valueOf(jvms.group(3)));
+                event(event("JVMs", "C", run.pid, 0, now, args));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void finished(HarnessInvocation invocation) {
+        Run run = runs.get(invocation);
+        if (run == null) {
+            return;
+        }
+        for (Map.Entry<String, Long> entry : run.testStartMicros.entrySet()) {
+            Map<String, Object> args = new LinkedHashMap<>();
+            args.put("forks", run.forks.get(entry.getKey()));
+            span(run.pid, TESTS_TRACK, entry.getKey(), "test", entry.getValue(), run.testEndMicros.get(entry.getKey()), args);
+        }
+        run.testStartMicros.clear();
+    }
+
+    private long now() {
+        return TimeUnit.NANOSECONDS.toMicros(clockNanos.getAsLong() - startNanos);
+    }
+
+    private void metadata(int pid, int tid, String name, String value) {
+        Map<String, Object> args = new LinkedHashMap<>();
+        args.put("name", value);
+        event(event(name, "M", pid, tid, 0, args));
+    }
+
+    private void span(int pid, int tid, String name, String category, long startMicros, long endMicros, Map<String, Object> args) {
+        Map<String, Object> event = event(name, "X", pid, tid, startMicros, args);
+        event.put("cat", category);
+        event.put("dur", Math.max(0, endMicros - startMicros));
+        event(event);
+    }
+
+    private static Map<String, Object> event(String name, String phase, int pid, int tid, long micros, Map<String, Object> args) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("name", name);
+        event.put("ph", phase);
+        event.put("pid", pid);
+        event.put("tid", tid);
+        event.put("ts", micros);
+        if (args != null) {
+            event.put("args", args);
+        }
+        return event;
+    }
+
+    private void event(Map<String, Object> event) {
+        try {
+            if (!firstEvent) {
+                writer.write(",\n");
+            }
+            firstEvent = false;
+            writer.write(JsonOutput.toJson(event));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write jcstress trace", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.write("\n]}\n");
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write jcstress trace", e);
+        }
+    }
+
+    private static class Run {
+
+        private final int pid;
+        private final long startMicros;
+        private boolean output;
+        private boolean completed;
+        private String jvms;
+        private final Map<String, Integer> forks = new HashMap<>();
+        private final Map<String, Long> testStartMicros = new LinkedHashMap<>();
+        private final Map<String, Long> testEndMicros = new HashMap<>();
+
+        Run(int pid, long startMicros) {
+            this.pid = pid;
+            this.startMicros = startMicros;
+        }
+
+    }
+
+}
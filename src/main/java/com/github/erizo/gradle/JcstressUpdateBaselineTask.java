@@ -0,0 +1,67 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Stores the results of the last {@code jcstress} run as the throughput baseline. The {@code jcstress} task only
+ * reads the baseline.
+ */
+public class JcstressUpdateBaselineTask extends DefaultTask {
+
+    private final RegularFileProperty resultsFile;
+
+    private final RegularFileProperty baselineFile;
+
+    public JcstressUpdateBaselineTask() {
+        this.resultsFile = getProject().getObjects().fileProperty();
+        this.baselineFile = getProject().getObjects().fileProperty();
+    }
+
+    /**
+     * {@value JcstressResults#FILE_NAME} of the run to store as the baseline. A missing file fails the task.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getResultsFile() {
+        return resultsFile;
+    }
+
+    @OutputFile
+    @Optional
+    public RegularFileProperty getBaselineFile() {
+        return baselineFile;
+    }
+
+    @TaskAction
+    public void updateBaseline() {
+        if (!baselineFile.isPresent()) {
+            throw new GradleException("Cannot update the throughput baseline, throughputBaseline is not set in the jcstress extension.");
+        }
+        File results = resultsFile.get().getAsFile();
+        if (!results.isFile()) {
+            throw new GradleException("No jcstress results in " + results + ", run the jcstress task first.");
+        }
+        File baseline = baselineFile.get().getAsFile();
+        try {
+            Files.copy(results.toPath(), baseline.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write throughput baseline [" + baseline + "]", e);
+        }
+        getLogger().lifecycle("Stored jcstress throughput baseline in {}.", baseline);
+    }
+
+}
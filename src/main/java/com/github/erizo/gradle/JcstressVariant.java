@@ -0,0 +1,38 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.Named;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+
+/**
+ * JVM flags to run the jcstress tests with, configured in the {@code variants} block of the {@code jcstress}
+ * extension. Every variant gets its own jcstress task.
+ */
+public class JcstressVariant implements Named {
+
+    private final String name;
+    private final Property<String> jvmArgs;
+
+    public JcstressVariant(String name, ObjectFactory objects) {
+        this.name = name;
+        this.jvmArgs = objects.property(String.class);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * JVM flags of the forked test JVMs, e.g. {@code -XX:+UseZGC}. Prepended to the flags jcstress chooses for the
+     * forks, after {@code jvmArgsPrepend} of the extension.
+     */
+    public String getJvmArgs() {
+        return jvmArgs.getOrNull();
+    }
+
+    public void setJvmArgs(String jvmArgs) {
+        this.jvmArgs.set(jvmArgs);
+    }
+
+}
@@ -0,0 +1,267 @@
+package com.github.erizo.gradle;
+
+import org.gradle.api.logging.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stops hung tests and runs that take too long.
+ * <p>
+ * The harness runs every test in fork JVMs of its own, so a fork that lives longer than the test timeout is stuck.
+ * Such a fork is dumped with {@code jcmd}, together with its harness, and killed; the harness reports the test as an
+ * error and goes on with the next one. The stuck test is the one whose classes are on the stacks of the fork, among
+ * the tests the harness has not reported yet. When the whole run takes longer than the run timeout, all harnesses
+ * and forks are dumped and the run is cancelled; the tests found on the stacks of the forks have timed out. The other
+ * tests that were not reported by then did not run, or passed without being printed, as passed tests are only
+ * printed in verbose mode.
+ */
+class JcstressWatchdog implements HarnessOutputListener, AutoCloseable {
+
+    static final String TIMEOUT = "TIMEOUT";
+
+    /**
+     * Status of tests without a result when the run was stopped.
+     */
+    static final String NOT_RUN = "NOT_RUN";
+
+    /**
+     * Directory of the thread dumps, in the report directory.
+     */
+    static final String DIR_NAME = "timeouts";
+
+    private final HarnessLauncher launcher;
+    private final String jcmd;
+    private final Long testTimeoutMillis;
+    private final Long runTimeoutMillis;
+    private final File dumpDir;
+    private final Logger logger;
+    private final LongSupplier clock;
+    private final long startMillis;
+    private final Map<HarnessInvocation, Set<String>> unreported = new ConcurrentHashMap<>();
+    private final Set<String> timedOut = new ConcurrentSkipListSet<>();
+    private final Set<String> notRun = new ConcurrentSkipListSet<>();
+    private final Set<Long> handledForks = ConcurrentHashMap.newKeySet();
+    private volatile boolean runTimedOut;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param launcher          launcher of the harness runs to watch
+     * @param jcmd              {@code jcmd} of the JVM running the tests
+     * @param testTimeoutMillis longest life of a fork, {@code null} for no limit
+     * @param runTimeoutMillis  longest duration of the run, {@code null} for no limit
+     * @param dumpDir           directory to write thread dumps to
+     * @param logger            logger of the task
+     * @param clock             current time in epoch milliseconds
+     */
+    JcstressWatchdog(HarnessLauncher launcher, String jcmd, Long testTimeoutMillis, Long runTimeoutMillis, File dumpDir,
+                     Logger logger, LongSupplier clock) {
+        this.launcher = launcher;
+        this.jcmd = jcmd;
+        this.testTimeoutMillis = testTimeoutMillis;
+        this.runTimeoutMillis = runTimeoutMillis;
+        this.dumpDir = dumpDir;
+        this.logger = logger;
+        this.clock = clock;
+        this.startMillis = clock.getAsLong();
+    }
+
+    /**
+     * Checks the runs every second until closed.
+     */
+    void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jcstress watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                check();
+            } catch (RuntimeException e) {
+                logger.warn("jcstress watchdog failed: {}", e.toString());
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return timed out tests, sorted
+     */
+    List<String> getTimedOut() {
+        return new ArrayList<>(timedOut);
+    }
+
+    /**
+     * @return tests that were not reported when the run timed out, apart from those that timed out, sorted
+     */
+    List<String> getNotRun() {
+        List<String> result = new ArrayList<>(notRun);
+        result.removeAll(timedOut);
+        return result;
+    }
+
+    boolean isRunTimedOut() {
+        return runTimedOut;
+    }
+
+    @Override
+    public void started(HarnessInvocation invocation) {
+        Set<String> tests = ConcurrentHashMap.newKeySet();
+        tests.addAll(invocation.getTests());
+        unreported.put(invocation, tests);
+    }
+
+    @Override
+    public void onLine(HarnessInvocation invocation, String line) {
+        Matcher matcher = JcstressResultParser.RESULT_LINE.matcher(line);
+        Set<String> tests = unreported.get(invocation);
+        if (tests == null) {
+            return;
+        }
+        if (matcher.matches()) {
+            tests.remove(matcher.group(2));
+        } else if (line.startsWith(JcstressStatusCollector.RUN_RESULTS)) {
+            // every test has run, passed tests are only printed in verbose mode
+            tests.clear();
+        }
+    }
+
+    @Override
+    public void finished(HarnessInvocation invocation) {
+        Set<String> tests = unreported.remove(invocation);
+        if (runTimedOut && tests != null) {
+            notRun.addAll(tests);
+        }
+    }
+
+    void check() {
+        long now = clock.getAsLong();
+        if (runTimeoutMillis != null && !runTimedOut && now - startMillis >= runTimeoutMillis) {
+            runTimedOut = true;
+            File runDumpDir = new File(dumpDir, "run");
+            for (Map.Entry<HarnessInvocation, Process> entry : launcher.runningProcesses().entrySet()) {
+                File dir = new File(runDumpDir, fileName(entry.getKey().getName()));
+                dumpHarness(entry.getValue(), dir, "harness");
+                Set<String> candidates = unreported.get(entry.getKey());
+                for (long fork : JvmProcesses.descendants(entry.getValue())) {
+                    String forkDump = JvmProcesses.threadDump(jcmd, fork);
+                    write(dir, "fork-" + fork + ".txt", forkDump);
+                    timedOut.addAll(stuckTests(forkDump, candidates != null ? candidates : entry.getKey().getTests()));
+                }
+            }
+            logger.lifecycle("jcstress run took longer than {} ms, stopping it. Timed out: {}. Thread dumps in {}.", runTimeoutMillis,
+                    timedOut.isEmpty() ? "no running test found" : timedOut, runDumpDir);
+            launcher.cancel();
+            return;
+        }
+        if (testTimeoutMillis == null || runTimedOut) {
+            return;
+        }
+        for (Map.Entry<HarnessInvocation, Process> entry : launcher.runningProcesses().entrySet()) {
+            for (long fork : JvmProcesses.descendants(entry.getValue())) {
+                Long forkStart = JvmProcesses.startMillis(fork);
+                if (forkStart != null && now - forkStart >= testTimeoutMillis && handledForks.add(fork)) {
+                    killStuckFork(entry.getKey(), entry.getValue(), fork);
+                }
+            }
+        }
+    }
+
+    private void killStuckFork(HarnessInvocation invocation, Process harness, long fork) {
+        File dir = new File(dumpDir, fileName(invocation.getName()));
+        String forkDump = JvmProcesses.threadDump(jcmd, fork);
+        write(dir, "fork-" + fork + ".txt", forkDump);
+        dumpHarness(harness, dir, "fork-" + fork + "-harness");
+        Set<String> candidates = unreported.get(invocation);
+        List<String> tests = stuckTests(forkDump, candidates != null ? candidates : invocation.getTests());
+        JvmProcesses.destroyForcibly(fork);
+        timedOut.addAll(tests);
+        logger.lifecycle("jcstress fork {} of {} ran longer than {} ms, killed it. Timed out: {}. Thread dumps in {}.", fork,
+                invocation.getName(), testTimeoutMillis, tests.isEmpty() ? "unknown test" : tests, dir);
+    }
+
+    private void dumpHarness(Process harness, File dir, String name) {
+        Long pid = JvmProcesses.pid(harness);
+        if (pid != null) {
+            write(dir, name + "-" + pid + ".txt", JvmProcesses.threadDump(jcmd, pid));
+        }
+    }
+
+    /**
+     * Finds the tests a fork is running from its thread dump. Stack frames name the test class, e.g.
+     * {@code com.example.CounterTest.actor1}, or the class the harness generated for it,
+     * {@code com.example.CounterTest_jcstress}.
+     *
+     * @param threadDump thread dump of the fork
+     * @param candidates tests that may be running
+     * @return tests found in the dump, sorted
+     */
+    static List<String> stuckTests(String threadDump, Collection<String> candidates) {
+        Set<String> result = new ConcurrentSkipListSet<>();
+        for (String test : candidates) {
+            if (Pattern.compile(Pattern.quote(test) + "(?:_jcstress\\b|[.$])").matcher(threadDump).find()) {
+                result.add(test);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Deletes the thread dumps of an earlier run.
+     */
+    static void deleteDumps(File dumpDir) {
+        if (!dumpDir.isDirectory()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dumpDir.toPath())) {
+            List<Path> sorted = paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            for (Path path : sorted) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete thread dumps [" + dumpDir + "]", e);
+        }
+    }
+
+    static String fileName(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]+", "-");
+    }
+
+    private static void write(File dir, String name, String text) {
+        File file = new File(dir, name);
+        try {
+            dir.mkdirs();
+            Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write thread dump [" + file + "]", e);
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.github.erizo.gradle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Child processes of harness runs, seen through process handles, and thread dumps of them taken with {@code jcmd}.
+ * <p>
+ * Process handles are only available on Java 9 and later, and are used through reflection. On Java 8 no process is
+ * seen, and nothing is dumped or killed.
+ */
+class JvmProcesses {
+
+    private static final long DUMP_TIMEOUT_SECONDS = 30;
+
+    private JvmProcesses() {
+    }
+
+    static boolean isSupported() {
+        try {
+            Class.forName("java.lang.ProcessHandle");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return process id, or {@code null} on Java 8
+     */
+    static Long pid(Process process) {
+        try {
+            return (Long) Process.class.getMethod("pid").invoke(process);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return ids of the children of the process and their children, empty on Java 8
+     */
+    static List<Long> descendants(Process process) {
+        try {
+            Stream<?> descendants = (Stream<?>) Process.class.getMethod("descendants").invoke(process);
+            Method pid = Class.forName("java.lang.ProcessHandle").getMethod("pid");
+            List<Long> result = new ArrayList<>();
+            for (Iterator<?> iterator = descendants.iterator(); iterator.hasNext(); ) {
+                result.add((Long) pid.invoke(iterator.next()));
+            }
+            return result;
+        } catch (ReflectiveOperationException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * @return start time of a running process in epoch milliseconds, or {@code null} if it is not known
+     */
+    static Long startMillis(long pid) {
+        try {
+            Optional<?> handle = handle(pid);
+            if (!handle.isPresent()) {
+                return null;
+            }
+            Object info = Class.forName("java.lang.ProcessHandle").getMethod("info").invoke(handle.get());
+            Optional<?> start = (Optional<?>) Class.forName("java.lang.ProcessHandle$Info").getMethod("startInstant").invoke(info);
+            return start.isPresent() ? ((Instant) start.get()).toEpochMilli() : null;
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    static void destroyForcibly(long pid) {
+        try {
+            Optional<?> handle = handle(pid);
+            if (handle.isPresent()) {
+                Class.forName("java.lang.ProcessHandle").getMethod("destroyForcibly").invoke(handle.get());
+            }
+        } catch (ReflectiveOperationException e) {
+            // Java 8
+        }
+    }
+
+    private static Optional<?> handle(long pid) throws ReflectiveOperationException {
+        return (Optional<?>) Class.forName("java.lang.ProcessHandle").getMethod("of", long.class).invoke(null, pid);
+    }
+
+    /**
+     * @param javaExecutable java of the JVMs to dump
+     * @return {@code jcmd} next to the java executable, or the one on the path
+     */
+    static String jcmd(String javaExecutable) {
+        File bin = new File(javaExecutable).getAbsoluteFile().getParentFile();
+        for (String name : Arrays.asList("jcmd", "jcmd.exe")) {
+            File jcmd = new File(bin, name);
+            if (jcmd.canExecute()) {
+                return jcmd.getAbsolutePath();
+            }
+        }
+        return "jcmd";
+    }
+
+    /**
+     * Takes a thread dump, with locks, of a running JVM.
+     *
+     * @return output of {@code jcmd}, or why no dump was taken
+     */
+    static String threadDump(String jcmd, long pid) {
+        try {
+            Process process = new ProcessBuilder(jcmd, Long.toString(pid), "Thread.print", "-l")
+                    .redirectErrorStream(true)
+                    .start();
+            process.getOutputStream().close();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            Thread reader = new Thread(() -> copy(process.getInputStream(), output), "jcmd " + pid);
+            reader.setDaemon(true);
+            reader.start();
+            if (!process.waitFor(DUMP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return "jcmd did not finish within " + DUMP_TIMEOUT_SECONDS + " s";
+            }
+            reader.join(TimeUnit.SECONDS.toMillis(DUMP_TIMEOUT_SECONDS));
+            synchronized (output) {
+                return new String(output.toByteArray(), Charset.defaultCharset());
+            }
+        } catch (IOException e) {
+            return "Failed to run " + jcmd + ": " + e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Interrupted while running " + jcmd;
+        }
+    }
+
+    private static void copy(InputStream input, ByteArrayOutputStream output) {
+        byte[] buffer = new byte[8192];
+        try {
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                synchronized (output) {
+                    output.write(buffer, 0, read);
+                }
+            }
+        } catch (IOException e) {
+            // the dump is as complete as it got
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.github.erizo.gradle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.function.Consumer;
+
+/**
+ * Passes everything written to it through to another stream, and hands every complete line to a consumer.
+ * <p>
+ * Lines longer than {@value #MAX_LINE_LENGTH} bytes are cut, so that a runaway line does not use unbounded memory.
+ * Closing this stream does not close the target stream.
+ */
+class LineSplittingOutputStream extends OutputStream {
+
+    static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private final OutputStream target;
+    private final Consumer<String> lines;
+    private final Charset charset;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    LineSplittingOutputStream(OutputStream target, Consumer<String> lines) {
+        this(target, lines, Charset.defaultCharset());
+    }
+
+    LineSplittingOutputStream(OutputStream target, Consumer<String> lines, Charset charset) {
+        this.target = target;
+        this.lines = lines;
+        this.charset = charset;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        target.write(b);
+        append(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        target.write(b, off, len);
+        for (int i = off; i < off + len; i++) {
+            append(b[i]);
+        }
+    }
+
+    private void append(int b) {
+        if (b == '\n') {
+            emitLine();
+        } else if (b != '\r' && line.size() < MAX_LINE_LENGTH) {
+            line.write(b);
+        }
+    }
+
+    private void emitLine() {
+        lines.accept(new String(line.toByteArray(), charset));
+        line.reset();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        target.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (line.size() > 0) {
+            emitLine();
+        }
+        target.flush();
+    }
+
+}
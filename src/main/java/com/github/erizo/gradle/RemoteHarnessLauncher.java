@@ -0,0 +1,219 @@
+package com.github.erizo.gradle;
+
+import com.github.erizo.gradle.agent.AgentProtocol;
+import org.gradle.api.GradleException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs harnesses on {@link com.github.erizo.gradle.agent.JcstressAgent jcstress agents} instead of local processes.
+ * <p>
+ * Every run takes a free agent, so runs queue up when there are more runs than agents. An agent that cannot be
+ * reached is dropped and the run goes to another agent; the build fails when no agent is left. The report of a run
+ * is sent back by the agent and written to the report directory of the run. Cancelling closes the connections, and
+ * agents stop their harness when the connection is gone.
+ */
+class RemoteHarnessLauncher extends HarnessLauncher {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+
+    private final List<String> jvmArgs;
+    private final String token;
+    private final BlockingQueue<String> freeAgents;
+    private final AtomicInteger liveAgents;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    RemoteHarnessLauncher(List<String> agents, String token, List<String> jvmArgs) {
+        super(null, jvmArgs, "", Collections.<String, Object>emptyMap());
+        this.jvmArgs = new ArrayList<>(jvmArgs);
+        this.token = token != null ? token : "";
+        this.freeAgents = new LinkedBlockingQueue<>(agents);
+        this.liveAgents = new AtomicInteger(agents.size());
+    }
+
+    /**
+     * Prepares local shards for agents: shards are not pinned, and a shard uses all CPUs of its agent unless
+     * {@code cpuCount} is set.
+     *
+     * @param invocations planned shards
+     * @param cpuCount    {@code cpuCount} of the run, or {@code null}
+     * @return shards to send to agents
+     */
+    static List<HarnessInvocation> forAgents(List<HarnessInvocation> invocations, String cpuCount) {
+        List<HarnessInvocation> result = new ArrayList<>();
+        for (HarnessInvocation invocation : invocations) {
+            List<String> args = HarnessArguments.with(invocation.getArgs(), "-c", cpuCount);
+            result.add(new HarnessInvocation(invocation.getName(), invocation.getShard(), invocation.getTests(), args, Collections.<String>emptyList(),
+                    invocation.getWorkingDir(), invocation.getReportDir()));
+        }
+        return result;
+    }
+
+    static String host(String agent) {
+        int colon = agent.lastIndexOf(':');
+        return colon > 0 ? agent.substring(0, colon) : agent;
+    }
+
+    static int port(String agent) {
+        int colon = agent.lastIndexOf(':');
+        return colon > 0 ? Integer.parseInt(agent.substring(colon + 1).trim()) : AgentProtocol.DEFAULT_PORT;
+    }
+
+    @Override
+    List<String> commandLine(HarnessInvocation invocation) {
+        List<String> result = new ArrayList<>();
+        result.add("<agent>");
+        result.addAll(jvmArgs);
+        result.add(MAIN_CLASS);
+        result.addAll(HarnessArguments.without(invocation.getArgs(), "-r"));
+        return result;
+    }
+
+    @Override
+    int run(HarnessInvocation invocation, Consumer<String> output) {
+        while (true) {
+            if (isCancelled()) {
+                return CANCELLED;
+            }
+            String agent = takeAgent(invocation);
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(host(agent), port(agent)), CONNECT_TIMEOUT_MILLIS);
+            } catch (IOException e) {
+                closeQuietly(socket);
+                liveAgents.decrementAndGet();
+                output.accept("jcstress agent " + agent + " is not reachable, dropped: " + e.getMessage());
+                continue;
+            }
+            connections.add(socket);
+            try {
+                if (isCancelled()) {
+                    return CANCELLED;
+                }
+                output.accept("Running on jcstress agent " + agent);
+                return runOn(socket, invocation, output);
+            } catch (IOException e) {
+                if (isCancelled()) {
+                    return CANCELLED;
+                }
+                throw new GradleException("jcstress agent " + agent + " failed to run [" + invocation.getName() + "]", e);
+            } finally {
+                connections.remove(socket);
+                closeQuietly(socket);
+                freeAgents.add(agent);
+            }
+        }
+    }
+
+    @Override
+    void cancel() {
+        super.cancel();
+        for (Socket socket : connections) {
+            closeQuietly(socket);
+        }
+    }
+
+    private String takeAgent(HarnessInvocation invocation) {
+        try {
+            while (true) {
+                String agent = freeAgents.poll(1, TimeUnit.SECONDS);
+                if (agent != null) {
+                    return agent;
+                }
+                if (liveAgents.get() <= 0) {
+                    throw new GradleException("No jcstress agent left to run [" + invocation.getName() + "]");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while waiting for a jcstress agent", e);
+        }
+    }
+
+    private int runOn(Socket socket, HarnessInvocation invocation, Consumer<String> output) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        AgentProtocol.writeString(out, AgentProtocol.GREETING);
+        AgentProtocol.writeString(out, token);
+        out.flush();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        byte answer = in.readByte();
+        if (answer == AgentProtocol.ERROR) {
+            throw new GradleException("jcstress agent rejected [" + invocation.getName() + "]: " + AgentProtocol.readString(in));
+        } else if (answer != AgentProtocol.ACCEPTED) {
+            throw new IOException("Unexpected frame [" + answer + "]");
+        }
+        AgentProtocol.writeStrings(out, jvmArgs);
+        AgentProtocol.writeStrings(out, HarnessArguments.without(invocation.getArgs(), "-r"));
+        out.flush();
+
+        Path reportDir = invocation.getReportDir().toPath().toAbsolutePath().normalize();
+        while (true) {
+            byte frame = in.readByte();
+            switch (frame) {
+                case AgentProtocol.OUTPUT:
+                    output.accept(AgentProtocol.readString(in));
+                    break;
+                case AgentProtocol.FILE:
+                    receiveFile(in, reportDir);
+                    break;
+                case AgentProtocol.EXIT:
+                    return in.readInt();
+                case AgentProtocol.ERROR:
+                    throw new GradleException("jcstress agent rejected [" + invocation.getName() + "]: " + AgentProtocol.readString(in));
+                default:
+                    throw new IOException("Unexpected frame [" + frame + "]");
+            }
+        }
+    }
+
+    private static void receiveFile(DataInputStream in, Path reportDir) throws IOException {
+        String name = AgentProtocol.readString(in);
+        long size = in.readLong();
+        Path target = reportDir.resolve(name).normalize();
+        if (!target.startsWith(reportDir)) {
+            throw new IOException("Report file outside of the report directory [" + name + "]");
+        }
+        Files.createDirectories(target.getParent());
+        try (OutputStream file = Files.newOutputStream(target)) {
+            byte[] buffer = new byte[8192];
+            long remaining = size;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new IOException("Truncated report file [" + name + "]");
+                }
+                file.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+}
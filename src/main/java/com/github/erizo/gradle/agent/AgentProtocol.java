@@ -0,0 +1,99 @@
+package com.github.erizo.gradle.agent;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire format between the jcstress task and {@link JcstressAgent}.
+ * <p>
+ * The task connects to an agent and sends {@link #GREETING} and the agent token. The agent answers with
+ * {@link #ACCEPTED}, or with a single {@link #ERROR} frame if the token is wrong. The task then sends the JVM arguments
+ * and the arguments of the harness, and the agent answers with a single {@link #ERROR} frame if it does not allow the
+ * JVM arguments, or with a sequence of frames: an {@link #OUTPUT} frame per line of harness output, a {@link #FILE}
+ * frame per file of the report, and a final {@link #EXIT} frame with the exit value of the harness. One connection runs
+ * one harness.
+ * <p>
+ * Frames are read with a limit on their length, because the agent reads them from connections it does not trust yet.
+ * <p>
+ * Only JDK classes are used here, as the agent runs without Gradle.
+ */
+public final class AgentProtocol {
+
+    public static final String GREETING = "jcstress-agent/2";
+
+    public static final int DEFAULT_PORT = 7171;
+
+    public static final byte ACCEPTED = 'A';
+    public static final byte OUTPUT = 'O';
+    public static final byte FILE = 'F';
+    public static final byte EXIT = 'X';
+    public static final byte ERROR = 'E';
+
+    /**
+     * Longest string frame, in bytes. Test selectors of large shards are the longest strings sent.
+     */
+    public static final int MAX_STRING_LENGTH = 1 << 20;
+
+    /**
+     * Longest list of strings, in bytes of all its strings together.
+     */
+    public static final int MAX_STRINGS_LENGTH = 4 << 20;
+
+    private AgentProtocol() {
+    }
+
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        return readString(in, MAX_STRING_LENGTH);
+    }
+
+    /**
+     * @param maxLength longest accepted string, in bytes
+     * @throws IOException if the string is longer
+     */
+    public static String readString(DataInputStream in, int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Invalid frame length " + length + ", at most " + maxLength + " bytes expected");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    /**
+     * @throws IOException if the strings are longer than {@link #MAX_STRINGS_LENGTH} together
+     */
+    public static List<String> readStrings(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        // every string takes at least its length
+        if (size < 0 || size > MAX_STRINGS_LENGTH / 4) {
+            throw new IOException("Invalid number of strings " + size);
+        }
+        List<String> result = new ArrayList<>();
+        int remaining = MAX_STRINGS_LENGTH;
+        for (int i = 0; i < size; i++) {
+            String value = readString(in, Math.min(remaining, MAX_STRING_LENGTH));
+            remaining -= value.getBytes(StandardCharsets.UTF_8).length;
+            result.add(value);
+        }
+        return result;
+    }
+
+}
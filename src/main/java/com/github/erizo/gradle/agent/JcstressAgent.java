@@ -0,0 +1,297 @@
+package com.github.erizo.gradle.agent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Runs jcstress harnesses on behalf of a remote jcstress task, see {@link AgentProtocol}.
+ * <p>
+ * The agent is started from the {@code jcstressInstall} distribution, so the harness runs with the classpath of the
+ * agent: the tests, the code under test and jcstress. Requests are served one at a time; a request that arrives while
+ * a harness is running waits until it finishes. Every harness runs in a new directory, deleted after its report has
+ * been sent.
+ * <p>
+ * Anyone who can connect to the agent with its token can run code on its classpath. The agent does not start without a
+ * token, listens on the loopback interface unless an address is given, and reads nothing but the token before it has
+ * been checked. JVM arguments of the harness and its forks are limited to {@link #ALLOWED_JVM_ARGS}, so that a client
+ * cannot run commands or load agents with options such as {@code -XX:OnError} or {@code -javaagent}. The token and
+ * everything else are sent in plain text.
+ */
+public final class JcstressAgent {
+
+    static final String HARNESS_MAIN_CLASS = "org.openjdk.jcstress.Main";
+
+    static final String TOKEN_ENVIRONMENT_VARIABLE = "JCSTRESS_AGENT_TOKEN";
+
+    /**
+     * Longest accepted token, in bytes.
+     */
+    static final int MAX_TOKEN_LENGTH = 1024;
+
+    /**
+     * How long the agent waits for a connected client to send its request.
+     */
+    static final int REQUEST_TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * JVM arguments a client may pass: system properties, heap and stack sizes, compiler modes, assertions, and
+     * {@code -XX} options that are flags or numbers. Options that name commands, files or agents are not allowed.
+     */
+    static final Pattern ALLOWED_JVM_ARGS = Pattern.compile("-D[^=]+(=.*)?"
+            + "|-X(mx|ms|mn|ss)\\d+[kKmMgGtT]?"
+            + "|-X(int|comp|batch|mixed)|-Xshare:(off|auto)"
+            + "|-XX:[+-]\\w+"
+            + "|-XX:(?!On)\\w+=-?\\d+(\\.\\d+)?[kKmMgGtT%]?"
+            + "|-(ea|da|enableassertions|disableassertions)(:[\\w.$]*)?"
+            + "|-(esa|dsa|enablesystemassertions|disablesystemassertions|server|client|d64)");
+
+    /**
+     * Harness options whose value is passed to the forks as JVM arguments.
+     */
+    private static final List<String> HARNESS_JVM_ARGS_OPTIONS = Arrays.asList("-jvmArgs", "-jvmArgsPrepend");
+
+    private final ServerSocket serverSocket;
+    private final String token;
+    private final String mainClass;
+    private final File workDir;
+
+    JcstressAgent(ServerSocket serverSocket, String token, String mainClass, File workDir) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("A jcstress agent needs a token, set --token or " + TOKEN_ENVIRONMENT_VARIABLE);
+        }
+        this.serverSocket = serverSocket;
+        this.token = token;
+        this.mainClass = mainClass;
+        this.workDir = workDir;
+    }
+
+    /**
+     * Usage: {@code --token token [--port 7171] [--bind address] [--work-dir directory]}. The token can also be
+     * given in the {@value #TOKEN_ENVIRONMENT_VARIABLE} environment variable. Without {@code --bind}, the agent only
+     * accepts connections from the same machine.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = AgentProtocol.DEFAULT_PORT;
+        String bind = null;
+        String token = System.getenv(TOKEN_ENVIRONMENT_VARIABLE);
+        File workDir = new File(System.getProperty("java.io.tmpdir"), "jcstress-agent");
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--bind":
+                    bind = args[i + 1];
+                    break;
+                case "--token":
+                    token = args[i + 1];
+                    break;
+                case "--work-dir":
+                    workDir = new File(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option [" + args[i] + "]");
+            }
+        }
+        if (token == null || token.isEmpty()) {
+            System.err.println("jcstress agent not started: set a token with --token or " + TOKEN_ENVIRONMENT_VARIABLE);
+            System.exit(2);
+        }
+        ServerSocket serverSocket = new ServerSocket(port, 50, bind != null ? InetAddress.getByName(bind) : InetAddress.getLoopbackAddress());
+        System.out.println("jcstress agent listening on " + serverSocket.getLocalSocketAddress());
+        new JcstressAgent(serverSocket, token, HARNESS_MAIN_CLASS, workDir).serve();
+    }
+
+    /**
+     * Serves requests until the server socket is closed.
+     */
+    void serve() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                handle(socket);
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("jcstress agent request failed: " + e);
+                }
+            }
+        }
+    }
+
+    private void handle(Socket socket) throws IOException {
+        // a client that connects and sends nothing would block the agent for good
+        socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (!AgentProtocol.GREETING.equals(AgentProtocol.readString(in, AgentProtocol.GREETING.length()))) {
+            return;
+        }
+        String requestToken = AgentProtocol.readString(in, MAX_TOKEN_LENGTH);
+        if (!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), requestToken.getBytes(StandardCharsets.UTF_8))) {
+            out.writeByte(AgentProtocol.ERROR);
+            AgentProtocol.writeString(out, "invalid agent token");
+            out.flush();
+            return;
+        }
+        out.writeByte(AgentProtocol.ACCEPTED);
+        out.flush();
+        List<String> jvmArgs = AgentProtocol.readStrings(in);
+        List<String> harnessArgs = AgentProtocol.readStrings(in);
+        String disallowed = disallowedJvmArg(jvmArgs, harnessArgs);
+        if (disallowed != null) {
+            out.writeByte(AgentProtocol.ERROR);
+            AgentProtocol.writeString(out, "JVM argument not allowed on a jcstress agent [" + disallowed + "]");
+            out.flush();
+            return;
+        }
+
+        workDir.mkdirs();
+        Path jobDir = Files.createTempDirectory(workDir.toPath(), "job");
+        try {
+            File reportDir = new File(jobDir.toFile(), "report");
+            int exitValue = runHarness(jobDir.toFile(), reportDir, jvmArgs, harnessArgs, out);
+            sendReport(reportDir.toPath(), out);
+            out.writeByte(AgentProtocol.EXIT);
+            out.writeInt(exitValue);
+            out.flush();
+        } finally {
+            delete(jobDir);
+        }
+    }
+
+    private int runHarness(File jobDir, File reportDir, List<String> jvmArgs, List<String> harnessArgs, DataOutputStream out) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath());
+        command.addAll(jvmArgs);
+        command.add(mainClass);
+        command.addAll(harnessArgs);
+        command.add("-r");
+        command.add(reportDir.getAbsolutePath());
+        ProcessBuilder processBuilder = new ProcessBuilder(command).directory(jobDir).redirectErrorStream(true);
+        processBuilder.environment().put("CLASSPATH", absoluteClasspath());
+
+        Process process = processBuilder.start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), Charset.defaultCharset()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                out.writeByte(AgentProtocol.OUTPUT);
+                AgentProtocol.writeString(out, line);
+                out.flush();
+            }
+            return process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running jcstress harness", e);
+        } finally {
+            // the task is gone if the output could not be sent; do not leave the harness or its forks behind
+            destroyDescendants(process);
+            process.destroy();
+        }
+    }
+
+    /**
+     * @param jvmArgs     JVM arguments of the harness
+     * @param harnessArgs arguments of the harness, which may pass JVM arguments to the forks
+     * @return the first JVM argument that does not match {@link #ALLOWED_JVM_ARGS}, or {@code null} if all do
+     */
+    static String disallowedJvmArg(List<String> jvmArgs, List<String> harnessArgs) {
+        List<String> args = new ArrayList<>(jvmArgs);
+        for (int i = 0; i < harnessArgs.size(); i++) {
+            if (HARNESS_JVM_ARGS_OPTIONS.contains(harnessArgs.get(i)) && i + 1 < harnessArgs.size()) {
+                // the harness splits the value on whitespace
+                for (String arg : harnessArgs.get(i + 1).trim().split("\\s+")) {
+                    if (!arg.isEmpty()) {
+                        args.add(arg);
+                    }
+                }
+            }
+        }
+        for (String arg : args) {
+            if (!ALLOWED_JVM_ARGS.matcher(arg).matches()) {
+                return arg;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Destroys the forks of the harness before the harness, so that they do not outlive it. Process handles are only
+     * available on Java 9 and later; on Java 8 the forks are left to exit once the harness is gone.
+     */
+    private static void destroyDescendants(Process process) {
+        try {
+            Stream<?> descendants = (Stream<?>) Process.class.getMethod("descendants").invoke(process);
+            Method destroy = Class.forName("java.lang.ProcessHandle").getMethod("destroy");
+            for (Iterator<?> iterator = descendants.iterator(); iterator.hasNext(); ) {
+                destroy.invoke(iterator.next());
+            }
+        } catch (ReflectiveOperationException e) {
+            // Java 8
+        }
+    }
+
+    /**
+     * The classpath of the agent, which the harness shares. Relative entries are resolved here, because the harness
+     * runs in another directory.
+     */
+    private static String absoluteClasspath() {
+        StringBuilder result = new StringBuilder();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (result.length() > 0) {
+                result.append(File.pathSeparator);
+            }
+            result.append(new File(entry).getAbsolutePath());
+        }
+        return result.toString();
+    }
+
+    private static void sendReport(Path reportDir, DataOutputStream out) throws IOException {
+        if (!Files.isDirectory(reportDir)) {
+            return;
+        }
+        Files.walkFileTree(reportDir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                out.writeByte(AgentProtocol.FILE);
+                AgentProtocol.writeString(out, reportDir.relativize(file).toString().replace(File.separatorChar, '/'));
+                out.writeLong(attrs.size());
+                Files.copy(file, out);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void delete(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete [" + directory + "]", e);
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.github.erizo.gradle
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class JcstressAutoTuningSpec extends Specification {
+
+    @TempDir
+    File root
+
+    def "should read CPU quota and memory limit of a cgroup v2 container"() {
+        given:
+        write('proc/self/status', 'Name:\tjava\nCpus_allowed_list:\t0-7\n')
+        write('proc/self/cgroup', '0::/\n')
+        write('proc/meminfo', 'MemTotal:       16384000 kB\nMemAvailable:    8192000 kB\n')
+        write('sys/devices/system/cpu/online', '0-15\n')
+        write('sys/devices/system/cpu/cpu0/topology/thread_siblings_list', '0,8\n')
+        write('sys/fs/cgroup/cgroup.controllers', 'cpu memory\n')
+        write('sys/fs/cgroup/cpu.max', '250000 100000\n')
+        write('sys/fs/cgroup/memory.max', '2147483648\n')
+
+        when:
+        def host = HostResources.read(root)
+
+        then:
+        host.linux
+        host.onlineCpus == 16
+        host.allowedCpus.size() == 8
+        host.threadsPerCore == 2
+        host.cpuQuota == 2.5d
+        host.memoryLimit == 2147483648L
+        host.memoryAvailable == 8192000L * 1024
+    }
+
+    def "should treat cgroup v1 unlimited values as no limit"() {
+        given:
+        write('proc/self/status', 'Cpus_allowed_list:\t0-3\n')
+        write('sys/devices/system/cpu/online', '0-3\n')
+        write('sys/fs/cgroup/cpu,cpuacct/cpu.cfs_quota_us', '-1\n')
+        write('sys/fs/cgroup/cpu,cpuacct/cpu.cfs_period_us', '100000\n')
+        write('sys/fs/cgroup/memory/memory.limit_in_bytes', '9223372036854771712\n')
+
+        when:
+        def host = HostResources.read(root)
+
+        then:
+        host.cpuQuota == null
+        host.memoryLimit == null
+        host.memoryAvailable == null
+    }
+
+    def "should fit cpus, affinity and heap into a container"() {
+        given:
+        def host = new HostResources(true, 16, 2, new CpuSet(0..7), 2.5d, 2048L * 1024 * 1024, 8192L * 1024 * 1024)
+        def tuning = new JcstressAutoTuning(host)
+
+        when:
+        def args = tuning.apply(['-c', 'auto', '-hs', 'auto', '-af', 'auto', '-f', '2'])
+
+        then:
+        HarnessArguments.valueOf(args, '-c') == '2'
+        HarnessArguments.valueOf(args, '-af') == 'NONE'
+        HarnessArguments.valueOf(args, '-hs') == '928'
+        HarnessArguments.valueOf(args, '-f') == '2'
+        tuning.decisions == [
+                'cpuCount = 2: 8 of 16 online CPUs allowed, 2 hardware threads per core, cgroup CPU quota of 2.50 CPUs',
+                'affinityMode = NONE: cgroup CPU quota of 2.50 CPUs, pinned actors would be throttled',
+                'heapPerFork = 928 MB: cgroup memory limit of 2048 MB, 1 concurrent forks']
+    }
+
+    def "should use the whole machine without limits"() {
+        given:
+        def host = new HostResources(true, 8, 1, new CpuSet(0..7), null, null, 512L * 1024 * 1024)
+        def tuning = new JcstressAutoTuning(host)
+
+        when:
+        def args = tuning.apply(['-c', 'auto', '-hs', 'auto', '-af', 'auto'])
+
+        then:
+        HarnessArguments.valueOf(args, '-c') == '8'
+        HarnessArguments.valueOf(args, '-af') == 'LOCAL'
+        HarnessArguments.valueOf(args, '-hs') == '32'
+        tuning.decisions[2].endsWith('forks may run out of memory')
+    }
+
+    def "should leave heap to the harness when memory is unknown"() {
+        given:
+        def host = new HostResources(false, 4, 1, new CpuSet(0..3), null, null, null)
+
+        when:
+        def args = new JcstressAutoTuning(host).apply(['-c', '2', '-hs', 'auto', '-af', 'auto'])
+
+        then:
+        args == ['-c', '2', '-af', 'NONE']
+    }
+
+    private void write(String path, String content) {
+        def file = new File(root, path)
+        file.parentFile.mkdirs()
+        file.text = content
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.github.erizo.gradle
+
+import org.gradle.api.GradleException
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class JcstressCdsSpec extends Specification {
+
+    @TempDir
+    File tempDir
+
+    def "should read archivable classes from class loading logs"() {
+        given:
+        def harness = new File(tempDir, 'harness-101.log')
+        harness.text = '''[0.010s][info][class,load] java.lang.Object source: shared objects file
+[0.052s][info][class,load] org.openjdk.jcstress.Main source: file:/work/lib/jcstress-core.jar
+[0.061s][info][class,load] java.lang.invoke.LambdaForm$MH/0x0000000800c01000 source: __JVM_LookupDefineClass__
+[0.063s][info][class,load] org.openjdk.jcstress.Main$$Lambda$14/0x0000000800c02000 source: org.openjdk.jcstress.Main
+[0.070s][info][class,load] jdk.internal.reflect.GeneratedMethodAccessor1 source: __JVM_DefineClass__
+[0.071s][info][cds       ] some other line
+'''
+        def fork = new File(tempDir, 'fork-102.log')
+        fork.text = '''[0.011s][info][class,load] java.lang.Object source: shared objects file
+[0.090s][info][class,load] com.example.CounterTest_jcstress source: file:/work/lib/project-jcstress.jar
+'''
+
+        expect:
+        JcstressCds.readClassList([harness, fork]) == ['com/example/CounterTest_jcstress', 'java/lang/Object', 'org/openjdk/jcstress/Main']
+    }
+
+    def "should add the archive after the installation directory is known"() {
+        given:
+        def script = '''#!/bin/sh
+APP_HOME=$( cd -P "${APP_HOME:-./}.." > /dev/null && printf '%s\\n' "$PWD" ) || exit
+    APP_HOME=$( cygpath --path --mixed "$APP_HOME" )
+DEFAULT_JVM_OPTS='"-XX:+UnlockDiagnosticVMOptions"'
+exec "$JAVACMD" "$@"
+'''
+
+        expect:
+        JcstressCds.addToUnixScript(script, 'app.jsa').readLines()[4] ==
+                'DEFAULT_JVM_OPTS="$DEFAULT_JVM_OPTS "\'"-XX:SharedArchiveFile=\'"$APP_HOME"\'/lib/app.jsa"\''
+    }
+
+    def "should add the archive to scripts that set the default options first"() {
+        given:
+        def script = '''#!/usr/bin/env sh
+DEFAULT_JVM_OPTS='"-XX:+UnlockDiagnosticVMOptions"'
+cd "`dirname \\"$PRG\\"`/.." >/dev/null
+APP_HOME="`pwd -P`"
+cd "$SAVED" >/dev/null
+'''
+
+        expect:
+        JcstressCds.addToUnixScript(script, 'app.jsa').readLines()[4].startsWith('DEFAULT_JVM_OPTS="$DEFAULT_JVM_OPTS "')
+    }
+
+    def "should add the archive to windows scripts"() {
+        given:
+        def script = 'set APP_HOME=%DIRNAME%..\r\n\r\nset DEFAULT_JVM_OPTS="-XX:+UnlockDiagnosticVMOptions"\r\n\r\n'
+
+        expect:
+        JcstressCds.addToWindowsScript(script, 'app.jsa') == 'set APP_HOME=%DIRNAME%..\r\n\r\n' +
+                'set DEFAULT_JVM_OPTS="-XX:+UnlockDiagnosticVMOptions"\r\n' +
+                'set DEFAULT_JVM_OPTS=%DEFAULT_JVM_OPTS% "-XX:SharedArchiveFile=%APP_HOME%\\lib\\app.jsa"\r\n\r\n'
+    }
+
+    def "should refuse a script without default options"() {
+        when:
+        JcstressCds.addToUnixScript('#!/bin/sh\nAPP_HOME=/opt/app\n', 'app.jsa')
+
+        then:
+        thrown(GradleException)
+    }
+
+}
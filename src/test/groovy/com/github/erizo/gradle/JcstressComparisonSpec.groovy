@@ -0,0 +1,55 @@
+package com.github.erizo.gradle
+
+import groovy.json.JsonSlurper
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class JcstressComparisonSpec extends Specification {
+
+    @TempDir
+    File tempDir
+
+    def "should compare throughput and interesting outcomes of runs"() {
+        given:
+        def jdk11 = results(1000, 0)
+        def jdk17 = results(1493, 7)
+        def comparison = new JcstressComparison([jdk11: jdk11, jdk17: jdk17])
+
+        when:
+        comparison.write(tempDir)
+        def json = new JsonSlurper().parse(new File(tempDir, JcstressComparison.FILE_NAME))
+
+        then:
+        comparison.relativeThroughput('jdk17', 'com.example.CounterTest') == 150d
+        comparison.runsWithInterestingOutcomes('com.example.CounterTest') == ['jdk17']
+        json.runs == ['jdk11', 'jdk17']
+        json.tests[0].runs.jdk17.interestingOutcomes == ['1, 1': 7]
+        json.tests[0].runs.jdk11.relativeThroughput == 100
+        new File(tempDir, 'index.html').text.contains('ACCEPTABLE_INTERESTING')
+    }
+
+    def "should show tests missing from a run"() {
+        given:
+        def comparison = new JcstressComparison([jdk11: results(1000, 0), jdk17: new JcstressResults()])
+
+        when:
+        comparison.write(tempDir)
+
+        then:
+        comparison.relativeThroughput('jdk17', 'com.example.CounterTest') == null
+        new JsonSlurper().parse(new File(tempDir, JcstressComparison.FILE_NAME)).tests[0].runs.jdk17.status == null
+    }
+
+    private static JcstressResults results(long samples, long interesting) {
+        def results = new JcstressResults()
+        results.useOptions(['-time', '1000', '-iters', '1'])
+        def test = results.test('com.example.CounterTest')
+        test.addFork('OK')
+        test.addOutcome('1, 2', samples, 'ACCEPTABLE', null)
+        if (interesting > 0) {
+            test.addOutcome('1, 1', interesting, 'ACCEPTABLE_INTERESTING', null)
+        }
+        return results
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.github.erizo.gradle
+
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class JcstressCpuPoolSpec extends Specification {
+
+    def pool = new JcstressCpuPool(new CpuSet(0..7))
+
+    def "should lease disjoint CPUs"() {
+        when:
+        def first = pool.tryAcquire(':a:jcstress', 3)
+        def second = pool.tryAcquire(':b:jcstress', 4)
+
+        then:
+        first.cpus.cpus == [0, 1, 2]
+        second.cpus.cpus == [3, 4, 5, 6]
+        pool.holders() == [':a:jcstress (CPUs 0,1,2)', ':b:jcstress (CPUs 3,4,5,6)']
+        pool.tryAcquire(':c:jcstress', 2) == null
+    }
+
+    def "should lease at most the whole pool"() {
+        expect:
+        pool.tryAcquire(':a:jcstress', Integer.MAX_VALUE).cpus.size() == 8
+    }
+
+    def "should reuse released CPUs"() {
+        given:
+        def first = pool.tryAcquire(':a:jcstress', 8)
+
+        when:
+        first.release()
+        first.release()
+
+        then:
+        pool.tryAcquire(':b:jcstress', 8).cpus.cpus == (0..7).toList()
+        pool.holders() == [':b:jcstress (CPUs 0,1,2,3,4,5,6,7)']
+    }
+
+    @Timeout(10)
+    def "should serve waiting tasks in order"() {
+        given:
+        def first = pool.tryAcquire(':a:jcstress', 6)
+        def leased = []
+        def large = new CountDownLatch(1)
+        def largeThread = Thread.start {
+            pool.acquire(':b:jcstress', 8)
+            leased << 'b'
+            large.countDown()
+        }
+        while (!largeThread.state.toString().contains('WAIT')) {
+            Thread.sleep(10)
+        }
+
+        expect:
+        pool.tryAcquire(':c:jcstress', 1) == null
+
+        when:
+        first.release()
+
+        then:
+        large.await(5, TimeUnit.SECONDS)
+        leased == ['b']
+    }
+
+}
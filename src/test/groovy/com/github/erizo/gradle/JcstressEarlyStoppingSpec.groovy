@@ -0,0 +1,56 @@
+package com.github.erizo.gradle
+
+import spock.lang.Specification
+
+class JcstressEarlyStoppingSpec extends Specification {
+
+    def earlyStopping = new JcstressEarlyStopping(0.05, 2)
+
+    def "should stop a test once its last fork matches the earlier ones"() {
+        expect:
+        !earlyStopping.addFork('com.example.Test', fork('OK', 900, 100))
+        earlyStopping.addFork('com.example.Test', fork('OK', 920, 80))
+        Math.abs(earlyStopping.lastDistance('com.example.Test') - 0.02) < 1e-9
+    }
+
+    def "should keep running a test while its distribution changes"() {
+        expect:
+        !earlyStopping.addFork('com.example.Test', fork('OK', 900, 100))
+        !earlyStopping.addFork('com.example.Test', fork('OK', 500, 500))
+        earlyStopping.addFork('com.example.Test', fork('OK', 700, 300))
+    }
+
+    def "should never stop a test with a forbidden outcome, an error or a missing fork"() {
+        expect:
+        !earlyStopping.addFork('com.example.Forbidden', fork('OK', 900, 100))
+        !earlyStopping.addFork('com.example.Forbidden', fork('FAILED', 900, 100, 1))
+        !earlyStopping.addFork('com.example.Forbidden', fork('OK', 900, 100))
+
+        !earlyStopping.addFork('com.example.Error', fork('ERROR', 0, 0))
+        !earlyStopping.addFork('com.example.Error', fork('OK', 900, 100))
+        !earlyStopping.addFork('com.example.Error', fork('OK', 900, 100))
+
+        !earlyStopping.addFork('com.example.Missing', null)
+        !earlyStopping.addFork('com.example.Missing', fork('OK', 900, 100))
+        !earlyStopping.addFork('com.example.Missing', fork('OK', 900, 100))
+    }
+
+    def "should measure the total variation distance"() {
+        expect:
+        JcstressEarlyStopping.distance(['1, 1': 50L, '0, 1': 50L], ['1, 1': 100L, '0, 1': 100L]) == 0
+        JcstressEarlyStopping.distance(['1, 1': 75L, '0, 1': 25L], ['1, 1': 25L, '0, 1': 75L]) == 0.5
+        JcstressEarlyStopping.distance(['1, 1': 1L], ['0, 0': 5L]) == 1
+    }
+
+    private static JcstressTestResult fork(String status, long sequential, long interleaved, long forbidden = 0) {
+        def result = new JcstressTestResult('com.example.Test')
+        result.addFork(status)
+        result.addOutcome('1, 1', sequential, 'ACCEPTABLE', 'Sequential.')
+        result.addOutcome('0, 1', interleaved, 'ACCEPTABLE_INTERESTING', 'Interleaved.')
+        if (forbidden > 0) {
+            result.addOutcome('0, 0', forbidden, 'FORBIDDEN', 'Lost update.')
+        }
+        result
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.github.erizo.gradle
+
+import spock.lang.IgnoreIf
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class JcstressFailFastSpec extends Specification {
+
+    @TempDir
+    File tempDir
+
+    def invocation = new HarnessInvocation('jcstress', ['com.example.CounterTest', 'com.example.FlagTest'], [], [], tempDir, tempDir)
+    def stops = 0
+    def failFast = new JcstressFailFast({ stops++ })
+
+    def "should stop on the first forbidden outcome"() {
+        when:
+        feed('[OK] com.example.FlagTest',
+                '  RESULT  SAMPLES  FREQ  EXPECT  DESCRIPTION',
+                '    0, 1    1,000  100.00%  Acceptable_Interesting  Reordered.',
+                '',
+                '[FAILED] com.example.CounterTest',
+                '  RESULT  SAMPLES  FREQ  EXPECT  DESCRIPTION',
+                '    1, 2    9,000  99.78%  Acceptable  actor1 incremented, then actor2.',
+                '    1, 1       20   0.22%  Forbidden  Lost update.',
+                '    2, 2        0   0.00%  Forbidden  Impossible.',
+                '')
+
+        then:
+        stops == 1
+        failFast.failure == 'com.example.CounterTest: FORBIDDEN outcome [1, 1], 20 samples'
+    }
+
+    def "should stop on an error"() {
+        when:
+        feed('[ERROR] com.example.FlagTest',
+                'java.lang.OutOfMemoryError: Java heap space',
+                '[FAILED] com.example.CounterTest')
+        failFast.finished(invocation)
+
+        then:
+        stops == 1
+        failFast.failure == 'com.example.FlagTest: ERROR'
+    }
+
+    def "should report a failed test without forbidden outcomes when its table ends"() {
+        when:
+        feed('[FAILED] com.example.CounterTest',
+                '  RESULT  SAMPLES  FREQ  EXPECT  DESCRIPTION',
+                '    1, 2    9,000  100.00%  Acceptable  actor1 incremented, then actor2.')
+
+        then:
+        stops == 0
+
+        when:
+        feed('')
+
+        then:
+        stops == 1
+        failFast.failure == 'com.example.CounterTest: FAILED'
+    }
+
+    def "should ignore the summary printed after run results"() {
+        when:
+        feed('[OK] com.example.CounterTest',
+                '',
+                'RUN RESULTS:',
+                '[FAILED] com.example.CounterTest',
+                '  RESULT  SAMPLES  FREQ  EXPECT  DESCRIPTION',
+                '    1, 1       20  100.00%  Forbidden  Lost update.',
+                '')
+        failFast.finished(invocation)
+
+        then:
+        stops == 0
+        failFast.failure == null
+    }
+
+    @IgnoreIf({ os.windows })
+    def "should stop a running harness when cancelled"() {
+        given:
+        def launcher = new HarnessLauncher('java', [], '', [:])
+        def script = 'echo "[FAILED] com.example.CounterTest"; echo "  RESULT  SAMPLES  FREQ  EXPECT  DESCRIPTION"; ' +
+                'echo "    1, 1  20  100.00%  Forbidden  Lost update."; exec sleep 60'
+        def running = new HarnessInvocation('shard-1', ['com.example.CounterTest'], [], ['sh', '-c', script, 'sh'],
+                new File(tempDir, 'shard-1'), new File(tempDir, 'report/shard-1'))
+        def failFast = new JcstressFailFast({ launcher.cancel() })
+        def started = System.currentTimeMillis()
+
+        when:
+        launcher.run(running, { line -> failFast.onLine(running, line) })
+
+        then:
+        failFast.failure == 'com.example.CounterTest: FORBIDDEN outcome [1, 1], 20 samples'
+        System.currentTimeMillis() - started < 30_000
+
+        and:
+        launcher.run(new HarnessInvocation('shard-2', ['com.example.FlagTest'], [], ['sh', '-c', 'exit 0', 'sh'],
+                new File(tempDir, 'shard-2'), new File(tempDir, 'report/shard-2')), {}) == HarnessLauncher.CANCELLED
+    }
+
+    private void feed(String... lines) {
+        for (String line : lines) {
+            failFast.onLine(invocation, line)
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.github.erizo.gradle
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class JcstressIncrementalSpec extends Specification {
+
+    @TempDir
+    File classesDir
+
+    def "should read class references from constant pool"() {
+        when:
+        def references = ClassReferences.read(classBytes(JcstressReportMerger))
+
+        then:
+        references.contains(HarnessInvocation.name)
+        references.contains('java.nio.file.Files')
+    }
+
+    def "should change fingerprint when a referenced class changes"() {
+        given:
+        copyClass(JcstressReportMerger)
+        def referenced = copyClass(HarnessInvocation)
+        def before = new JcstressFingerprinter([classesDir]).fingerprint(JcstressReportMerger.name)
+
+        when:
+        referenced << 'changed'
+        def after = new JcstressFingerprinter([classesDir]).fingerprint(JcstressReportMerger.name)
+
+        then:
+        before != null
+        before != after
+    }
+
+    def "should not change fingerprint when an unrelated class changes"() {
+        given:
+        copyClass(HarnessInvocation)
+        def unrelated = copyClass(CpuSet)
+        def before = new JcstressFingerprinter([classesDir]).fingerprint(HarnessInvocation.name)
+
+        when:
+        unrelated << 'changed'
+        def after = new JcstressFingerprinter([classesDir]).fingerprint(HarnessInvocation.name)
+
+        then:
+        before == after
+    }
+
+    def "should consider only passed tests up to date"() {
+        given:
+        def state = JcstressIncrementalState.load(new File(classesDir, 'state.properties'))
+        state.useConfiguration('config')
+        state.record('a.Passed', 'f1', 'OK')
+        state.record('a.Failed', 'f2', 'FAILED')
+        state.save()
+
+        when:
+        def loaded = JcstressIncrementalState.load(new File(classesDir, 'state.properties'))
+        loaded.useConfiguration('config')
+
+        then:
+        loaded.isUpToDate('a.Passed', 'f1')
+        !loaded.isUpToDate('a.Passed', 'other')
+        !loaded.isUpToDate('a.Failed', 'f2')
+    }
+
+    def "should forget all tests when configuration changes"() {
+        given:
+        def state = JcstressIncrementalState.load(new File(classesDir, 'state.properties'))
+        state.useConfiguration('config')
+        state.record('a.Passed', 'f1', 'OK')
+
+        when:
+        state.useConfiguration('other config')
+
+        then:
+        !state.isUpToDate('a.Passed', 'f1')
+    }
+
+    def "should treat unreported tests of a completed run as passed"() {
+        given:
+        def collector = new JcstressStatusCollector()
+        def invocation = new HarnessInvocation('shard-1', ['a.Quiet', 'a.Broken'], [], [], classesDir, classesDir)
+
+        when:
+        collector.onLine(invocation, '    [FAILED] a.Broken')
+        collector.onLine(invocation, 'RUN RESULTS:')
+
+        then:
+        collector.statusOf(invocation, 'a.Quiet') == 'OK'
+        collector.statusOf(invocation, 'a.Broken') == 'FAILED'
+    }
+
+    def "should read statuses of results with JVM options"() {
+        given:
+        def collector = new JcstressStatusCollector()
+        def invocation = new HarnessInvocation('shard-1', ['a.Broken'], [], [], classesDir, classesDir)
+
+        when:
+        collector.onLine(invocation, '[FAILED] a.Broken (JVM args: [-XX:+UseZGC])')
+
+        then:
+        collector.statusOf(invocation, 'a.Broken') == 'FAILED'
+    }
+
+    private static byte[] classBytes(Class<?> type) {
+        type.getResourceAsStream("/${type.name.replace('.', '/')}.class").bytes
+    }
+
+    private File copyClass(Class<?> type) {
+        def file = new File(classesDir, "${type.name.replace('.', '/')}.class")
+        file.parentFile.mkdirs()
+        file.bytes = classBytes(type)
+        return file
+    }
+
+}
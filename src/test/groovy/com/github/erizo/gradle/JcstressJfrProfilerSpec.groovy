@@ -0,0 +1,58 @@
+package com.github.erizo.gradle
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class JcstressJfrProfilerSpec extends Specification {
+
+    @TempDir
+    File tempDir
+
+    def "should run every test of a shard in its own harness run with JFR enabled"() {
+        given:
+        def reportDir = new File(tempDir, 'report')
+        def profiler = new JcstressJfrProfiler('profile', reportDir)
+        def shard = new HarnessInvocation('shard-1', ['a.A', 'b.B'], ['-t', 'a.A|b.B', '-jvmArgsPrepend', '-Xmx1g', '-r', 'shard'],
+                ['taskset'], new File(tempDir, 'shard-1'), new File(reportDir, 'shards/shard-1'))
+
+        when:
+        def runs = profiler.perTest([shard])
+
+        then:
+        runs.size() == 1
+        runs[0]*.tests == [['a.A'], ['b.B']]
+        runs[0]*.name == ['shard-1 a.A', 'shard-1 b.B']
+        HarnessArguments.valueOf(runs[0][0].args, '-t') == JcstressTestIndex.exactRegexp(['a.A'])
+        HarnessArguments.valueOf(runs[0][0].args, '-jvmArgsPrepend') == '-Xmx1g -XX:StartFlightRecording=dumponexit=true,settings=profile'
+        runs[0][0].commandPrefix == ['taskset']
+        runs[0][0].workingDir != runs[0][1].workingDir
+        runs[0][1].reportDir == new File(reportDir, 'shards/shard-1/b.B')
+    }
+
+    def "should collect recordings of a run named after the test and fork"() {
+        given:
+        def reportDir = new File(tempDir, 'report')
+        def profiler = new JcstressJfrProfiler('default', reportDir)
+        def run = new HarnessInvocation('shard-1 a.A', ['a.A'], [], [], new File(tempDir, 'work'), reportDir)
+        new File(reportDir, 'jfr').mkdirs()
+        new File(reportDir, 'jfr/a.A-fork-3.jfr').text = 'stale'
+
+        when:
+        profiler.started(run)
+        run.workingDir.mkdirs()
+        def first = new File(run.workingDir, 'hotspot-pid-2.jfr')
+        first.text = 'first'
+        first.lastModified = 1000
+        def second = new File(run.workingDir, 'hotspot-pid-1.jfr')
+        second.text = 'second'
+        second.lastModified = 2000
+        profiler.finished(run)
+
+        then:
+        new File(reportDir, 'jfr').list().sort() == ['a.A-fork-1.jfr', 'a.A-fork-2.jfr']
+        new File(reportDir, 'jfr/a.A-fork-1.jfr').text == 'first'
+        new File(reportDir, 'jfr/a.A-fork-2.jfr').text == 'second'
+        run.workingDir.list().length == 0
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.github.erizo.gradle
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class JcstressJmhSpec extends Specification {
+
+    @TempDir
+    File tempDir
+
+    def "should generate a benchmark group of the actors"() {
+        given:
+        def benchmark = new JcstressJmhGenerator.Benchmark('com.example.Outer$CounterTest', 'com.example',
+                'Outer_CounterTest_JmhBenchmark', 'com.example.Outer.CounterTest', true,
+                ['com.example.Counter': 'state0'], ['org.openjdk.jcstress.infra.results.II_Result': 'result0'],
+                [new JcstressJmhGenerator.Actor('actor1', 'state0', 'results.result0'),
+                 new JcstressJmhGenerator.Actor('actor2', true, ['results.result0'])])
+
+        when:
+        def source = JcstressJmhGenerator.source(benchmark)
+
+        then:
+        verifyAll {
+            benchmark.qualifiedClassName == 'com.example.Outer_CounterTest_JmhBenchmark'
+            source.startsWith('package com.example;\n')
+            source.contains('@State(Scope.Group)\npublic class Outer_CounterTest_JmhBenchmark {')
+            source.contains('        test = new com.example.Outer.CounterTest();\n')
+            source.contains('        state0 = new com.example.Counter();\n')
+            source.contains('        org.openjdk.jcstress.infra.results.II_Result result0 = new org.openjdk.jcstress.infra.results.II_Result();\n')
+            source.contains('    @Group("actors")\n    @GroupThreads(1)\n    public void actor1(Results results) {\n' +
+                    '        test.actor1(state0, results.result0);\n')
+            source.contains('        com.example.Outer.CounterTest.actor2(results.result0);\n')
+        }
+    }
+
+    def "should not create a test instance for static actors"() {
+        given:
+        def benchmark = new JcstressJmhGenerator.Benchmark('StaticTest', '', 'StaticTest_JmhBenchmark', 'StaticTest',
+                false, [:], [:], [new JcstressJmhGenerator.Actor('actor1', true, [])])
+
+        when:
+        def source = JcstressJmhGenerator.source(benchmark)
+
+        then:
+        !source.contains('package ')
+        !source.contains(' test')
+        source.contains('        StaticTest.actor1();\n')
+    }
+
+    def "should refuse a class without actors"() {
+        when:
+        JcstressJmhGenerator.describe(String)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == 'the test has no actors'
+    }
+
+    def "should load nested tests by their name in the test list"() {
+        expect:
+        JcstressJmhSourcesTask.loadTest(getClass().classLoader, 'com.github.erizo.gradle.JcstressJmhGenerator.Actor') ==
+                JcstressJmhGenerator.Actor
+    }
+
+    def "should read the throughput of the tests from JMH results"() {
+        given:
+        def file = new File(tempDir, JcstressJmhResults.JMH_FILE_NAME)
+        file.text = '''[
+    {
+        "benchmark" : "com.example.CounterTest_JmhBenchmark.actors",
+        "mode" : "thrpt",
+        "primaryMetric" : { "score" : 1.2345E8, "scoreError" : 1.5E6, "scoreUnit" : "ops/s" },
+        "secondaryMetrics" : {
+            "actor2" : { "score" : 6.0E7, "scoreError" : "NaN", "scoreUnit" : "ops/s" },
+            "actor1" : { "score" : 6.345E7, "scoreError" : "NaN", "scoreUnit" : "ops/s" }
+        }
+    },
+    {
+        "benchmark" : "com.example.OtherBenchmark.run",
+        "mode" : "thrpt",
+        "primaryMetric" : { "score" : 1.0, "scoreError" : "NaN", "scoreUnit" : "ops/s" }
+    }
+]'''
+
+        when:
+        def results = JcstressJmhResults.read(file, ['com.example.CounterTest_JmhBenchmark': 'com.example.CounterTest'])
+        results.write(tempDir)
+
+        then:
+        verifyAll {
+            results.tests.keySet() == ['com.example.CounterTest'] as Set
+            results.tests['com.example.CounterTest'].score == 1.2345E8d
+            results.tests['com.example.CounterTest'].error == 1.5E6d
+            results.tests['com.example.CounterTest'].unit == 'ops/s'
+            results.tests['com.example.CounterTest'].actors == [actor1: 6.345E7d, actor2: 6.0E7d]
+            new File(tempDir, JcstressJmhResults.FILE_NAME).text.contains('"name": "com.example.CounterTest"')
+            new File(tempDir, 'index.html').text.contains('<td>123,450,000 ops/s</td>')
+        }
+    }
+
+}
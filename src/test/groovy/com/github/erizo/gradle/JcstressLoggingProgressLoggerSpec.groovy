@@ -0,0 +1,26 @@
+package com.github.erizo.gradle
+
+import org.gradle.api.logging.Logger
+import spock.lang.Specification
+
+class JcstressLoggingProgressLoggerSpec extends Specification {
+
+    def "should log the status at most once per interval"() {
+        given:
+        def logger = Mock(Logger)
+        def time = 0L
+        def progressLogger = new JcstressLoggingProgressLogger(logger, { time })
+
+        when:
+        progressLogger.progress('1/2 tests')
+        time = JcstressLoggingProgressLogger.INTERVAL_MILLIS
+        progressLogger.progress('2/2 tests')
+        time += 1
+        progressLogger.progress('done')
+
+        then:
+        1 * logger.lifecycle('jcstress: {}', '2/2 tests')
+        0 * logger.lifecycle(_, _)
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.github.erizo.gradle
 
+import org.gradle.api.InvalidUserDataException
 import org.gradle.api.artifacts.Configuration
 import org.gradle.api.distribution.plugins.DistributionPlugin
 import org.gradle.api.internal.file.DefaultSourceDirectorySet
@@ -150,6 +151,54 @@ class JcstressPluginSpec extends Specification {
         !task.source.files.contains(jcstressClassFile)
     }
 
+    def "should run jcstress task from class directories by default"() {
+        given:
+        plugin.apply(project)
+
+        when:
+        project.evaluate()
+        def jcstressTask = project.tasks['jcstress'] as JcstressTask
+        def jar = project.tasks['jcstressJar'] as Jar
+
+        then:
+        jcstressTask.classpath.files.containsAll(project.sourceSets.jcstress.output.classesDirs.files)
+        jcstressTask.classpath.files.containsAll(project.sourceSets.main.output.classesDirs.files)
+        !jcstressTask.classpath.files.contains(jar.archiveFile.get().asFile)
+    }
+
+    def "should run jcstress task from jcstress jar when useJar is true"() {
+        given:
+        plugin.apply(project)
+        project.jcstress {
+            useJar = true
+        }
+
+        when:
+        project.evaluate()
+        def jcstressTask = project.tasks['jcstress'] as JcstressTask
+        def jar = project.tasks['jcstressJar'] as Jar
+
+        then:
+        jcstressTask.classpath.files.contains(jar.archiveFile.get().asFile)
+        !jcstressTask.classpath.files.containsAll(project.sourceSets.jcstress.output.classesDirs.files)
+    }
+
+    def "should add jcstressListTests task using jcstress regexp"() {
+        given:
+        plugin.apply(project)
+        project.jcstress {
+            regexp = 'Counter'
+        }
+
+        when:
+        project.evaluate()
+        def listTestsTask = project.tasks['jcstressListTests'] as JcstressListTestsTask
+
+        then:
+        listTestsTask.regexp.get() == 'Counter'
+        listTestsTask.testIndexDirs.files.containsAll(project.sourceSets.jcstress.output.classesDirs.files)
+    }
+
     def "should add jcstressInstall task"() {
         when:
         plugin.apply(project)
@@ -189,10 +238,10 @@ class JcstressPluginSpec extends Specification {
         when:
         project.tasks.jcstress.args = ["asdf"]
         project.evaluate()
-        def jcstressTask = project.tasks['jcstress']
+        def jcstressTask = project.tasks['jcstress'] as JcstressTask
 
         then:
-        jcstressTask.args.containsAll(['asdf', '-f', '30', '-time', '200'])
+        jcstressTask.harnessArgs.containsAll(['asdf', '-f', '30', '-time', '200'])
     }
 
     @Ignore("only manually")
@@ -293,6 +342,254 @@ class JcstressPluginSpec extends Specification {
         runtimeClasspath.files.containsAll(project.configurations.testRuntimeClasspath.files)
     }
 
+    def "should pass shards to jcstress task"() {
+        given:
+        plugin.apply(project)
+        project.jcstress {
+            shards = 4
+        }
+
+        when:
+        project.evaluate()
+        def jcstressTask = project.tasks['jcstress'] as JcstressTask
+
+        then:
+        jcstressTask.shards.get() == 4
+        !jcstressTask.harnessArgs.contains('4')
+    }
+
+    def "should configure incremental mode on jcstress task"() {
+        given:
+        plugin.apply(project)
+        project.jcstress {
+            incremental = true
+        }
+
+        when:
+        project.evaluate()
+        def jcstressTask = project.tasks['jcstress'] as JcstressTask
+
+        then:
+        jcstressTask.incremental.get()
+        jcstressTask.fingerprintDirs.files.containsAll(project.sourceSets.main.output.classesDirs.files)
+        jcstressTask.fingerprintDirs.files.containsAll(project.sourceSets.jcstress.output.classesDirs.files)
+    }
+
+    def "should keep the duration history in the configured directory"() {
+        given:
+        plugin.apply(project)
+        project.jcstress {
+            timeBudget = '15m'
+            durationHistoryDir = 'ci-cache/jcstress'
+        }
+
+        when:
+        project.evaluate()
+        def jcstressTask = project.tasks['jcstress'] as JcstressTask
+
+        then:
+        jcstressTask.timeBudget.get() == '15m'
+        jcstressTask.durationHistoryFile.get().asFile == project.file('ci-cache/jcstress/durations.properties')
+    }
+
+    def "should add a jcstress task per JDK of the matrix"() {
+        given:
+        plugin.apply(project)
+        project.jcstress {
+            matrix {
+                jdk 11
+                jdk 17
+            }
+        }
+
+        when:
+        project.evaluate()
+        def jdk11Task = project.tasks['jcstressJdk11'] as JcstressTask
+        def reportTask = project.tasks['jcstressMatrixReport'] as JcstressComparisonReportTask
+
+        then:
+        jdk11Task.cpuLeases.present
+        jdk11Task.reportsDirectory.get().asFile == new File(project.buildDir, 'reports/jcstress/jdk11')
+        reportTask.runs.get().keySet() == ['jdk11', 'jdk17'] as Set
+        reportTask.reportDirectory.get().asFile == new File(project.buildDir, 'reports/jcstress/matrix')
+        project.tasks['jcstressMatrix'].taskDependencies.getDependencies(null)*.name.containsAll(['jcstressJdk11', 'jcstressJdk17', 'jcstressMatrixReport'])
+    }
+
+    def "should add a jcstress task per JVM flag variant"() {
+        given:
+        plugin.apply(project)
+        project.jcstress {
+            jvmArgsPrepend = '-Xint'
+            variants {
+                zgc {
+                    jvmArgs = '-XX:+UseZGC'
+                }
+                standard {
+                }
+            }
+        }
+
+        when:
+        project.evaluate()
+        def zgcTask = project.tasks['jcstressZgc'] as JcstressTask
+        def standardTask = project.tasks['jcstressStandard'] as JcstressTask
+        def reportTask = project.tasks['jcstressVariantsReport'] as JcstressComparisonReportTask
+
+        then:
+        HarnessArguments.valueOf(zgcTask.harnessArgs, '-jvmArgsPrepend') == '-Xint -XX:+UseZGC'
+        HarnessArguments.valueOf(standardTask.harnessArgs, '-jvmArgsPrepend') == '-Xint'
+        zgcTask.cpuLeases.present == GradleVersion.current() >= GradleVersion.version('6.1')
+        zgcTask.reportsDirectory.get().asFile == new File(project.buildDir, 'reports/jcstress/zgc')
+        reportTask.runs.get().keySet() == ['zgc', 'standard'] as Set
+        reportTask.reportDirectory.get().asFile == new File(project.buildDir, 'reports/jcstress/variants')
+    }
+
+    def "should reject run names used by the plugin"() {
+        when:
+        JcstressPlugin.requireRunName(name)
+
+        then:
+        def e = thrown(InvalidUserDataException)
+        e.message.contains("[$name]")
+
+        where:
+        name << ['matrix', 'Variants', 'all', 'listTests', 'cds', 'jmh', 'scripts', 'install']
+    }
+
+    def "should accept other run names"() {
+        when:
+        JcstressPlugin.requireRunName('zgc')
+        JcstressPlugin.requireRunName('jdk17')
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "should lease CPUs and run every suite from the root project"() {
+        given:
+        plugin.apply(project)
+
+        when:
+        project.evaluate()
+        def jcstressTask = project.tasks['jcstress'] as JcstressTask
+        def allTask = project.tasks['jcstressAll']
+
+        then:
+        jcstressTask.cpuLeases.present == GradleVersion.current() >= GradleVersion.version('6.1')
+        allTask.taskDependencies.getDependencies(allTask).contains(jcstressTask)
+    }
+
+    def "should run the suites of all projects from the jcstressAll task of the root project"() {
+        given:
+        def first = ProjectBuilder.builder().withName('first').withParent(project).build()
+        def second = ProjectBuilder.builder().withName('second').withParent(project).build()
+        ProjectBuilder.builder().withName('other').withParent(project).build()
+
+        when:
+        plugin.apply(project)
+        new JcstressPlugin().apply(first)
+        new JcstressPlugin().apply(second)
+        def allTask = project.tasks['jcstressAll']
+
+        then:
+        !first.tasks.findByName('jcstressAll')
+        allTask.taskDependencies.getDependencies(allTask) == [project.tasks['jcstress'], first.tasks['jcstress'], second.tasks['jcstress']] as Set
+    }
+
+    def "should not register tasks in the root project from a subproject"() {
+        given:
+        def subproject = ProjectBuilder.builder().withName('sub').withParent(project).build()
+
+        when:
+        new JcstressPlugin().apply(subproject)
+
+        then:
+        !project.tasks.findByName('jcstressAll')
+        !subproject.tasks.findByName('jcstressAll')
+    }
+
+    def "should store the last results as the throughput baseline"() {
+        given:
+        plugin.apply(project)
+        project.jcstress {
+            throughputBaseline = 'jcstress-baseline.json'
+        }
+
+        when:
+        project.evaluate()
+        def updateTask = project.tasks['jcstressUpdateThroughputBaseline'] as JcstressUpdateBaselineTask
+        def resultsFile = new File(project.buildDir, 'reports/jcstress/jcstress-results.json')
+        resultsFile.parentFile.mkdirs()
+        resultsFile.text = '{"tests":[]}'
+        updateTask.updateBaseline()
+
+        then:
+        updateTask.resultsFile.get().asFile == resultsFile
+        updateTask.mustRunAfter.getDependencies(updateTask).contains(project.tasks['jcstress'])
+        (project.tasks['jcstress'] as JcstressTask).throughputBaseline.get().asFile == project.file('jcstress-baseline.json')
+        project.file('jcstress-baseline.json').text == '{"tests":[]}'
+    }
+
+    def "should pass the class data sharing archive through an argument provider"() {
+        given:
+        plugin.apply(project)
+        project.jcstress {
+            cds {
+                enabled = true
+            }
+        }
+
+        when:
+        project.evaluate()
+        def jcstressTask = project.tasks['jcstress'] as JcstressTask
+        def archive = jcstressTask.sharedArchiveFile.get().asFile
+
+        then:
+        jcstressTask.allJvmArgs.contains("-XX:SharedArchiveFile=${archive.absolutePath}".toString())
+        !jcstressTask.jvmArgs.any { it.startsWith('-XX:SharedArchiveFile') }
+    }
+
+    def "should not track absolute report dir in jcstress task inputs"() {
+        given:
+        plugin.apply(project)
+
+        when:
+        project.evaluate()
+        def jcstressTask = project.tasks['jcstress'] as JcstressTask
+
+        then:
+        jcstressTask.normalizedArgs.contains('<reportsDirectory>')
+        !jcstressTask.normalizedArgs.any { it.contains(project.buildDir.path) }
+        jcstressTask.javaRuntimeVersion
+    }
+
+    def "should make jcstress task cacheable when enabled"() {
+        given:
+        plugin.apply(project)
+        project.jcstress {
+            cacheable = true
+        }
+
+        when:
+        project.evaluate()
+        def jcstressTask = project.tasks['jcstress'] as JcstressTask
+
+        then:
+        jcstressTask.cacheable.get()
+    }
+
+    def "should not resolve jcstress configuration at configuration time"() {
+        given:
+        plugin.apply(project)
+
+        when:
+        project.evaluate()
+
+        then:
+        project.configurations.jcstress.state == Configuration.State.UNRESOLVED
+        project.configurations.jcstressRuntimeClasspath.state == Configuration.State.UNRESOLVED
+    }
+
     def "should put jcstress results to temp dir"() {
         given:
         plugin.apply(project)
@@ -310,11 +607,11 @@ class JcstressPluginSpec extends Specification {
 
         when:
         project.evaluate()
-        def jcstressTask = project.tasks['jcstress'] as JavaExec
+        def jcstressTask = project.tasks['jcstress'] as JcstressTask
 
         then:
-        def reportDirSwitchIndex = jcstressTask.args.indexOf("-r")
-        Paths.get(jcstressTask.args[reportDirSwitchIndex + 1]).endsWith("build/reports/jcstress")
+        def reportDirSwitchIndex = jcstressTask.harnessArgs.indexOf("-r")
+        Paths.get(jcstressTask.harnessArgs[reportDirSwitchIndex + 1]).endsWith("build/reports/jcstress")
     }
 
     def "should not set report dir to build when already defined"() {
@@ -327,11 +624,11 @@ class JcstressPluginSpec extends Specification {
 
         when:
         project.evaluate()
-        def jcstressTask = project.tasks['jcstress'] as JavaExec
+        def jcstressTask = project.tasks['jcstress'] as JcstressTask
 
         then:
-        def reportDirSwitchIndex = jcstressTask.args.indexOf("-r")
-        Paths.get(jcstressTask.args[reportDirSwitchIndex + 1]).endsWith("my/report/dir")
+        def reportDirSwitchIndex = jcstressTask.harnessArgs.indexOf("-r")
+        Paths.get(jcstressTask.harnessArgs[reportDirSwitchIndex + 1]).endsWith("my/report/dir")
     }
 
     def "should add jcstress dependencies to jcstress configuration"() {
@@ -434,6 +731,26 @@ class JcstressPluginSpec extends Specification {
         testSourceDirs.containsAll(jcstressSrcDirs)
     }
 
+    def "should add jmh source set and tasks when enabled"() {
+        given:
+        plugin.apply(project)
+
+        expect:
+        project.sourceSets.findByName('jcstressJmh') == null
+        project.tasks.findByName('jcstressJmh') == null
+
+        when:
+        project.jcstress.jmh.enabled = true
+
+        then:
+        verifyAll {
+            project.sourceSets.jcstressJmh.java.srcDirs == [project.file('build/generated/sources/jcstressJmh/java')] as Set
+            project.tasks.jcstressJmhSources instanceof JcstressJmhSourcesTask
+            project.tasks.jcstressJmh instanceof JcstressJmhTask
+            project.tasks.jcstressJmh.reportsDirectory.get().asFile == project.file('build/reports/jcstress/jmh')
+        }
+    }
+
     def "should add jsctress scripts task"() {
         given:
         plugin.apply(project)
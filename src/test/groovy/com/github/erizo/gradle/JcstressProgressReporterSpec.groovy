@@ -0,0 +1,125 @@
+package com.github.erizo.gradle
+
+import spock.lang.Specification
+
+class JcstressProgressReporterSpec extends Specification {
+
+    def invocation = new HarnessInvocation('jcstress', [], [], [], new File('.'), new File('.'))
+    def time = 0L
+    def statuses = []
+    def reporter = new JcstressProgressReporter({ statuses << it }, { time })
+
+    def "should report finished tests, remaining forks and outcomes"() {
+        given:
+        reporter.expect(['com.example.CounterTest', 'com.example.OtherTest'], 2, true)
+
+        when:
+        time = 1000
+        feed('[OK] com.example.CounterTest',
+                '  RESULT  SAMPLES  FREQ  EXPECT  DESCRIPTION',
+                '    1, 1       20   1.00%  Interesting  Both actors came up with the same value.',
+                '    1, 2    1,980  99.00%  Acceptable  actor1 incremented, then actor2.')
+        time = 2000
+        feed('[FAILED] com.example.CounterTest',
+                '  RESULT  SAMPLES  FREQ  EXPECT  DESCRIPTION',
+                '    1, 1       20   1.00%  Forbidden  Lost update.',
+                '    1, 2        0   0.00%  Interesting  Not seen.')
+        reporter.publish(true)
+
+        then:
+        statuses.last() == '1/2 tests, 2 forks left, ETA 2s, 1 forbidden, 1 interesting, last com.example.CounterTest'
+    }
+
+    def "should prefer the estimate printed by the harness"() {
+        when:
+        feed('(ETA: 00:01:30) (Sampling Rate: 1.2 GHz) (JVMs: 0 starting, 2 running)')
+        reporter.publish(true)
+
+        then:
+        statuses.last().contains('ETA 00:01:30')
+    }
+
+    def "should follow the progress line of the harness when passed tests are not printed"() {
+        given:
+        reporter.expect(['com.example.A', 'com.example.B'], 2, false)
+        def shard = new HarnessInvocation('shard-2', [], [], [], new File('.'), new File('.'))
+
+        when:
+        feed('(ETA: 00:00:40) (Sampling Rate: 1.2 GHz) (JVMs: 0 starting, 2 running, 0 finishing) (CPUs: 0 configuring, 4 allocated) '
+                + '(Results: 4 planned; 1 passed, 0 failed, 0 soft errs, 0 hard errs)')
+        reporter.onLine(shard, '(ETA: 00:00:30) (Sampling Rate: 1.2 GHz) (JVMs: 1 starting, 1 running, 0 finishing) '
+                + '(Results: 2 planned; 0 passed, 1 failed, 0 soft errs, 0 hard errs)')
+        reporter.publish(true)
+
+        then:
+        statuses.last() == '2/6 results, 3 JVMs running, ETA 00:00:30, 0 forbidden, 0 interesting'
+
+        when:
+        reporter.finished(shard)
+        reporter.publish(true)
+
+        then:
+        statuses.last().startsWith('2/6 results, 2 JVMs running')
+    }
+
+    def "should ignore the results summary of a run"() {
+        given:
+        reporter.expect(['com.example.CounterTest'], 1, true)
+
+        when:
+        feed('[OK] com.example.CounterTest',
+                'RUN RESULTS:',
+                '[OK] com.example.CounterTest',
+                '  RESULT  SAMPLES  FREQ  EXPECT  DESCRIPTION',
+                '    1, 1       20   1.00%  Forbidden  Lost update.')
+        reporter.publish(true)
+
+        then:
+        statuses.last() == '1/1 tests, 0 forks left, 0 forbidden, 0 interesting, last com.example.CounterTest'
+    }
+
+    def "should follow the forks of early stopping and re-runs"() {
+        given:
+        reporter.expect(['com.example.A', 'com.example.B'], 3, true)
+
+        when: 'A converged after one fork'
+        feed('[OK] com.example.A', '[OK] com.example.B')
+        reporter.stopped('com.example.A')
+        reporter.publish(true)
+
+        then:
+        statuses.last().startsWith('1/2 tests, 2 forks left')
+
+        when: 'A is re-run with 2 forks'
+        reporter.expect(['com.example.A'], 2, true)
+        reporter.publish(true)
+
+        then:
+        statuses.last().startsWith('0/2 tests, 4 forks left')
+    }
+
+    def "should count tests without a test list"() {
+        when:
+        feed('[OK] com.example.A')
+        reporter.publish(true)
+
+        then:
+        statuses.last().startsWith('1 tests, ')
+    }
+
+    def "should not publish more often than the update interval"() {
+        when:
+        time = JcstressProgressReporter.UPDATE_INTERVAL_MILLIS
+        feed('[OK] com.example.A')
+        time += 1
+        feed('[OK] com.example.B')
+
+        then:
+        statuses.size() == 1
+    }
+
+    private void feed(String... lines) {
+        lines.each { reporter.onLine(invocation, it) }
+    }
+
+}
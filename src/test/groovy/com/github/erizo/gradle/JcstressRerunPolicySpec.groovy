@@ -0,0 +1,64 @@
+package com.github.erizo.gradle
+
+import spock.lang.Specification
+
+class JcstressRerunPolicySpec extends Specification {
+
+    def policy = new JcstressRerunPolicy(10_000, 2, 1, 2)
+
+    def "should select erroneous, interesting and undersampled tests"() {
+        given:
+        def results = new JcstressResults()
+        results.test('com.example.Error').addFork('ERROR')
+        results.test('com.example.Interesting').addFork('OK')
+        results.test('com.example.Interesting').addOutcome('0, 1', 5, 'ACCEPTABLE_INTERESTING', 'Reordered.')
+        results.test('com.example.Interesting').addOutcome('1, 1', 5_000_000, 'ACCEPTABLE', 'Sequential.')
+        results.test('com.example.Undersampled').addFork('OK')
+        results.test('com.example.Undersampled').addOutcome('1, 1', 500, 'ACCEPTABLE', 'Sequential.')
+        results.test('com.example.Failed').addFork('FAILED')
+        results.test('com.example.Failed').addOutcome('0, 0', 20, 'FORBIDDEN', 'Lost update.')
+        results.test('com.example.Passed').addStatus('OK')
+
+        when:
+        def selected = policy.select(results, ['com.example.Error', 'com.example.Failed', 'com.example.Interesting',
+                                               'com.example.Passed', 'com.example.Undersampled', 'com.example.Unknown'])
+
+        then:
+        selected == ['com.example.Error', 'com.example.Interesting', 'com.example.Undersampled']
+        policy.reason(results.get('com.example.Undersampled')) == 'only 500 samples'
+    }
+
+    def "should escalate settings in every round"() {
+        given:
+        def args = ['-t', 'com.example.Test', '-time', '200', '-iters', '3']
+
+        expect:
+        policy.escalate(args, 1) == ['-t', 'com.example.Test', '-time', '400', '-iters', '3', '-f', '2']
+        policy.escalate(args, 2) == ['-t', 'com.example.Test', '-time', '800', '-iters', '3', '-f', '4']
+        policy.options(args, 2) == [timeMillis: '800', iterations: '3', forks: '4']
+        policy.escalate(['-m', 'quick'], 1) == ['-m', 'quick', '-time', '2000', '-f', '2']
+    }
+
+    def "should add re-runs to the results of the main pass"() {
+        given:
+        def results = new JcstressResults()
+        def test = results.test('com.example.Interesting')
+        test.addFork('OK')
+        test.addOutcome('0, 1', 5, 'ACCEPTABLE_INTERESTING', 'Reordered.')
+        def rerun = new JcstressResults()
+        rerun.test('com.example.Interesting').addFork('OK')
+        rerun.test('com.example.Interesting').addFork('OK')
+        rerun.test('com.example.Interesting').addOutcome('0, 1', 12, 'ACCEPTABLE_INTERESTING', 'Reordered.')
+
+        when:
+        results.addRerun(rerun, 1, [timeMillis: '2000', forks: '2'])
+
+        then:
+        test.forks == 3
+        test.samples == 17
+        test.outcomes*.samples == [17]
+        test.reruns == [[round: 1, options: [timeMillis: '2000', forks: '2'], status: 'OK', forks: 2, samples: 12]]
+        JcstressThroughputGate.throughput(results, test) == null
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.github.erizo.gradle
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class JcstressResultParserSpec extends Specification {
+
+    @TempDir
+    File tempDir
+
+    def invocation = new HarnessInvocation('jcstress', ['com.example.CounterTest', 'com.example.FlagTest'], [], [], tempDir, tempDir)
+    def time = 0L
+    def results = new JcstressResults()
+    def parser = new JcstressResultParser(results, { time })
+
+    def "should aggregate outcomes of all forks of a test"() {
+        when:
+        parser.started(invocation)
+        feed('[OK] com.example.CounterTest',
+                '  RESULT        SAMPLES     FREQ      EXPECT  DESCRIPTION',
+                '    1, 1      1,000   10.00%  Acceptable  Both actors came up with the same value.',
+                '    1, 2      9,000   90.00%  Acceptable  actor1 incremented, then actor2.',
+                '')
+        feed('[FAILED] com.example.CounterTest',
+                '  RESULT        SAMPLES     FREQ      EXPECT  DESCRIPTION',
+                '    1, 1         20   50.00%   Forbidden  Lost update.',
+                '    1, 2         20   50.00%  Acceptable  actor1 incremented, then actor2.',
+                '')
+
+        then:
+        def result = results.get('com.example.CounterTest')
+        result.status == 'FAILED'
+        result.forks == 2
+        result.samples == 10040
+        result.outcomes*.state == ['1, 1', '1, 2']
+        result.outcomes*.samples == [1020, 9020]
+        result.outcomes*.expectation == ['ACCEPTABLE', 'ACCEPTABLE']
+        result.outcomes[1].description == 'actor1 incremented, then actor2.'
+    }
+
+    def "should measure the duration of the whole run"() {
+        given:
+        def other = new HarnessInvocation('shard-2', ['com.example.FlagTest'], [], [], tempDir, tempDir)
+
+        when:
+        time = 1000
+        parser.started(invocation)
+        time = 1500
+        parser.started(other)
+        time = 3000
+        parser.finished(other)
+        time = 4000
+        parser.finished(invocation)
+
+        then:
+        results.durationMillis == 3000
+    }
+
+    def "should skip the summary printed after run results"() {
+        when:
+        feed('[FAILED] com.example.CounterTest',
+                '  RESULT  SAMPLES  FREQ  EXPECT  DESCRIPTION',
+                '    1, 1       20  100.00%  Forbidden  Lost update.',
+                '',
+                'RUN RESULTS:',
+                '[FAILED] com.example.CounterTest',
+                '  RESULT  SAMPLES  FREQ  EXPECT  DESCRIPTION',
+                '    1, 1       20  100.00%  Forbidden  Lost update.')
+        parser.finished(invocation)
+
+        then:
+        results.get('com.example.CounterTest').forks == 1
+        results.get('com.example.CounterTest').samples == 20
+        results.get('com.example.FlagTest').status == 'OK'
+        results.get('com.example.FlagTest').forks == 0
+    }
+
+    def "should keep a bounded number of outcomes per test"() {
+        when:
+        feed('[OK] com.example.CounterTest', '  RESULT  SAMPLES  FREQ  EXPECT  DESCRIPTION')
+        (1..1000).each { feed("    $it      1   0.10%  Acceptable  Outcome $it.") }
+
+        then:
+        def result = results.get('com.example.CounterTest')
+        result.outcomes.size() == JcstressTestResult.MAX_OUTCOMES
+        result.outcomesTruncated
+        result.samples == 1000
+    }
+
+    def "should write and read results"() {
+        given:
+        def file = new File(tempDir, JcstressResults.FILE_NAME)
+        results.useOptions(['-time', '200', '-iters', '3', '-f', '2'])
+        feed('[OK] com.example.CounterTest',
+                '  RESULT  SAMPLES  FREQ  EXPECT  DESCRIPTION',
+                '    1, 2    9,000  100.00%  Acceptable  actor1 incremented, then actor2.')
+
+        when:
+        results.write(file)
+        def read = JcstressResults.read(file)
+
+        then:
+        read.options == [timeMillis: '200', iterations: '3', forks: '2']
+        read.get('com.example.CounterTest').toMap() == results.get('com.example.CounterTest').toMap()
+    }
+
+    def "should split output into lines"() {
+        given:
+        def lines = []
+        def target = new ByteArrayOutputStream()
+        def output = new LineSplittingOutputStream(target, { lines << it })
+
+        when:
+        output.write('first\r\nsec'.bytes)
+        output.write('ond\nthird'.bytes)
+        output.close()
+
+        then:
+        lines == ['first', 'second', 'third']
+        target.toString() == 'first\r\nsecond\nthird'
+    }
+
+    private void feed(String... lines) {
+        lines.each { parser.onLine(invocation, it) }
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.github.erizo.gradle
+
+import org.gradle.api.logging.Logging
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.util.function.Consumer
+
+class JcstressRoundsSpec extends Specification {
+
+    @TempDir
+    File tempDir
+
+    def "should name the shards of a round after it and parse its results"() {
+        given:
+        def launcher = new HarnessLauncher('java', [], '', [:]) {
+            @Override
+            int run(HarnessInvocation invocation, Consumer<String> output) {
+                invocation.tests.each { output.accept("[${it.endsWith('Failing') ? 'FAILED' : 'OK'}] ${it}".toString()) }
+                return invocation.tests.any { it.endsWith('Failing') } ? 1 : 0
+            }
+        }
+        def rounds = new JcstressRounds(new JcstressShardExecutor(Logging.getLogger(getClass()), launcher), {} as HarnessOutputListener,
+                2, new CpuSet([0, 1]), false, null, new File(tempDir, 'work'), new File(tempDir, 'report'))
+
+        when:
+        def first = rounds.run('rerun-1', ['com.example.A', 'com.example.Failing'], ['-f', '1'])
+        def second = rounds.run('rerun-2', ['com.example.Failing'], ['-f', '2'])
+
+        then:
+        first.get('com.example.A').status == 'OK'
+        first.get('com.example.Failing').status == 'FAILED'
+        second.get('com.example.A') == null
+        rounds.invocations*.name == ['rerun-1 shard-1', 'rerun-1 shard-2', 'rerun-2 shard-1']
+        rounds.invocations*.reportDir == ['rerun-1/shards/shard-1', 'rerun-1/shards/shard-2', 'rerun-2/shards/shard-1']
+                .collect { new File(tempDir, "report/${it}") }
+        rounds.exitValues.collectEntries { [it.key.name, it.value] } == ['rerun-1 shard-1': 0, 'rerun-1 shard-2': 1, 'rerun-2 shard-1': 1]
+    }
+
+}
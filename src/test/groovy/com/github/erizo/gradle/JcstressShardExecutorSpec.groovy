@@ -0,0 +1,111 @@
+package com.github.erizo.gradle
+
+import org.gradle.api.InvalidUserDataException
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class JcstressShardExecutorSpec extends Specification {
+
+    @TempDir
+    File tempDir
+
+    def "should split tests into disjoint shards"() {
+        when:
+        def shards = JcstressShardExecutor.partition(['a.A', 'a.B', 'a.C', 'a.D', 'a.E'], 2)
+
+        then:
+        shards == [['a.A', 'a.C', 'a.E'], ['a.B', 'a.D']]
+    }
+
+    def "should reject shards below one"() {
+        when:
+        JcstressShardExecutor.parseShards(shards)
+
+        then:
+        def e = thrown(InvalidUserDataException)
+        e.message.contains('shards')
+
+        where:
+        shards << ['0', '-1', 'two']
+    }
+
+    def "should not plan shards without tests"() {
+        expect:
+        JcstressShardExecutor.plan([], [], 2, new CpuSet(0..7), false, tempDir, tempDir).isEmpty()
+        JcstressShardExecutor.parseShards(' 3 ') == 3
+    }
+
+    def "should not create more shards than tests"() {
+        when:
+        def invocations = JcstressShardExecutor.plan(['a.A', 'a.B'], [], 4, new CpuSet(0..7), false, tempDir, tempDir)
+
+        then:
+        invocations*.name == ['shard-1', 'shard-2']
+    }
+
+    def "should divide cpus between shards"() {
+        when:
+        def invocations = JcstressShardExecutor.plan(['a.A', 'a.B'], ['-c', '8', '-f', '1'], 2, new CpuSet(0..15), false, tempDir, tempDir)
+
+        then:
+        invocations.every { HarnessArguments.valueOf(it.args, '-c') == '4' }
+        invocations.every { HarnessArguments.valueOf(it.args, '-f') == '1' }
+    }
+
+    def "should select only the tests of a shard"() {
+        when:
+        def invocations = JcstressShardExecutor.plan(['a.A', 'a.AB'], ['-t', 'A'], 2, new CpuSet(0..1), false, tempDir, tempDir)
+
+        then:
+        def selector = HarnessArguments.valueOf(invocations[0].args, '-t')
+        'a.A' ==~ selector
+        !('a.AB' ==~ selector)
+    }
+
+    def "should report every shard into its own directory"() {
+        when:
+        def invocations = JcstressShardExecutor.plan(['a.A', 'a.B'], ['-r', '/tmp/report'], 2, new CpuSet(0..1), false, tempDir, tempDir)
+
+        then:
+        invocations*.reportDir == [new File(tempDir, 'shards/shard-1'), new File(tempDir, 'shards/shard-2')]
+        invocations.every { it.args.count { it == '-r' } == 1 }
+    }
+
+    def "should run shards with long selectors in several parts"() {
+        given:
+        def tests = (1..900).collect { "com.example.concurrency.some.deeply.nested.pkg.SomeRatherLongTestName$it".toString() }
+
+        when:
+        def invocations = JcstressShardExecutor.plan(tests, [], 2, new CpuSet(0..7), false, tempDir, tempDir)
+
+        then:
+        invocations.size() > 2
+        invocations.every { HarnessArguments.valueOf(it.args, '-t').length() <= JcstressShardExecutor.MAX_SELECTOR_LENGTH }
+        invocations*.tests.flatten() as Set == tests as Set
+        invocations*.name.take(2) == ['shard-1.1', 'shard-1.2']
+        invocations*.reportDir.toSet().size() == invocations.size()
+        JcstressShardExecutor.byShard(invocations)*.size().sum() == invocations.size()
+        JcstressShardExecutor.byShard(invocations).collect { it*.shard.unique() } == [['shard-1'], ['shard-2']]
+    }
+
+    def "should read test names from generated test list"() {
+        given:
+        def testList = new File(tempDir, JcstressTestIndex.TEST_LIST)
+        testList.parentFile.mkdirs()
+        testList.text = 'JCTEST 36 com.example.FirstTest 46 com.example.FirstTest_jcstress 0\n' +
+                'JCTEST 37 com.example.SecondTest 47 com.example.SecondTest_jcstress 0\n'
+
+        when:
+        def index = JcstressTestIndex.read([tempDir])
+
+        then:
+        index.tests == ['com.example.FirstTest', 'com.example.SecondTest']
+        index.select('Second') == ['com.example.SecondTest']
+    }
+
+    def "should parse linux cpu lists"() {
+        expect:
+        CpuSet.parseList('0-2,5,7-8') == [0, 1, 2, 5, 7, 8]
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.github.erizo.gradle
+
+import spock.lang.Specification
+
+class JcstressTestIndexSpec extends Specification {
+
+    def index = new JcstressTestIndex(['com.example.atomic.CounterTest', 'com.example.atomic.FlagTest', 'com.example.lock.CounterTest'])
+
+    def "should select tests by regexp found anywhere in the name"() {
+        expect:
+        index.select('Counter') == ['com.example.atomic.CounterTest', 'com.example.lock.CounterTest']
+        index.select(null) == index.tests
+    }
+
+    def "should select tests by glob matching the whole name"() {
+        expect:
+        index.select(JcstressTestIndex.globRegexp('*.atomic.*')) == ['com.example.atomic.CounterTest', 'com.example.atomic.FlagTest']
+        index.select(JcstressTestIndex.globRegexp('*.?lagTest')) == ['com.example.atomic.FlagTest']
+        index.select(JcstressTestIndex.globRegexp('Counter')).isEmpty()
+    }
+
+    def "should not treat regexp characters in glob as wildcards"() {
+        expect:
+        JcstressTestIndex.globRegexp('com.example.*') == '^\\Qcom.example.\\E.*$'
+        !('comXexample.Test' ==~ JcstressTestIndex.globRegexp('com.example.*'))
+    }
+
+}
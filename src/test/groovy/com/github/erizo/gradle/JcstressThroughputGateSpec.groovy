@@ -0,0 +1,68 @@
+package com.github.erizo.gradle
+
+import spock.lang.Specification
+
+class JcstressThroughputGateSpec extends Specification {
+
+    def gate = new JcstressThroughputGate(20)
+
+    def "should report tests whose throughput dropped by more than tolerance"() {
+        given:
+        def baseline = results(['-time', '200', '-iters', '5'], ['a.Fast': [1, 5000], 'a.Slow': [1, 5000]])
+        def current = results(['-time', '200', '-iters', '5'], ['a.Fast': [1, 4500], 'a.Slow': [1, 1000]])
+
+        when:
+        def comparison = gate.compare(baseline, current)
+
+        then:
+        comparison.compared == 2
+        comparison.regressions == ['a.Slow: 5000 -> 1000 samples/s (-80.0%)']
+    }
+
+    def "should normalize throughput for time, iterations and forks"() {
+        given:
+        def baseline = results(['-time', '100', '-iters', '1'], ['a.Test': [1, 1000]])
+        def current = results(['-time', '200', '-iters', '2'], ['a.Test': [3, 12000]])
+
+        expect:
+        JcstressThroughputGate.incompatibility(baseline, current) == null
+        JcstressThroughputGate.throughput(baseline, baseline.get('a.Test')) == 10000
+        JcstressThroughputGate.throughput(current, current.get('a.Test')) == 10000
+        gate.compare(baseline, current).regressions.isEmpty()
+    }
+
+    def "should not compare runs when time is set in only one of them"() {
+        given:
+        def baseline = results(['-iters', '1'], ['a.Test': [1, 1000]])
+        def current = results(['-time', '200', '-iters', '1'], ['a.Test': [1, 1000]])
+
+        expect:
+        JcstressThroughputGate.incompatibility(baseline, current) != null
+    }
+
+    def "should list tests without samples and skip tests without baseline"() {
+        given:
+        def baseline = results([], ['a.Old': [1, 1000], 'a.Quiet': [1, 1000]])
+        def current = results([], ['a.New': [1, 10], 'a.Quiet': [0, 0]])
+
+        when:
+        def comparison = gate.compare(baseline, current)
+
+        then:
+        comparison.compared == 0
+        comparison.unsampled == ['a.Quiet']
+        comparison.regressions.isEmpty()
+    }
+
+    private static JcstressResults results(List<String> args, Map<String, List<Long>> tests) {
+        def results = new JcstressResults()
+        results.useOptions(args)
+        tests.each { name, forksAndSamples ->
+            def test = results.test(name)
+            forksAndSamples[0].times { test.addFork('OK') }
+            test.addOutcome('0', forksAndSamples[1], 'ACCEPTABLE', null)
+        }
+        results
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.github.erizo.gradle
+
+import org.gradle.api.InvalidUserDataException
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class JcstressTimeBudgetSpec extends Specification {
+
+    @TempDir
+    File tempDir
+
+    def "should parse time budget"() {
+        expect:
+        JcstressTimeBudget.parseDuration(text) == millis
+
+        where:
+        text    | millis
+        '500ms' | 500
+        '90'    | 90_000
+        '90s'   | 90_000
+        '15m'   | 900_000
+        '1.5h'  | 5_400_000
+    }
+
+    def "should reject invalid time budget"() {
+        when:
+        JcstressTimeBudget.parseDuration('soon')
+
+        then:
+        thrown(InvalidUserDataException)
+    }
+
+    def "should fit the busiest shard into the budget"() {
+        when:
+        def plan = new JcstressTimeBudget(100_000, historyOf(null)).plan(['a.Slow', 'a.Fast'], ['-f', '2', '-iters', '4'], 1)
+
+        then: 'four forks start in 2 s, the remaining 78 s are shared by their iterations'
+        plan.iterations == 4
+        plan.timeMillis == 4875
+        plan.estimatedMillis <= 100_000 * JcstressTimeBudget.SAFETY_FACTOR
+        !plan.overBudget
+        HarnessArguments.valueOf(plan.apply(['-time', '1000']), '-time') == '4875'
+        HarnessArguments.valueOf(plan.apply(['-time', '1000']), '-iters') == '4'
+    }
+
+    def "should scale the run with the wall time factor of earlier runs"() {
+        given: 'the last run of 2 forks of 1500 ms took 1500 ms, the harness ran two forks at a time'
+        def history = historyOf(1500)
+
+        when:
+        def plan = new JcstressTimeBudget(10_000, history).plan(['a.Test1', 'a.Test2', 'a.Test3', 'a.Test4'], ['-iters', '1'], 2)
+
+        then: 'each of the 2 shards runs 2 forks, which take half their nominal time'
+        history.factor() == 0.5d
+        plan.timeMillis == 7500
+        plan.estimatedMillis == 8000
+    }
+
+    def "should reduce iterations before going below minimum time"() {
+        when:
+        def plan = new JcstressTimeBudget(13_500, historyOf(null)).plan((1..20).collect { "a.Test$it" as String }, ['-iters', '10'], 1)
+
+        then:
+        plan.timeMillis >= JcstressTimeBudget.MIN_TIME_MILLIS
+        plan.iterations == 4
+        !plan.overBudget
+    }
+
+    def "should be over budget when starting the forks takes longer"() {
+        when:
+        def plan = new JcstressTimeBudget(1000, historyOf(null)).plan((1..20).collect { "a.Test$it" as String }, ['-iters', '10'], 1)
+
+        then:
+        plan.iterations == 1
+        plan.timeMillis == JcstressTimeBudget.MIN_TIME_MILLIS
+        plan.estimatedMillis >= 20 * JcstressDurationHistory.FORK_OVERHEAD_MILLIS
+        plan.overBudget
+    }
+
+    def "should average the wall time factor over runs"() {
+        given:
+        def file = new File(tempDir, 'durations.properties')
+        def history = JcstressDurationHistory.load(file)
+
+        when: 'the iteration time is not known'
+        history.record(2, 1, ['-f', '1'], 3000)
+
+        then:
+        history.factor() == null
+
+        when:
+        history.record(2, 1, ['-time', '1000', '-iters', '1'], 3000)
+        history.record(4, 2, ['-time', '1000', '-iters', '1'], 6000)
+        history.save()
+
+        then:
+        JcstressDurationHistory.load(file).factor() == 1.5d
+    }
+
+    private JcstressDurationHistory historyOf(Long wallMillis) {
+        def history = JcstressDurationHistory.load(new File(tempDir, 'durations.properties'))
+        if (wallMillis != null) {
+            history.record(2, 1, ['-time', '1000', '-iters', '1'], wallMillis)
+        }
+        history
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.github.erizo.gradle
+
+import groovy.json.JsonSlurper
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class JcstressTraceWriterSpec extends Specification {
+
+    @TempDir
+    File tempDir
+
+    def "should write measured spans of harness startup and tests"() {
+        given:
+        def file = new File(tempDir, JcstressTraceWriter.FILE_NAME)
+        def nanos = 0L
+        def trace = new JcstressTraceWriter(file, { nanos })
+        def shard = new HarnessInvocation('shard-1', [], [], [], tempDir, tempDir)
+
+        when:
+        trace.started(shard)
+        nanos = 1_000_000
+        trace.onLine(shard, 'Java Concurrency Stress Tests')
+        nanos = 3_000_000
+        trace.onLine(shard, '(ETA: 00:00:01) (JVMs: 1 starting, 2 running, 0 finishing)')
+        trace.onLine(shard, '[OK] com.example.CounterTest')
+        nanos = 7_000_000
+        trace.onLine(shard, '[FAILED] com.example.CounterTest')
+        trace.finished(shard)
+        trace.close()
+        def events = new JsonSlurper().parse(file).traceEvents
+
+        then:
+        events.findAll { it.ph == 'X' }.collect { [it.name, it.cat, it.ts, it.dur] } == [
+                ['harness startup', 'harness', 0, 1000],
+                ['com.example.CounterTest', 'test', 3000, 4000]]
+        def forks = events.findAll { it.ph == 'i' }
+        forks.collect { [it.name, it.ts] } == [['com.example.CounterTest', 3000], ['com.example.CounterTest', 7000]]
+        forks[1].args == [status: 'FAILED', fork: 2]
+        events.findAll { it.ph == 'M' && it.name == 'thread_name' }*.args*.name == ['tests']
+        events.find { it.ph == 'C' }.args == [starting: 1, running: 2, finishing: 0]
+        events.find { it.ph == 'M' && it.name == 'process_name' }.args.name == 'shard-1'
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.github.erizo.gradle
+
+import org.gradle.api.logging.Logging
+import spock.lang.IgnoreIf
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class JcstressWatchdogSpec extends Specification {
+
+    @TempDir
+    File tempDir
+
+    def "should find the stuck test on the stacks of a fork"() {
+        given:
+        def dump = '''"worker-1" #14 prio=5 os_prio=0 tid=0x00007f runnable
+   java.lang.Thread.State: RUNNABLE
+\tat com.example.HangTest.actor1(HangTest.java:21)
+\tat com.example.HangTest_jcstress.actor1_loop(HangTest_jcstress.java:140)
+'''
+
+        expect:
+        JcstressWatchdog.stuckTests(dump, ['com.example.Hang', 'com.example.HangTest', 'com.example.OtherTest']) == ['com.example.HangTest']
+    }
+
+    def "should find a stuck test by the class generated for it"() {
+        expect:
+        JcstressWatchdog.stuckTests('\tat com.example.HangTest_jcstress.run(HangTest_jcstress.java:88)', ['com.example.HangTest']) == ['com.example.HangTest']
+    }
+
+    @IgnoreIf({ os.windows || !jvm.java9Compatible })
+    def "should dump and kill a fork that lives longer than the test timeout"() {
+        given:
+        def jcmd = new File(tempDir, 'jcmd')
+        jcmd.text = '#!/bin/sh\necho "\tat com.example.HangTest.actor1(HangTest.java:21)"\n'
+        jcmd.setExecutable(true)
+        def launcher = new HarnessLauncher('java', [], '', [:])
+        def shard = new HarnessInvocation('shard-1', ['com.example.HangTest', 'com.example.OtherTest'], [],
+                ['sh', '-c', 'echo "[OK] com.example.OtherTest"; sleep 60 & wait; echo "RUN RESULTS:"', 'sh'],
+                new File(tempDir, 'shard-1'), new File(tempDir, 'report/shard-1'))
+        def dumpDir = new File(tempDir, 'timeouts')
+        def watchdog = new JcstressWatchdog(launcher, jcmd.path, 1000L, null, dumpDir, Logging.getLogger(getClass()),
+                { System.currentTimeMillis() })
+        def started = System.currentTimeMillis()
+
+        when:
+        watchdog.start()
+        def exitValues = new JcstressShardExecutor(Logging.getLogger(getClass()), launcher).execute([shard], watchdog)
+        watchdog.close()
+
+        then:
+        exitValues[shard] == 0
+        System.currentTimeMillis() - started < 30_000
+        watchdog.timedOut == ['com.example.HangTest']
+        !watchdog.runTimedOut
+        new File(dumpDir, 'shard-1').list().findAll { it ==~ /fork-\d+\.txt/ }.size() == 1
+    }
+
+    @IgnoreIf({ os.windows })
+    @IgnoreIf({ os.windows || !jvm.java9Compatible })
+    def "should stop the run after the run timeout"() {
+        given:
+        def jcmd = new File(tempDir, 'jcmd')
+        jcmd.text = '#!/bin/sh\necho "\tat com.example.HangTest.actor1(HangTest.java:21)"\n'
+        jcmd.setExecutable(true)
+        def launcher = new HarnessLauncher('java', [], '', [:])
+        def shard = new HarnessInvocation('shard-1', ['com.example.HangTest', 'com.example.OtherTest', 'com.example.LaterTest'], [],
+                ['sh', '-c', 'echo "[FAILED] com.example.OtherTest"; sleep 60 & wait', 'sh'],
+                new File(tempDir, 'shard-1'), new File(tempDir, 'report/shard-1'))
+        def watchdog = new JcstressWatchdog(launcher, jcmd.path, null, 1000L, new File(tempDir, 'timeouts'),
+                Logging.getLogger(getClass()), { System.currentTimeMillis() })
+        def started = System.currentTimeMillis()
+
+        when:
+        watchdog.start()
+        new JcstressShardExecutor(Logging.getLogger(getClass()), launcher).execute([shard], watchdog)
+        watchdog.close()
+
+        then:
+        watchdog.runTimedOut
+        watchdog.timedOut == ['com.example.HangTest']
+        watchdog.notRun == ['com.example.LaterTest']
+        launcher.cancelled
+        System.currentTimeMillis() - started < 30_000
+    }
+
+    def "should delete the dumps of an earlier run"() {
+        given:
+        def dumpDir = new File(tempDir, 'timeouts')
+        new File(dumpDir, 'shard-1').mkdirs()
+        new File(dumpDir, 'shard-1/fork-1.txt').text = 'dump'
+
+        when:
+        JcstressWatchdog.deleteDumps(dumpDir)
+
+        then:
+        !dumpDir.exists()
+    }
+
+}
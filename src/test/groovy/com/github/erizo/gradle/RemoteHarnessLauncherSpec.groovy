@@ -0,0 +1,154 @@
+package com.github.erizo.gradle
+
+import com.github.erizo.gradle.agent.AgentProtocol
+import com.github.erizo.gradle.agent.JcstressAgent
+import org.gradle.api.GradleException
+import org.gradle.api.logging.Logging
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class RemoteHarnessLauncherSpec extends Specification {
+
+    @TempDir
+    File tempDir
+
+    List<ServerSocket> serverSockets = []
+
+    def cleanup() {
+        serverSockets*.close()
+    }
+
+    def "should run shards on agents on localhost and collect their reports"() {
+        given:
+        def agents = [startAgent('secret'), startAgent('secret')]
+        def launcher = new RemoteHarnessLauncher(agents, 'secret', [])
+        def invocations = ['com.example.A', 'com.example.B', 'com.example.Failing'].withIndex().collect { test, i ->
+            new HarnessInvocation("shard-${i + 1}", [test], ['-t', test, '-r', 'ignored'], [], new File(tempDir, "work-${i + 1}"),
+                    new File(tempDir, "report/shard-${i + 1}"))
+        }
+        def lines = Collections.synchronizedList([])
+
+        when:
+        def exitValues = new JcstressShardExecutor(Logging.getLogger(getClass()), launcher)
+                .execute(invocations, { invocation, line -> lines << line } as HarnessOutputListener)
+
+        then:
+        exitValues.collectEntries { [it.key.name, it.value] } == ['shard-1': 0, 'shard-2': 0, 'shard-3': 1]
+        lines.containsAll(['[OK] com.example.A', '[OK] com.example.B', '[OK] com.example.Failing'])
+        new File(tempDir, 'report/shard-2/index.html').text == 'com.example.B'
+        new File(tempDir, 'report/shard-2/results/com.example.B.html').isFile()
+    }
+
+    def "should drop agents that cannot be reached"() {
+        given:
+        def unreachable = new ServerSocket(0)
+        unreachable.close()
+        def launcher = new RemoteHarnessLauncher(["localhost:${unreachable.localPort}".toString(), startAgent('secret')], 'secret', [])
+        def invocation = new HarnessInvocation('shard-1', ['com.example.A'], ['-t', 'com.example.A'], [], tempDir, new File(tempDir, 'report'))
+
+        expect:
+        launcher.run(invocation, {}) == 0
+    }
+
+    def "should fail with a wrong agent token"() {
+        given:
+        def launcher = new RemoteHarnessLauncher([startAgent('secret')], 'guess', [])
+        def invocation = new HarnessInvocation('shard-1', ['com.example.A'], ['-t', 'com.example.A'], [], tempDir, new File(tempDir, 'report'))
+
+        when:
+        launcher.run(invocation, {})
+
+        then:
+        def e = thrown(GradleException)
+        e.message.contains('invalid agent token')
+    }
+
+    def "should reject JVM arguments that run commands or load agents"() {
+        given:
+        def launcher = new RemoteHarnessLauncher([startAgent('secret')], 'secret', ['-Xmx1g', '-XX:OnError=touch owned'])
+        def invocation = new HarnessInvocation('shard-1', ['com.example.A'], ['-t', 'com.example.A'], [], tempDir, new File(tempDir, 'report'))
+
+        when:
+        launcher.run(invocation, {})
+
+        then:
+        def e = thrown(GradleException)
+        e.message.contains('JVM argument not allowed on a jcstress agent [-XX:OnError=touch owned]')
+    }
+
+    def "should allow only JVM arguments without commands, files or agents on agents"() {
+        expect:
+        JcstressAgent.disallowedJvmArg(jvmArgs, harnessArgs) == disallowed
+
+        where:
+        jvmArgs                                                        | harnessArgs                                        | disallowed
+        ['-XX:+UnlockDiagnosticVMOptions', '-Duser.language=en', '-Xmx2g'] | []                                             | null
+        ['-XX:ActiveProcessorCount=4', '-ea', '-Xint']                 | ['-jvmArgs', '-XX:+UseG1GC  -XX:-TieredCompilation'] | null
+        ['-javaagent:evil.jar']                                        | []                                                 | '-javaagent:evil.jar'
+        ['-XX:OnOutOfMemoryError=1']                                   | []                                                 | '-XX:OnOutOfMemoryError=1'
+        []                                                             | ['-jvmArgsPrepend', '-XX:+UseSerialGC -agentpath:/tmp/a.so'] | '-agentpath:/tmp/a.so'
+        []                                                             | ['-jvmArgs', '-XX:ErrorFile=/tmp/x']               | '-XX:ErrorFile=/tmp/x'
+    }
+
+    def "should not start an agent without a token"() {
+        given:
+        def serverSocket = new ServerSocket(0)
+        serverSockets << serverSocket
+
+        when:
+        new JcstressAgent(serverSocket, token, FakeHarness.name, tempDir)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        token << [null, '']
+    }
+
+    def "should refuse oversized frames"() {
+        given:
+        def bytes = new ByteArrayOutputStream()
+        new DataOutputStream(bytes).with {
+            writeInt(Integer.MAX_VALUE)
+            writeInt(2)
+            writeInt(AgentProtocol.MAX_STRING_LENGTH + 1)
+        }
+        def in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))
+
+        when:
+        AgentProtocol.readStrings(in)
+
+        then:
+        thrown(IOException)
+
+        when:
+        AgentProtocol.readStrings(in)
+
+        then:
+        thrown(IOException)
+    }
+
+    def "should send shards to agents without local cpu pinning"() {
+        given:
+        def shard = new HarnessInvocation('shard-1', ['a.A'], ['-t', 'a.A', '-c', '2', '-af', 'NONE'], ['taskset', '-c', '0,1'], tempDir, tempDir)
+
+        when:
+        def remote = RemoteHarnessLauncher.forAgents([shard], null)
+
+        then:
+        remote[0].commandPrefix.isEmpty()
+        HarnessArguments.valueOf(remote[0].args, '-c') == null
+        RemoteHarnessLauncher.host('build-1:7000') == 'build-1'
+        RemoteHarnessLauncher.port('build-1:7000') == 7000
+        RemoteHarnessLauncher.port('build-1') == 7171
+    }
+
+    private String startAgent(String token) {
+        def serverSocket = new ServerSocket(0)
+        serverSockets << serverSocket
+        def agent = new JcstressAgent(serverSocket, token, FakeHarness.name, new File(tempDir, "agent-${serverSockets.size()}"))
+        Thread.startDaemon { agent.serve() }
+        return "localhost:${serverSocket.localPort}".toString()
+    }
+
+}